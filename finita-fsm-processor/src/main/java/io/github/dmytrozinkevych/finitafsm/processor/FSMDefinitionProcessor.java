@@ -0,0 +1,306 @@
+package io.github.dmytrozinkevych.finitafsm.processor;
+
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.annotations.CompiledFSM;
+import io.github.dmytrozinkevych.finitafsm.annotations.StateActions;
+import io.github.dmytrozinkevych.finitafsm.annotations.Transition;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Generates a {@code <ClassName>Definition} class for every {@link CompiledFSM} class. The declarations are validated
+ * while compiling: unknown states, events and action methods, as well as several transitions of a state on the same
+ * event, are compile errors, and the generated definition is created straight from the ordinals of the enum constants.
+ */
+@SupportedAnnotationTypes("io.github.dmytrozinkevych.finitafsm.annotations.CompiledFSM")
+public class FSMDefinitionProcessor extends AbstractProcessor {
+
+    private static final String GENERATED_CLASS_SUFFIX = "Definition";
+
+    private record Action(String methodName, ExecutableElement method) { }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (var element : roundEnv.getElementsAnnotatedWith(CompiledFSM.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                processFSM((TypeElement) element);
+            } else {
+                error(element, "@CompiledFSM can only annotate classes");
+            }
+        }
+        return true;
+    }
+
+    private void processFSM(TypeElement fsmType) {
+        var annotation = fsmType.getAnnotation(CompiledFSM.class);
+        var stateType = enumType(fsmType, "states", FSMState.class);
+        var eventType = enumType(fsmType, "events", FSMEvent.class);
+        var fsmInstanceType = processingEnv.getElementUtils().getTypeElement(FSMInstance.class.getCanonicalName());
+        var valid = stateType != null && eventType != null;
+        if (!processingEnv.getTypeUtils().isSubtype(fsmType.asType(), fsmInstanceType.asType())) {
+            error(fsmType, "@CompiledFSM class %s has to extend FSMInstance", fsmType.getSimpleName());
+            valid = false;
+        }
+        for (var type : new TypeElement[] { fsmType, stateType, eventType }) {
+            if (type != null && isPrivate(type)) {
+                error(fsmType, "%s has to be accessible from the generated definition", type.getSimpleName());
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return;
+        }
+
+        var states = enumConstants(stateType);
+        var events = enumConstants(eventType);
+        if (!states.contains(annotation.initialState())) {
+            error(fsmType, "Unknown initial state %s of %s", annotation.initialState(), stateType.getSimpleName());
+            valid = false;
+        }
+
+        var transitionOrdinals = new ArrayList<Integer>();
+        var transitionActions = new ArrayList<Action>();
+        var declaredTransitions = new boolean[states.size() * events.size()];
+        for (var transition : fsmType.getAnnotationsByType(Transition.class)) {
+            var oldState = ordinal(fsmType, states, transition.from(), stateType);
+            var event = ordinal(fsmType, events, transition.event(), eventType);
+            var newState = ordinal(fsmType, states, transition.to(), stateType);
+            var action = action(fsmType, transition.action(), stateType, eventType);
+            if (oldState < 0 || event < 0 || newState < 0 || action == null) {
+                valid = false;
+                continue;
+            }
+            var index = oldState * events.size() + event;
+            if (declaredTransitions[index]) {
+                error(fsmType, "State %s has several transitions on event %s", transition.from(), transition.event());
+                valid = false;
+                continue;
+            }
+            declaredTransitions[index] = true;
+            transitionOrdinals.addAll(List.of(oldState, event, newState));
+            transitionActions.add(action);
+        }
+
+        var enterStateActions = new Action[states.size()];
+        var exitStateActions = new Action[states.size()];
+        var declaredStateActions = new boolean[states.size()];
+        for (var stateActions : fsmType.getAnnotationsByType(StateActions.class)) {
+            var state = ordinal(fsmType, states, stateActions.state(), stateType);
+            var enterStateAction = action(fsmType, stateActions.enterStateAction(), stateType, eventType);
+            var exitStateAction = action(fsmType, stateActions.exitStateAction(), stateType, eventType);
+            if (state < 0 || enterStateAction == null || exitStateAction == null) {
+                valid = false;
+                continue;
+            }
+            if (declaredStateActions[state]) {
+                error(fsmType, "State %s has several @StateActions", stateActions.state());
+                valid = false;
+                continue;
+            }
+            declaredStateActions[state] = true;
+            enterStateActions[state] = enterStateAction;
+            exitStateActions[state] = exitStateAction;
+        }
+
+        if (transitionActions.isEmpty()) {
+            error(fsmType, "@CompiledFSM class %s has no transitions", fsmType.getSimpleName());
+            valid = false;
+        }
+        if (valid) {
+            writeDefinition(fsmType, stateType, eventType, annotation.initialState(),
+                    transitionOrdinals, transitionActions, enterStateActions, exitStateActions);
+        }
+    }
+
+    private TypeElement enumType(TypeElement fsmType, String attribute, Class<?> interfaceType) {
+        var value = annotationValue(fsmType, attribute);
+        var type = value != null && value.getValue() instanceof DeclaredType declaredType
+                ? (TypeElement) declaredType.asElement()
+                : null;
+        var requiredInterface = processingEnv.getElementUtils().getTypeElement(interfaceType.getCanonicalName());
+        if (type == null || type.getKind() != ElementKind.ENUM
+                || !processingEnv.getTypeUtils().isAssignable(type.asType(), requiredInterface.asType())) {
+            error(fsmType, "@CompiledFSM %s has to be an enum implementing %s", attribute, interfaceType.getSimpleName());
+            return null;
+        }
+        return type;
+    }
+
+    // Class values can't be read from the annotation itself while compiling, so they are taken from its mirror
+    private AnnotationValue annotationValue(TypeElement fsmType, String attribute) {
+        for (AnnotationMirror mirror : fsmType.getAnnotationMirrors()) {
+            var annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(CompiledFSM.class.getCanonicalName())) {
+                continue;
+            }
+            for (var entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Constants are declared in the order of their ordinals
+    private static List<String> enumConstants(TypeElement enumType) {
+        return enumType.getEnclosedElements().stream()
+                .filter(element -> element.getKind() == ElementKind.ENUM_CONSTANT)
+                .map(element -> element.getSimpleName().toString())
+                .toList();
+    }
+
+    private int ordinal(TypeElement fsmType, List<String> constants, String name, TypeElement enumType) {
+        var ordinal = constants.indexOf(name);
+        if (ordinal < 0) {
+            error(fsmType, "Unknown constant %s of %s", name, enumType.getSimpleName());
+        }
+        return ordinal;
+    }
+
+    // Returns an action without a method for an empty name and null when the method can't be called
+    private Action action(TypeElement fsmType, String methodName, TypeElement stateType, TypeElement eventType) {
+        if (methodName.isEmpty()) {
+            return new Action(methodName, null);
+        }
+        var types = processingEnv.getTypeUtils();
+        var methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(fsmType));
+        for (var method : methods) {
+            var parameters = method.getParameters();
+            if (method.getSimpleName().contentEquals(methodName)
+                    && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && parameters.size() == 3
+                    && types.isAssignable(stateType.asType(), parameters.get(0).asType())
+                    && types.isAssignable(eventType.asType(), parameters.get(1).asType())
+                    && types.isAssignable(stateType.asType(), parameters.get(2).asType())) {
+                return new Action(methodName, method);
+            }
+        }
+        error(fsmType, "No non-private instance method %s(%s, %s, %s) in %s", methodName,
+                stateType.getSimpleName(), eventType.getSimpleName(), stateType.getSimpleName(), fsmType.getSimpleName());
+        return null;
+    }
+
+    private void writeDefinition(TypeElement fsmType, TypeElement stateType, TypeElement eventType, String initialState,
+                                 List<Integer> transitionOrdinals, List<Action> transitionActions,
+                                 Action[] enterStateActions, Action[] exitStateActions) {
+        var packageName = packageOf(fsmType).getQualifiedName().toString();
+        var className = generatedClassName(fsmType);
+        var fsmClass = erasure(fsmType.asType());
+        var stateClass = stateType.getQualifiedName();
+        var eventClass = eventType.getQualifiedName();
+
+        var ordinals = new StringJoiner(", ", "new int[] { ", " }");
+        for (int i = 0; i < transitionOrdinals.size(); i += 3) {
+            ordinals.add(transitionOrdinals.get(i) + ", " + transitionOrdinals.get(i + 1) + ", " + transitionOrdinals.get(i + 2));
+        }
+
+        var source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getCanonicalName()).append("\")\n")
+                .append("public final class ").append(className).append(" {\n\n")
+                .append("    public static final io.github.dmytrozinkevych.finitafsm.FSMDefinition DEFINITION =\n")
+                .append("            io.github.dmytrozinkevych.finitafsm.FSMDefinition.fromTable(\n")
+                .append("                    ").append(stateClass).append(".class,\n")
+                .append("                    ").append(eventClass).append(".class,\n")
+                .append("                    ").append(stateClass).append('.').append(initialState).append(",\n")
+                .append("                    ").append(ordinals).append(",\n")
+                .append("                    ").append(actionsArray(transitionActions, fsmClass, stateClass, eventClass)).append(",\n")
+                .append("                    ").append(actionsArray(Arrays.asList(enterStateActions), fsmClass, stateClass, eventClass)).append(",\n")
+                .append("                    ").append(actionsArray(Arrays.asList(exitStateActions), fsmClass, stateClass, eventClass)).append('\n')
+                .append("            );\n\n")
+                .append("    private ").append(className).append("() { }\n")
+                .append("}\n");
+
+        var qualifiedName = packageName.isEmpty() ? className : packageName + '.' + className;
+        try (var writer = processingEnv.getFiler().createSourceFile(qualifiedName, fsmType).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException ex) {
+            error(fsmType, "Couldn't write %s: %s", qualifiedName, ex.getMessage());
+        }
+    }
+
+    // The actions call the methods on the instance they are run for, so one definition serves all instances
+    private String actionsArray(List<Action> actions, String fsmClass, CharSequence stateClass, CharSequence eventClass) {
+        var array = new StringJoiner(",\n                            ", "new io.github.dmytrozinkevych.finitafsm.FSMAction[] {\n                            ", "\n                    }");
+        for (var action : actions) {
+            if (action == null || action.method() == null) {
+                array.add("null");
+                continue;
+            }
+            var parameters = action.method().getParameters();
+            array.add("(fsm, oldState, event, newState) -> ((%s) fsm).%s((%s) oldState, (%s) event, (%s) newState)".formatted(
+                    fsmClass,
+                    action.methodName(),
+                    erasure(parameters.get(0).asType()),
+                    erasure(parameters.get(1).asType()),
+                    erasure(parameters.get(2).asType())
+            ));
+        }
+        return array.toString();
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static boolean isPrivate(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement enclosing; element = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PackageElement packageOf(Element element) {
+        while (!(element instanceof PackageElement packageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return packageElement;
+    }
+
+    // Nested classes get the names of their enclosing classes joined with underscores
+    private static String generatedClassName(TypeElement fsmType) {
+        var name = new StringBuilder(fsmType.getSimpleName());
+        for (var enclosing = fsmType.getEnclosingElement(); enclosing instanceof TypeElement type; enclosing = type.getEnclosingElement()) {
+            name.insert(0, type.getSimpleName() + "_");
+        }
+        return name.append(GENERATED_CLASS_SUFFIX).toString();
+    }
+
+    private void error(Element element, String message, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message.formatted(args), element);
+    }
+}
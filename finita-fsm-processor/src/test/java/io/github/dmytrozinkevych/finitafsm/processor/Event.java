@@ -0,0 +1,7 @@
+package io.github.dmytrozinkevych.finitafsm.processor;
+
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+
+public enum Event implements FSMEvent {
+    E1, E2
+}
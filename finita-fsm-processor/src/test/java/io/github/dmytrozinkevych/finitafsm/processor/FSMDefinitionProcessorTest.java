@@ -0,0 +1,180 @@
+package io.github.dmytrozinkevych.finitafsm.processor;
+
+import io.github.dmytrozinkevych.finitafsm.AbstractFSM;
+import io.github.dmytrozinkevych.finitafsm.FSMAction;
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.annotations.CompiledFSM;
+import io.github.dmytrozinkevych.finitafsm.annotations.Transition;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMDefinitionProcessorTest {
+
+    @CompiledFSM(states = State.class, events = Event.class, initialState = "S2")
+    @Transition(from = "S2", event = "E1", to = "S1")
+    static class NestedFsm extends AbstractFSM {
+
+        NestedFsm() {
+            super(State.S2);
+            setDefinition(FSMDefinitionProcessorTest_NestedFsmDefinition.DEFINITION);
+        }
+    }
+
+    private static List<String> compileErrors(String source) throws Exception {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var file = new SimpleJavaFileObject(URI.create("string:///test/TestFsm.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        var output = Files.createTempDirectory("finita-fsm-processor");
+        var options = List.of("-classpath", System.getProperty("java.class.path"), "-d", output.toString(), "-s", output.toString());
+        var task = compiler.getTask(null, null, diagnostics, options, null, List.of(file));
+        task.setProcessors(List.of(new FSMDefinitionProcessor()));
+        task.call();
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .toList();
+    }
+
+    private static String testFsm(String annotations, String methods) {
+        return """
+                package test;
+
+                import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+                import io.github.dmytrozinkevych.finitafsm.annotations.*;
+                import io.github.dmytrozinkevych.finitafsm.processor.Event;
+                import io.github.dmytrozinkevych.finitafsm.processor.State;
+
+                @CompiledFSM(states = State.class, events = Event.class, initialState = "S1")
+                %s
+                class TestFsm extends FSMInstance {
+
+                    TestFsm() {
+                        super(TestFsmDefinition.DEFINITION);
+                    }
+
+                    %s
+                }
+                """.formatted(annotations, methods);
+    }
+
+    @Test
+    void testGeneratedDefinitionRunsTransitionsAndActions() {
+        var fsm = new RecordingFsm();
+
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.trigger(Event.E2));
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+        assertEquals(State.S4, fsm.trigger(Event.E2));
+        assertEquals(List.of("S1 E1 S2", "enter S2", "S2 E2 S1", "S1 E1 S2", "enter S2", "exit S3"), fsm.calls);
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testGeneratedDefinitionIsSharedByInstances() {
+        var first = new RecordingFsm();
+        var second = new RecordingFsm();
+
+        first.trigger(Event.E1);
+
+        assertSame(first.getDefinition(), second.getDefinition());
+        assertEquals(State.S1, second.getCurrentState());
+        assertTrue(second.calls.isEmpty());
+    }
+
+    @Test
+    void testGeneratedDefinitionKeepsDeclarations() {
+        var definition = RecordingFsmDefinition.DEFINITION;
+
+        assertEquals(State.S1, definition.getInitialState());
+        assertTrue(definition.hasTransitions());
+        assertTrue(definition.getEnterStateAction(State.S2).isPresent());
+        assertTrue(definition.getExitStateAction(State.S2).isEmpty());
+        assertTrue(definition.generatePlantUmlDiagramCode(null, null).contains("S3 --> S4 : E2"));
+    }
+
+    @Test
+    void testNestedClassDefinitionIsSetOnAbstractFSM() {
+        var fsm = new NestedFsm();
+
+        assertEquals(State.S1, fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testMismatchedTableIsRejected() {
+        assertThrows(FSMException.class, () -> FSMDefinition.fromTable(
+                State.class, Event.class, State.S1,
+                new int[] { 0, 2, 1 }, new FSMAction[1], new FSMAction[4], new FSMAction[4]
+        ));
+        assertThrows(FSMException.class, () -> FSMDefinition.fromTable(
+                State.class, Event.class, State.S1,
+                new int[] { 0, 0, 1 }, new FSMAction[1], new FSMAction[3], new FSMAction[4]
+        ));
+    }
+
+    @Test
+    void testValidFSMCompiles() throws Exception {
+        var errors = compileErrors(testFsm(
+                "@Transition(from = \"S1\", event = \"E1\", to = \"S2\", action = \"action\")",
+                "void action(State oldState, Event event, State newState) { }"
+        ));
+
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void testDuplicateEventIsCompileError() throws Exception {
+        var errors = compileErrors(testFsm("""
+                @Transition(from = "S1", event = "E1", to = "S2")
+                @Transition(from = "S1", event = "E1", to = "S3")
+                """, ""));
+
+        assertTrue(errors.contains("State S1 has several transitions on event E1"), errors.toString());
+    }
+
+    @Test
+    void testUnknownConstantIsCompileError() throws Exception {
+        var errors = compileErrors(testFsm("@Transition(from = \"S1\", event = \"E3\", to = \"S5\")", ""));
+
+        assertTrue(errors.contains("Unknown constant E3 of Event"), errors.toString());
+        assertTrue(errors.contains("Unknown constant S5 of State"), errors.toString());
+    }
+
+    @Test
+    void testMissingActionIsCompileError() throws Exception {
+        var errors = compileErrors(testFsm(
+                "@Transition(from = \"S1\", event = \"E1\", to = \"S2\", action = \"action\")",
+                "private void action(State oldState, Event event, State newState) { }"
+        ));
+
+        assertTrue(errors.contains("No non-private instance method action(State, Event, State) in TestFsm"), errors.toString());
+    }
+
+    @Test
+    void testDuplicateStateActionsIsCompileError() throws Exception {
+        var errors = compileErrors(testFsm("""
+                @Transition(from = "S1", event = "E1", to = "S2")
+                @StateActions(state = "S2")
+                @StateActions(state = "S2")
+                """, ""));
+
+        assertTrue(errors.contains("State S2 has several @StateActions"), errors.toString());
+    }
+}
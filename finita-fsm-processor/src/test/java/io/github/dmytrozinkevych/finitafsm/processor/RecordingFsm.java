@@ -0,0 +1,37 @@
+package io.github.dmytrozinkevych.finitafsm.processor;
+
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.annotations.CompiledFSM;
+import io.github.dmytrozinkevych.finitafsm.annotations.StateActions;
+import io.github.dmytrozinkevych.finitafsm.annotations.Transition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@CompiledFSM(states = State.class, events = Event.class, initialState = "S1")
+@Transition(from = "S1", event = "E1", to = "S2", action = "record")
+@Transition(from = "S2", event = "E1", to = "S3")
+@Transition(from = "S2", event = "E2", to = "S1", action = "record")
+@Transition(from = "S3", event = "E2", to = "S4")
+@StateActions(state = "S2", enterStateAction = "enterS2")
+@StateActions(state = "S3", exitStateAction = "exitS3")
+public class RecordingFsm extends FSMInstance {
+
+    final List<String> calls = new ArrayList<>();
+
+    public RecordingFsm() {
+        super(RecordingFsmDefinition.DEFINITION);
+    }
+
+    void record(State oldState, Event event, State newState) {
+        calls.add(oldState + " " + event + " " + newState);
+    }
+
+    void enterS2(State oldState, Event event, State newState) {
+        calls.add("enter S2");
+    }
+
+    void exitS3(Object oldState, Object event, Object newState) {
+        calls.add("exit S3");
+    }
+}
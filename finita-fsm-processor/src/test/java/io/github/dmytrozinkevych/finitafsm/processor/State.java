@@ -0,0 +1,7 @@
+package io.github.dmytrozinkevych.finitafsm.processor;
+
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+
+public enum State implements FSMState {
+    S1, S2, S3, S4
+}
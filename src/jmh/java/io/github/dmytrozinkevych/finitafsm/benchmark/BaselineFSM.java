@@ -0,0 +1,74 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.FSMStateActions;
+import io.github.dmytrozinkevych.finitafsm.FSMTransition;
+import io.github.dmytrozinkevych.finitafsm.exceptions.DuplicateFSMEventException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import io.github.dmytrozinkevych.finitafsm.utils.Pair;
+import io.github.dmytrozinkevych.finitafsm.utils.TriConsumer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The per-instance tables AbstractFSM built in its setters before definitions were shared, kept as the baseline
+ * of {@link ConstructionBenchmark}. The setters and the lookups of a trigger are the same, the hooks are left out.
+ */
+final class BaselineFSM {
+
+    private Map<FSMState, Map<FSMEvent, Pair<FSMState, TriConsumer<FSMState, FSMEvent, FSMState>>>> statesWithTransitions;
+
+    private Map<FSMState, Pair<TriConsumer<FSMState, FSMEvent, FSMState>, TriConsumer<FSMState, FSMEvent, FSMState>>> statesEnterExitActions;
+
+    private FSMState currentState;
+
+    BaselineFSM(FSMState initialState, Set<FSMTransition> transitions, Set<FSMStateActions> stateActions) {
+        currentState = initialState;
+        setTransitions(transitions);
+        setStateActions(stateActions);
+    }
+
+    private void setTransitions(Set<FSMTransition> transitions) {
+        statesWithTransitions = new HashMap<>();
+        for (var transition : transitions) {
+            var eventMap = statesWithTransitions.computeIfAbsent(transition.oldState(), state -> new HashMap<>());
+            if (eventMap.containsKey(transition.event())) {
+                throw new DuplicateFSMEventException();
+            }
+            eventMap.put(transition.event(), new Pair<>(transition.newState(), transition.action()));
+        }
+    }
+
+    private void setStateActions(Set<FSMStateActions> stateActions) {
+        statesEnterExitActions = stateActions.stream()
+                .filter(fsmStateActions -> fsmStateActions.enterStateAction() != null || fsmStateActions.exitStateAction() != null)
+                .collect(Collectors.toMap(
+                        FSMStateActions::state,
+                        fsmStateActions -> new Pair<>(fsmStateActions.enterStateAction(), fsmStateActions.exitStateAction())
+                ));
+    }
+
+    FSMState trigger(FSMEvent event) {
+        var transition = Optional.ofNullable(statesWithTransitions.get(currentState))
+                .map(stateTransitions -> stateTransitions.get(event))
+                .orElseThrow(() -> new NoSuchTransitionException(currentState, event));
+        var oldState = currentState;
+        var newState = transition.left();
+        Optional.ofNullable(statesEnterExitActions.get(oldState))
+                .map(Pair::right)
+                .ifPresent(action -> action.accept(oldState, event, newState));
+        if (transition.right() != null) {
+            transition.right().accept(oldState, event, newState);
+        }
+        currentState = newState;
+        Optional.ofNullable(statesEnterExitActions.get(newState))
+                .map(Pair::left)
+                .ifPresent(action -> action.accept(oldState, event, newState));
+        return newState;
+    }
+}
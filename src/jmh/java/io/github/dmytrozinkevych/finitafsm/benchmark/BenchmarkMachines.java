@@ -0,0 +1,122 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.AbstractFSM;
+import io.github.dmytrozinkevych.finitafsm.FSMAction;
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.FSMStateActions;
+import io.github.dmytrozinkevych.finitafsm.FSMTransition;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public final class BenchmarkMachines {
+
+    static final int LARGE_STATES_COUNT = 1_000;
+
+    static final int LARGE_EVENTS_COUNT = 100;
+
+    enum SmallState implements FSMState {
+        S1, S2, S3, S4
+    }
+
+    enum SmallEvent implements FSMEvent {
+        E1, E2, E3
+    }
+
+    record LargeState(int id) implements FSMState {
+        @Override
+        public String toString() {
+            return "S" + id;
+        }
+    }
+
+    record LargeEvent(int id) implements FSMEvent {
+        @Override
+        public String toString() {
+            return "E" + id;
+        }
+    }
+
+    public enum Size {
+        SMALL, LARGE
+    }
+
+    static final LargeState[] LARGE_STATES = new LargeState[LARGE_STATES_COUNT];
+
+    static final LargeEvent[] LARGE_EVENTS = new LargeEvent[LARGE_EVENTS_COUNT];
+
+    static {
+        for (int i = 0; i < LARGE_STATES_COUNT; i++) {
+            LARGE_STATES[i] = new LargeState(i);
+        }
+        for (int i = 0; i < LARGE_EVENTS_COUNT; i++) {
+            LARGE_EVENTS[i] = new LargeEvent(i);
+        }
+    }
+
+    private static final FSMAction NO_OP_ACTION = (fsm, oldState, event, newState) -> { };
+
+    private BenchmarkMachines() { }
+
+    static FSMState initialState(Size size) {
+        return size == Size.SMALL ? SmallState.S1 : LARGE_STATES[0];
+    }
+
+    static FSMEvent[] events(Size size) {
+        return size == Size.SMALL ? SmallEvent.values() : LARGE_EVENTS;
+    }
+
+    // Every state has a transition for every event, so any sequence of events can be triggered
+    static Set<FSMTransition> transitions(Size size) {
+        var states = size == Size.SMALL ? SmallState.values() : LARGE_STATES;
+        var events = events(size);
+        var transitions = new HashSet<FSMTransition>();
+        for (int stateIndex = 0; stateIndex < states.length; stateIndex++) {
+            for (int eventIndex = 0; eventIndex < events.length; eventIndex++) {
+                var newState = states[(stateIndex * 31 + eventIndex + 1) % states.length];
+                transitions.add(new FSMTransition(states[stateIndex], events[eventIndex], newState, BenchmarkMachines::noOp));
+            }
+        }
+        return transitions;
+    }
+
+    static Set<FSMStateActions> stateActions(Size size) {
+        var states = size == Size.SMALL ? SmallState.values() : LARGE_STATES;
+        var stateActions = new HashSet<FSMStateActions>();
+        for (var state : states) {
+            stateActions.add(new FSMStateActions(state, BenchmarkMachines::noOp, BenchmarkMachines::noOp));
+        }
+        return stateActions;
+    }
+
+    static FSMDefinition definition(Size size, boolean withStateActions) {
+        return definition(size, true, withStateActions);
+    }
+
+    static FSMDefinition definition(Size size, boolean withTransitionActions, boolean withStateActions) {
+        var builder = FSMDefinition.builder()
+                .initialState(initialState(size));
+        for (var transition : transitions(size)) {
+            builder.transition(transition.oldState(), transition.event(), transition.newState(), withTransitionActions ? NO_OP_ACTION : null);
+        }
+        if (withStateActions) {
+            for (var stateActions : stateActions(size)) {
+                builder.stateActions(stateActions.state(), NO_OP_ACTION, NO_OP_ACTION);
+            }
+        }
+        return builder.build();
+    }
+
+    static void noOp(FSMState oldState, FSMEvent event, FSMState newState) { }
+
+    public static final class BenchmarkFSM extends AbstractFSM {
+
+        BenchmarkFSM(Size size, Set<FSMTransition> transitions, Set<FSMStateActions> stateActions) {
+            super(initialState(size));
+            setTransitions(transitions);
+            setStateActions(stateActions);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMPopulation;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+// The time to apply one event to a million entities, the vector kernel is used only in the fork which adds its module
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastBenchmark {
+
+    private static final int ENTITIES_COUNT = 1_000_000;
+
+    private FSMEvent event;
+
+    private FSMPopulation population;
+
+    private FSMInstance[] instances;
+
+    @Setup
+    public void setUp() {
+        FSMDefinition definition = BenchmarkMachines.definition(Size.SMALL, false);
+        event = BenchmarkMachines.events(Size.SMALL)[0];
+        population = FSMPopulation.builder(definition, ENTITIES_COUNT).build();
+        instances = new FSMInstance[ENTITIES_COUNT];
+        for (int i = 0; i < ENTITIES_COUNT; i++) {
+            instances[i] = new FSMInstance(definition);
+        }
+    }
+
+    @Benchmark
+    public FSMState triggerInstances() {
+        FSMState state = null;
+        for (var fsm : instances) {
+            state = fsm.trigger(event);
+        }
+        return state;
+    }
+
+    @Benchmark
+    public FSMState triggerPopulation() {
+        FSMState state = null;
+        for (int i = 0; i < ENTITIES_COUNT; i++) {
+            state = population.trigger(i, event);
+        }
+        return state;
+    }
+
+    @Benchmark
+    public BitSet broadcast() {
+        return population.broadcast(event);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public BitSet broadcastVector() {
+        return population.broadcast(event);
+    }
+}
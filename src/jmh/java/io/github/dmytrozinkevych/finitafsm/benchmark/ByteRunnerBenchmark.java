@@ -0,0 +1,105 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMByteRunner;
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The time to parse 16 MB of text into lines, by triggering an event per byte and by the byte runner
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteRunnerBenchmark {
+
+    private static final int BUFFER_SIZE = 16 * 1024 * 1024;
+
+    enum LineState implements FSMState {
+        LINE_START, IN_LINE, IN_SPACE
+    }
+
+    enum LineEvent implements FSMEvent {
+        CHARACTER, SPACE, LINE_FEED
+    }
+
+    private FSMEvent[] byteEvents;
+
+    private FSMByteRunner runner;
+
+    private FSMInstance fsm;
+
+    private ByteBuffer heapBuffer;
+
+    private ByteBuffer directBuffer;
+
+    private long linesCount;
+
+    @Setup
+    public void setUp() {
+        FSMDefinition definition = FSMDefinition.builder()
+                .initialState(LineState.LINE_START)
+                .transition(LineState.LINE_START, LineEvent.CHARACTER, LineState.IN_LINE)
+                .transition(LineState.LINE_START, LineEvent.SPACE, LineState.IN_SPACE)
+                .transition(LineState.LINE_START, LineEvent.LINE_FEED, LineState.LINE_START)
+                .transition(LineState.IN_LINE, LineEvent.CHARACTER, LineState.IN_LINE)
+                .transition(LineState.IN_LINE, LineEvent.SPACE, LineState.IN_SPACE)
+                .transition(LineState.IN_SPACE, LineEvent.CHARACTER, LineState.IN_LINE)
+                .transition(LineState.IN_SPACE, LineEvent.SPACE, LineState.IN_SPACE)
+                .transition(LineState.IN_LINE, LineEvent.LINE_FEED, LineState.LINE_START,
+                        (fsm, oldState, event, newState) -> linesCount++)
+                .transition(LineState.IN_SPACE, LineEvent.LINE_FEED, LineState.LINE_START,
+                        (fsm, oldState, event, newState) -> linesCount++)
+                .build();
+        runner = FSMByteRunner.builder(definition)
+                .byteClass('\n', LineEvent.LINE_FEED)
+                .byteClass(" \t", LineEvent.SPACE)
+                .otherBytes(LineEvent.CHARACTER)
+                .emitting(LineEvent.LINE_FEED)
+                .build();
+        byteEvents = new FSMEvent[256];
+        for (int value = 0; value < 256; value++) {
+            byteEvents[value] = runner.getByteClass(value);
+        }
+        fsm = new FSMInstance(definition);
+
+        // Lines of 20 to 100 printable characters, every sixth one a space
+        var random = new Random(42);
+        var bytes = new byte[BUFFER_SIZE];
+        for (int i = 0; i < bytes.length; ) {
+            var lineLength = Math.min(20 + random.nextInt(80), bytes.length - i - 1);
+            for (int j = 0; j < lineLength; j++) {
+                bytes[i++] = random.nextInt(6) == 0 ? (byte) ' ' : (byte) ('!' + random.nextInt(94));
+            }
+            bytes[i++] = '\n';
+        }
+        heapBuffer = ByteBuffer.wrap(bytes);
+        directBuffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @Benchmark
+    public long triggerPerByte() {
+        var bytes = heapBuffer.array();
+        for (var value : bytes) {
+            fsm.trigger(byteEvents[value & 0xFF]);
+        }
+        return linesCount;
+    }
+
+    @Benchmark
+    public FSMState runHeapBuffer() {
+        return runner.run(fsm, heapBuffer.clear());
+    }
+
+    @Benchmark
+    public FSMState runDirectBuffer() {
+        return runner.run(fsm, directBuffer.clear());
+    }
+}
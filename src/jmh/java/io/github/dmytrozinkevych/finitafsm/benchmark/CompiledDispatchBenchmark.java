@@ -0,0 +1,101 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMAction;
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Several machines with their own actions are triggered in turn, so the action call sites
+// of the regular dispatch see many targets while each compiled dispatcher sees only its own
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompiledDispatchBenchmark {
+
+    private enum BenchmarkState implements FSMState { S1, S2, S3, S4 }
+
+    private enum BenchmarkEvent implements FSMEvent { NEXT }
+
+    private static final class CountingFsm extends FSMInstance {
+
+        private long transitions;
+
+        private long sum;
+
+        CountingFsm(FSMDefinition definition) {
+            super(definition);
+        }
+
+        @Override
+        protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+            transitions++;
+        }
+    }
+
+    @Param({"false", "true"})
+    private boolean compiled;
+
+    private CountingFsm[] machines;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        machines = new CountingFsm[] {
+                new CountingFsm(definition(
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum += 1,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum += 2,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum += 3,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum += 4
+                )),
+                new CountingFsm(definition(
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum -= 1,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum -= 2,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum -= 3,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum -= 4
+                )),
+                new CountingFsm(definition(
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum ^= 1,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum ^= 2,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum ^= 3,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum ^= 4
+                )),
+                new CountingFsm(definition(
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum *= 3,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum *= 5,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum *= 7,
+                        (fsm, oldState, event, newState) -> ((CountingFsm) fsm).sum *= 9
+                ))
+        };
+    }
+
+    private FSMDefinition definition(FSMAction first, FSMAction second, FSMAction third, FSMAction fourth) {
+        return FSMDefinition.builder()
+                .initialState(BenchmarkState.S1)
+                .compiled(compiled)
+                .transition(BenchmarkState.S1, BenchmarkEvent.NEXT, BenchmarkState.S2, first)
+                .transition(BenchmarkState.S2, BenchmarkEvent.NEXT, BenchmarkState.S3, second)
+                .transition(BenchmarkState.S3, BenchmarkEvent.NEXT, BenchmarkState.S4, third)
+                .transition(BenchmarkState.S4, BenchmarkEvent.NEXT, BenchmarkState.S1, fourth)
+                .build();
+    }
+
+    @Benchmark
+    public FSMState trigger() {
+        var fsm = machines[next];
+        next = (next + 1) & (machines.length - 1);
+        return fsm.trigger(BenchmarkEvent.NEXT);
+    }
+
+    @Benchmark
+    public FSMState triggerSingleMachine() {
+        return machines[0].trigger(BenchmarkEvent.NEXT);
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.FSMStateActions;
+import io.github.dmytrozinkevych.finitafsm.FSMTransition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.BenchmarkFSM;
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+/**
+ * Compares building a per-instance table through {@code setTransitions} with instantiating a shared definition,
+ * and with the tables AbstractFSM built before definitions were shared. AbstractFSM builds its definition
+ * on first use, so every instance is triggered once. The {@code gc.alloc.rate.norm} metric of the gc profiler
+ * is the per-instance footprint.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructionBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private Size size;
+
+    private Set<FSMTransition> transitions;
+
+    private Set<FSMStateActions> stateActions;
+
+    private FSMDefinition definition;
+
+    private FSMEvent firstEvent;
+
+    @Setup
+    public void setUp() {
+        transitions = BenchmarkMachines.transitions(size);
+        stateActions = BenchmarkMachines.stateActions(size);
+        definition = BenchmarkMachines.definition(size, true);
+        firstEvent = BenchmarkMachines.events(size)[0];
+    }
+
+    @Benchmark
+    public FSMState constructAbstractFsm() {
+        return new BenchmarkFSM(size, transitions, stateActions).trigger(firstEvent);
+    }
+
+    @Benchmark
+    public FSMState constructBaselineAbstractFsm() {
+        return new BaselineFSM(BenchmarkMachines.initialState(size), transitions, stateActions).trigger(firstEvent);
+    }
+
+    @Benchmark
+    public FSMDefinition buildDefinition() {
+        return BenchmarkMachines.definition(size, true);
+    }
+
+    @Benchmark
+    public FSMState constructSharedDefinitionInstance() {
+        return new FSMInstance(definition).trigger(firstEvent);
+    }
+}
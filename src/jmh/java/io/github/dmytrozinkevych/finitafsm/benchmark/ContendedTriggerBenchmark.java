@@ -0,0 +1,70 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.ConcurrentFSM;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ContendedTriggerBenchmark {
+
+    private static final FSMEvent[] EVENTS = BenchmarkMachines.events(Size.SMALL);
+
+    @State(Scope.Benchmark)
+    public static class SharedInstance {
+
+        final FSMInstance fsm = new FSMInstance(BenchmarkMachines.definition(Size.SMALL, true));
+
+        final ConcurrentFSM optimisticFsm = new ConcurrentFSM(BenchmarkMachines.definition(Size.SMALL, false, false));
+
+        final ConcurrentFSM lockingFsm = new ConcurrentFSM(BenchmarkMachines.definition(Size.SMALL, true));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadInstance {
+
+        FSMInstance fsm;
+
+        @Setup
+        public void setUp(SharedInstance sharedInstance) {
+            fsm = new FSMInstance(sharedInstance.fsm.getDefinition());
+        }
+    }
+
+    private static FSMEvent randomEvent() {
+        return EVENTS[ThreadLocalRandom.current().nextInt(EVENTS.length)];
+    }
+
+    @Benchmark
+    public FSMState synchronizedSharedInstance(SharedInstance sharedInstance) {
+        synchronized (sharedInstance.fsm) {
+            return sharedInstance.fsm.trigger(randomEvent());
+        }
+    }
+
+    @Benchmark
+    public FSMState optimisticConcurrentFsm(SharedInstance sharedInstance) {
+        return sharedInstance.optimisticFsm.trigger(randomEvent());
+    }
+
+    @Benchmark
+    public FSMState lockingConcurrentFsm(SharedInstance sharedInstance) {
+        return sharedInstance.lockingFsm.trigger(randomEvent());
+    }
+
+    @Benchmark
+    public FSMState instancePerThreadOfSharedDefinition(ThreadInstance threadInstance) {
+        return threadInstance.fsm.trigger(randomEvent());
+    }
+}
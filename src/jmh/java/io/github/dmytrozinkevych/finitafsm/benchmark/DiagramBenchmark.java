@@ -0,0 +1,44 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMDiagram;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiagramBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private Size size;
+
+    private FSMDefinition definition;
+
+    private final Writer out = Writer.nullWriter();
+
+    @Setup
+    public void setUp() {
+        definition = BenchmarkMachines.definition(size, false);
+    }
+
+    @Benchmark
+    public String generatePlantUmlDiagramCode() {
+        return definition.generatePlantUmlDiagramCode(definition.getInitialState(), definition.getInitialState());
+    }
+
+    // Nothing is rendered into the definition by this benchmark, so every edge is streamed into the writer
+    @Benchmark
+    public Writer writePlantUmlDiagram() throws IOException {
+        FSMDiagram.writePlantUml(definition, definition.getInitialState(), definition.getInitialState(), out);
+        return out;
+    }
+}
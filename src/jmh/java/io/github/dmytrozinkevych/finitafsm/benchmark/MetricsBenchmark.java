@@ -0,0 +1,58 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMMetrics;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    private static final int EVENTS_SEQUENCE_LENGTH = 1 << 12;
+
+    // 0 disables metrics
+    @Param({"0", "1", "64"})
+    private int latencySamplingInterval;
+
+    @Param({"false", "true"})
+    private boolean withStateActions;
+
+    private FSMInstance fsm;
+
+    private FSMEvent[] eventsSequence;
+
+    private int eventIndex;
+
+    @Setup
+    public void setUp() {
+        fsm = new FSMInstance(BenchmarkMachines.definition(Size.SMALL, withStateActions));
+        if (latencySamplingInterval > 0) {
+            fsm.setMetrics(new FSMMetrics(latencySamplingInterval));
+        }
+
+        var events = BenchmarkMachines.events(Size.SMALL);
+        var random = new Random(42);
+        eventsSequence = new FSMEvent[EVENTS_SEQUENCE_LENGTH];
+        for (int i = 0; i < EVENTS_SEQUENCE_LENGTH; i++) {
+            eventsSequence[i] = events[random.nextInt(events.length)];
+        }
+    }
+
+    @Benchmark
+    public FSMState trigger() {
+        var event = eventsSequence[eventIndex];
+        eventIndex = (eventIndex + 1) & (EVENTS_SEQUENCE_LENGTH - 1);
+        return fsm.trigger(event);
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMReplay;
+import io.github.dmytrozinkevych.finitafsm.FSMReplayResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+// The time per replayed trace of 100 000 entities with 16 events each
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private static final int ENTITIES_COUNT = 100_000;
+
+    private static final int EVENTS_PER_ENTITY = 16;
+
+    private FSMDefinition definition;
+
+    private List<List<FSMEvent>> entityEvents;
+
+    private FSMReplay replay;
+
+    private FSMReplay tableReplay;
+
+    @Setup
+    public void setUp() {
+        definition = BenchmarkMachines.definition(Size.SMALL, false);
+        var events = BenchmarkMachines.events(Size.SMALL);
+        entityEvents = new ArrayList<>();
+        for (int entity = 0; entity < ENTITIES_COUNT; entity++) {
+            var sequence = new ArrayList<FSMEvent>();
+            for (int i = 0; i < EVENTS_PER_ENTITY; i++) {
+                sequence.add(events[(entity + i * 7) % events.length]);
+            }
+            entityEvents.add(sequence);
+        }
+        replay = FSMReplay.builder(definition).build();
+        tableReplay = FSMReplay.builder(definition).actions(false).build();
+    }
+
+    @Benchmark
+    public long triggerOneByOne() {
+        long transitions = 0;
+        for (var sequence : entityEvents) {
+            var fsm = new FSMInstance(definition);
+            for (var event : sequence) {
+                if (fsm.tryTrigger(event).isApplied()) {
+                    transitions++;
+                }
+            }
+        }
+        return transitions;
+    }
+
+    @Benchmark
+    public FSMReplayResult replay() {
+        return replay.replayGrouped(entityEvents);
+    }
+
+    @Benchmark
+    public FSMReplayResult replayWithoutActions() {
+        return tableReplay.replayGrouped(entityEvents);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.FSMTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Every transition cancels the timeout of the old state and schedules the one of the new state,
+// compared with a task per timeout in a ScheduledThreadPoolExecutor which removes cancelled tasks
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimerBenchmark {
+
+    private enum BenchmarkState implements FSMState { ACTIVE, IDLE }
+
+    private enum BenchmarkEvent implements FSMEvent { TOUCH, TIMEOUT }
+
+    private static final Duration SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(BenchmarkState.ACTIVE)
+            .transition(BenchmarkState.ACTIVE, BenchmarkEvent.TOUCH, BenchmarkState.ACTIVE)
+            .transition(BenchmarkState.ACTIVE, BenchmarkEvent.TIMEOUT, BenchmarkState.IDLE)
+            .timeout(BenchmarkState.ACTIVE, SESSION_TIMEOUT, BenchmarkEvent.TIMEOUT)
+            .build();
+
+    private FSMInstance untimedFsm;
+
+    private FSMTimer timer;
+
+    private FSMInstance timedFsm;
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private FSMInstance scheduledFsm;
+
+    private ScheduledFuture<?> scheduledTimeout;
+
+    @Setup
+    public void setUp() {
+        untimedFsm = new FSMInstance(DEFINITION);
+        timer = FSMTimer.builder().build();
+        timer.start();
+        timedFsm = new FSMInstance(DEFINITION);
+        timer.register(timedFsm);
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduledFsm = new FSMInstance(DEFINITION);
+    }
+
+    @TearDown
+    public void tearDown() {
+        timer.close();
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public FSMState untimed() {
+        return untimedFsm.trigger(BenchmarkEvent.TOUCH);
+    }
+
+    @Benchmark
+    public FSMState wheelTimer() {
+        return timedFsm.trigger(BenchmarkEvent.TOUCH);
+    }
+
+    @Benchmark
+    public FSMState scheduledExecutor() {
+        var newState = scheduledFsm.trigger(BenchmarkEvent.TOUCH);
+        if (scheduledTimeout != null) {
+            scheduledTimeout.cancel(false);
+        }
+        scheduledTimeout = scheduler.schedule(() -> { }, SESSION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        return newState;
+    }
+}
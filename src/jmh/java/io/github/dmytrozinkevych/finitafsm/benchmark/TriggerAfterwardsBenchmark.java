@@ -0,0 +1,52 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMAction;
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.LargeState;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TriggerAfterwardsBenchmark {
+
+    enum ChainEvent implements FSMEvent {
+        START, NEXT
+    }
+
+    @Param({"1", "10", "100"})
+    private int chainLength;
+
+    private FSMInstance fsm;
+
+    // State 0 starts the chain, each state up to chainLength schedules NEXT, the last one returns to state 0
+    @Setup
+    public void setUp() {
+        var states = new LargeState[chainLength + 1];
+        for (int i = 0; i <= chainLength; i++) {
+            states[i] = new LargeState(i);
+        }
+        var builder = FSMDefinition.builder()
+                .initialState(states[0])
+                .transition(states[0], ChainEvent.START, states[1], FSMAction.triggering(ChainEvent.NEXT));
+        for (int i = 1; i < chainLength; i++) {
+            builder.transition(states[i], ChainEvent.NEXT, states[i + 1], FSMAction.triggering(ChainEvent.NEXT));
+        }
+        builder.transition(states[chainLength], ChainEvent.NEXT, states[0]);
+        fsm = new FSMInstance(builder.build());
+    }
+
+    @Benchmark
+    public FSMState triggerChain() {
+        return fsm.trigger(ChainEvent.START);
+    }
+}
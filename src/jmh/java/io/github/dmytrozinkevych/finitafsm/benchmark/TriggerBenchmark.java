@@ -0,0 +1,69 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.FSMStateActions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.BenchmarkFSM;
+import static io.github.dmytrozinkevych.finitafsm.benchmark.BenchmarkMachines.Size;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TriggerBenchmark {
+
+    private static final int EVENTS_SEQUENCE_LENGTH = 1 << 12;
+
+    @Param({"SMALL", "LARGE"})
+    private Size size;
+
+    @Param({"false", "true"})
+    private boolean withStateActions;
+
+    private BenchmarkFSM abstractFsm;
+
+    private FSMInstance sharedDefinitionInstance;
+
+    private FSMEvent[] eventsSequence;
+
+    private int eventIndex;
+
+    @Setup
+    public void setUp() {
+        var stateActions = withStateActions ? BenchmarkMachines.stateActions(size) : Set.<FSMStateActions>of();
+        abstractFsm = new BenchmarkFSM(size, BenchmarkMachines.transitions(size), stateActions);
+        sharedDefinitionInstance = new FSMInstance(BenchmarkMachines.definition(size, withStateActions));
+
+        var events = BenchmarkMachines.events(size);
+        var random = new Random(42);
+        eventsSequence = new FSMEvent[EVENTS_SEQUENCE_LENGTH];
+        for (int i = 0; i < EVENTS_SEQUENCE_LENGTH; i++) {
+            eventsSequence[i] = events[random.nextInt(events.length)];
+        }
+    }
+
+    private FSMEvent nextEvent() {
+        var event = eventsSequence[eventIndex];
+        eventIndex = (eventIndex + 1) & (EVENTS_SEQUENCE_LENGTH - 1);
+        return event;
+    }
+
+    @Benchmark
+    public FSMState triggerAbstractFsm() {
+        return abstractFsm.trigger(nextEvent());
+    }
+
+    @Benchmark
+    public FSMState triggerSharedDefinitionInstance() {
+        return sharedDefinitionInstance.trigger(nextEvent());
+    }
+}
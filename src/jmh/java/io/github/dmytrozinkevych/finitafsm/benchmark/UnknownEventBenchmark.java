@@ -0,0 +1,52 @@
+package io.github.dmytrozinkevych.finitafsm.benchmark;
+
+import io.github.dmytrozinkevych.finitafsm.FSMDefinition;
+import io.github.dmytrozinkevych.finitafsm.FSMEvent;
+import io.github.dmytrozinkevych.finitafsm.FSMInstance;
+import io.github.dmytrozinkevych.finitafsm.FSMState;
+import io.github.dmytrozinkevych.finitafsm.FSMTriggerResult;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UnknownEventBenchmark {
+
+    private enum BenchmarkState implements FSMState { IDLE, BUSY }
+
+    private enum BenchmarkEvent implements FSMEvent { START, UNKNOWN }
+
+    @Param({"false", "true"})
+    private boolean stacklessExceptions;
+
+    private FSMInstance fsm;
+
+    @Setup
+    public void setUp() {
+        fsm = new FSMInstance(FSMDefinition.builder()
+                .initialState(BenchmarkState.IDLE)
+                .stacklessExceptions(stacklessExceptions)
+                .transition(BenchmarkState.IDLE, BenchmarkEvent.START, BenchmarkState.BUSY)
+                .build());
+    }
+
+    @Benchmark
+    public Object triggerAndCatch() {
+        try {
+            return fsm.trigger(BenchmarkEvent.UNKNOWN);
+        } catch (NoSuchTransitionException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public FSMTriggerResult tryTrigger() {
+        return fsm.tryTrigger(BenchmarkEvent.UNKNOWN);
+    }
+}
@@ -1,197 +1,165 @@
 package io.github.dmytrozinkevych.finitafsm;
 
-import io.github.dmytrozinkevych.finitafsm.exceptions.DuplicateFSMEventException;
 import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
-import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
-import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
-import io.github.dmytrozinkevych.finitafsm.utils.Pair;
 import io.github.dmytrozinkevych.finitafsm.utils.TriConsumer;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
 
-public abstract class AbstractFSM {
+public abstract class AbstractFSM extends FSMInstance {
 
-    private static final String STATE_DIAGRAM_TEMPLATE =
-            """
-            @startuml
-            !pragma layout smetana
-            hide empty description
-                            
-            [*] --> %s
-            
-            %s
-                            
-            %s --> [*]
-                            
-            @enduml
-            """;
+    private record TriConsumerAction(TriConsumer<FSMState, FSMEvent, FSMState> action) implements FSMAction {
 
-    //TODO: ensure proper work in concurrent environment
-    private Map<FSMState, Map<FSMEvent, Pair<FSMState, TriConsumer<FSMState, FSMEvent, FSMState>>>> statesWithTransitions;
-
-    private Map<FSMState, Pair<TriConsumer<FSMState, FSMEvent, FSMState>, TriConsumer<FSMState, FSMEvent, FSMState>>> statesEnterExitActions;
+        static TriConsumerAction of(TriConsumer<FSMState, FSMEvent, FSMState> action) {
+            return action == null ? null : new TriConsumerAction(action);
+        }
 
-    private FSMState currentState;
+        @Override
+        public void accept(FSMInstance fsm, FSMState oldState, FSMEvent event, FSMState newState) {
+            action.accept(oldState, event, newState);
+        }
+    }
 
-    private FSMEvent nextEvent;
+    // Changes of the setters which aren't built yet, so that a constructor calling several of them builds
+    // the definition of the instance once, when it's first used
+    private FSMDefinition.Builder pendingChanges;
 
     protected AbstractFSM(FSMState initialState) {
-        currentState = initialState;
+        super(initialState);
+    }
+
+    // Lets all instances of the class share one definition, e.g. the one generated for a @CompiledFSM class,
+    // instead of building one per instance with the setters
+    @Override
+    protected void setDefinition(FSMDefinition definition) {
+        pendingChanges = null;
+        super.setDefinition(Objects.requireNonNull(definition));
+    }
+
+    @Override
+    public FSMDefinition getDefinition() {
+        var changes = pendingChanges;
+        if (changes != null) {
+            pendingChanges = null;
+            super.setDefinition(changes.build());
+        }
+        return super.getDefinition();
+    }
+
+    @Override
+    void requireHasTransitions() {
+        getDefinition();
+        super.requireHasTransitions();
     }
 
-    public FSMState getCurrentState() {
-        return currentState;
+    // A fresh instance has nothing to copy, so its changes start from an empty builder with the state it starts in,
+    // which lets the definition match one built for a checkpointer or a state store
+    private void rebuild(UnaryOperator<FSMDefinition.Builder> change) {
+        var changes = pendingChanges;
+        if (changes == null) {
+            var definition = super.getDefinition();
+            changes = definition == FSMDefinition.EMPTY
+                    ? FSMDefinition.builder().initialState(getCurrentState())
+                    : FSMDefinition.Builder.from(definition);
+        }
+        pendingChanges = change.apply(changes);
     }
 
     protected void setTransitions(Set<FSMTransition> transitions) {
-        statesWithTransitions = new HashMap<>();
-        for (var transition : transitions) {
-            var oldState = transition.oldState();
-            Map<FSMEvent, Pair<FSMState, TriConsumer<FSMState, FSMEvent, FSMState>>> eventMap;
-            if (statesWithTransitions.containsKey(oldState)) {
-                eventMap = statesWithTransitions.get(oldState);
-            } else {
-                eventMap = new HashMap<>();
-                statesWithTransitions.put(oldState, eventMap);
-            }
-            if (eventMap.containsKey(transition.event())) {
-                throw new DuplicateFSMEventException();
+        rebuild(builder -> {
+            builder.clearTransitions();
+            for (var transition : transitions) {
+                builder.transition(transition.oldState(), transition.event(), transition.newState(), TriConsumerAction.of(transition.action()));
             }
-            eventMap.put(transition.event(), new Pair<>(transition.newState(), transition.action()));
-        }
+            return builder;
+        });
     }
 
     protected void setStateActions(Set<FSMStateActions> stateActions) {
         if (stateActions == null)
             return;
-        statesEnterExitActions = stateActions.stream()
-                .filter(fsmStateActions -> fsmStateActions.enterStateAction() != null || fsmStateActions.exitStateAction() != null)
-                .collect(
-                        Collectors.toMap(
-                                FSMStateActions::state,
-                                fsmStateActions -> new Pair<>(fsmStateActions.enterStateAction(), fsmStateActions.exitStateAction())
-                        )
+        rebuild(builder -> {
+            builder.clearStateActions();
+            for (var fsmStateActions : stateActions) {
+                builder.stateActions(
+                        fsmStateActions.state(),
+                        TriConsumerAction.of(fsmStateActions.enterStateAction()),
+                        TriConsumerAction.of(fsmStateActions.exitStateAction())
                 );
+            }
+            return builder;
+        });
     }
 
-    protected void beforeEachTransition(FSMState oldState, FSMEvent event, FSMState newState) { }
-
-    protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) { }
-
-    protected void onTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) {
-        throw new FSMException(cause);
+    protected void setParentStates(Map<FSMState, FSMState> parentStates) {
+        rebuild(builder -> {
+            builder.clearParentStates();
+            parentStates.forEach(builder::parentState);
+            return builder;
+        });
     }
 
-    private Optional<Pair<TriConsumer<FSMState, FSMEvent, FSMState>, TriConsumer<FSMState, FSMEvent, FSMState>>> getActionsForState(FSMState state) {
-        return Optional.ofNullable(statesEnterExitActions)
-                .map(statesActionsMap -> statesActionsMap.get(state));
+    protected void setTimeouts(Set<FSMStateTimeout> timeouts) {
+        rebuild(builder -> {
+            builder.clearTimeouts();
+            for (var timeout : timeouts) {
+                builder.timeout(timeout.state(), timeout.delay(), timeout.event());
+            }
+            return builder;
+        });
     }
 
-    protected Optional<TriConsumer<FSMState, FSMEvent, FSMState>> getEnterStateAction(FSMState state) {
-        return getActionsForState(state)
-                .map(Pair::left);
+    protected void setMaxChainLength(int maxChainLength) {
+        rebuild(builder -> builder.maxChainLength(maxChainLength));
     }
 
-    protected Optional<TriConsumer<FSMState, FSMEvent, FSMState>> getExitStateAction(FSMState state) {
-        return getActionsForState(state)
-                .map(Pair::right);
+    protected void setStacklessExceptions(boolean stacklessExceptions) {
+        rebuild(builder -> builder.stacklessExceptions(stacklessExceptions));
     }
 
-    private void requireHasTransitions() {
-        if (statesWithTransitions == null || statesWithTransitions.isEmpty()) {
-            throw new FSMHasNoTransitionsSetException();
+    // The actions of the setters belong to the instance, so compiling them would define a dispatcher class
+    // per instance. Instances share one compiled definition through setDefinition instead
+    protected void setCompiled(boolean compiled) {
+        if (compiled) {
+            throw new FSMException("The definition of the setters belongs to the instance and can't be compiled, "
+                    + "set a compiled FSMDefinition shared by the instances with setDefinition instead");
         }
+        rebuild(builder -> builder.compiled(false));
     }
 
-    public FSMState trigger(FSMEvent event) {
-        requireHasTransitions();
-        var actionNewStatePair = Optional.of(statesWithTransitions.get(currentState))
-                .map(stateTransitions -> stateTransitions.get(event))
-                .orElseThrow(() -> new NoSuchTransitionException(currentState, event));
-
-        var oldState = currentState;
-        var newState = actionNewStatePair.left();
-        var transitionAction = actionNewStatePair.right();
-
-        try {
-            beforeEachTransition(oldState, event, newState);
-        } catch (Exception ex) {
-            onTransitionException(oldState, event, newState, ex, FSMTransitionStage.BEFORE_TRANSITION);
-            return oldState;
-        }
-
-        var exitStateAction = getExitStateAction(oldState);
-        if (exitStateAction.isPresent()) {
-            try {
-                exitStateAction.get().accept(oldState, event, newState);
-            } catch (Exception ex) {
-                onTransitionException(oldState, event, newState, ex, FSMTransitionStage.EXIT_OLD_STATE);
-                return oldState;
-            }
-        }
-
-        try {
-            if (transitionAction != null) {
-                transitionAction.accept(oldState, event, newState);
-            }
-            currentState = newState;
-        } catch (Exception ex) {
-            onTransitionException(oldState, event, newState, ex, FSMTransitionStage.TRANSITION_ACTION);
-            return oldState;
-        }
-
-        var enterStateAction = getEnterStateAction(newState);
-        if (enterStateAction.isPresent()) {
-            try {
-                enterStateAction.get().accept(oldState, event, newState);
-            } catch (Exception ex) {
-                currentState = oldState;
-                onTransitionException(oldState, event, newState, ex, FSMTransitionStage.ENTER_NEW_STATE);
-                return oldState;
-            }
-        }
-
-        try {
-            afterEachTransition(oldState, event, newState);
-        } catch (Exception ex) {
-            currentState = oldState;
-            onTransitionException(oldState, event, newState, ex, FSMTransitionStage.AFTER_TRANSITION);
-            return oldState;
-        }
+    // Drops the states which can't be reached from the current one and merges the equivalent ones,
+    // so it's best called right after the definition is set up, while the FSM is in its initial state
+    protected FSMAnalysis minimizeDefinition() {
+        var analysis = FSMAnalysis.analyze(getDefinition(), getCurrentState());
+        setDefinition(analysis.getMinimizedDefinition());
+        return analysis;
+    }
 
-        if (nextEvent != null) {
-            var newEvent = nextEvent;
-            nextEvent = null;
-            return trigger(newEvent);
+    private TriConsumer<FSMState, FSMEvent, FSMState> toTriConsumer(FSMAction action) {
+        if (action instanceof TriConsumerAction triConsumerAction) {
+            return triConsumerAction.action();
         }
+        return (oldState, event, newState) -> action.accept(this, oldState, event, newState);
+    }
 
-        return newState;
+    protected Optional<TriConsumer<FSMState, FSMEvent, FSMState>> getEnterStateAction(FSMState state) {
+        return getDefinition().getEnterStateAction(state)
+                .map(this::toTriConsumer);
     }
 
-    protected void triggerAfterwards(FSMEvent event) {
-        nextEvent = event;
+    protected Optional<TriConsumer<FSMState, FSMEvent, FSMState>> getExitStateAction(FSMState state) {
+        return getDefinition().getExitStateAction(state)
+                .map(this::toTriConsumer);
     }
 
     public String generatePlantUmlDiagramCode(FSMState startStane, FSMState endState) {
-        requireHasTransitions();
-        var transitions = statesWithTransitions.entrySet()
-                .stream()
-                .flatMap(stateWithTransitionsEntry -> stateWithTransitionsEntry.getValue()
-                        .entrySet()
-                        .stream()
-                        .map(eventNewStateEntry -> new FSMTransition(
-                                stateWithTransitionsEntry.getKey(),
-                                eventNewStateEntry.getKey(),
-                                eventNewStateEntry.getValue().left(),
-                                null
-                        ))
-                )
-                .map(transition -> transition.oldState() + " --> " + transition.newState() + " : " + transition.event())
-                .collect(Collectors.joining("\n"));
-        return STATE_DIAGRAM_TEMPLATE.formatted(startStane, transitions, endState);
+        return getDefinition().generatePlantUmlDiagramCode(startStane, endState);
+    }
+
+    public String generateDotDiagramCode(FSMState startState, FSMState endState) {
+        return getDefinition().generateDotDiagramCode(startState, endState);
     }
 }
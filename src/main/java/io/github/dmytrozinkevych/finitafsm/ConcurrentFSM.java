@@ -0,0 +1,254 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe runtime of a shared {@link FSMDefinition}.
+ * <p>
+ * Optimistic transitions run all stages without touching the current state and then commit it with a CAS,
+ * starting over if another thread has committed first. Their hooks and actions may therefore run more than once
+ * and must be free of side effects. Locked transitions hold a per-instance lock, so their hooks and actions run
+ * exactly once and no other transition can commit while they are in progress.
+ * {@link #getCurrentState()} is always a single volatile read.
+ */
+public class ConcurrentFSM extends FSMInstance {
+
+    public enum TransitionLocking {
+        NONE, TRANSITIONS_WITH_ACTIONS, ALL
+    }
+
+    // Published instead of the current state while a locked transition is in progress
+    private record LockedTransition(FSMState oldState) { }
+
+    private final AtomicReference<Object> state;
+
+    private final ReentrantLock transitionLock = new ReentrantLock();
+
+    private final TransitionLocking transitionLocking;
+
+    // Guarded by the transition lock, just like the pending events
+    private FSMState lockedTransitionResult;
+
+    public ConcurrentFSM(FSMDefinition definition) {
+        this(definition, definition.getInitialState(), TransitionLocking.TRANSITIONS_WITH_ACTIONS);
+    }
+
+    public ConcurrentFSM(FSMDefinition definition, TransitionLocking transitionLocking) {
+        this(definition, definition.getInitialState(), transitionLocking);
+    }
+
+    public ConcurrentFSM(FSMDefinition definition, FSMState initialState, TransitionLocking transitionLocking) {
+        super(definition, initialState);
+        this.state = new AtomicReference<>(initialState);
+        this.transitionLocking = transitionLocking;
+    }
+
+    @Override
+    public FSMState getCurrentState() {
+        var current = state.get();
+        return current instanceof LockedTransition lockedTransition ? lockedTransition.oldState() : (FSMState) current;
+    }
+
+    private boolean requiresLock(FSMTransitionPlan plan) {
+        return switch (transitionLocking) {
+            case NONE -> false;
+            case ALL -> true;
+            case TRANSITIONS_WITH_ACTIONS -> plan.exitStateAction() != null
+                    || plan.transitionAction() != null
+                    || plan.enterStateAction() != null;
+        };
+    }
+
+    @Override
+    public FSMState trigger(FSMEvent event) {
+        requireHasTransitions();
+        while (true) {
+            var current = state.get();
+            if (current instanceof LockedTransition) {
+                awaitLockedTransition();
+                continue;
+            }
+            var oldState = (FSMState) current;
+            var transitionEvent = beginTransitionEvent();
+            var plan = getDefinition().findTransition(oldState, event);
+            if (plan == null) {
+                recordNoSuchTransition(oldState, event);
+                throw getDefinition().noSuchTransition(oldState, event);
+            }
+            if (requiresLock(plan)) {
+                return triggerLocked(event);
+            }
+            if (runStages(plan, oldState, event) != FSMTriggerResult.APPLIED) {
+                return oldState;
+            }
+            if (state.compareAndSet(oldState, plan.newState())) {
+                onStateCommitted(oldState, event, plan.newState());
+                transitionCommitted(oldState, event, plan.newState(), transitionEvent);
+                return plan.newState();
+            }
+        }
+    }
+
+    @Override
+    public FSMTriggerResult tryTrigger(FSMEvent event) {
+        requireHasTransitions();
+        while (true) {
+            var current = state.get();
+            if (current instanceof LockedTransition) {
+                awaitLockedTransition();
+                continue;
+            }
+            var oldState = (FSMState) current;
+            var transitionEvent = beginTransitionEvent();
+            var plan = getDefinition().findTransition(oldState, event);
+            if (plan == null) {
+                recordNoSuchTransition(oldState, event);
+                return FSMTriggerResult.NO_TRANSITION;
+            }
+            if (requiresLock(plan)) {
+                return tryTriggerLocked(event);
+            }
+            var result = runStages(plan, oldState, event);
+            if (result != FSMTriggerResult.APPLIED) {
+                return result;
+            }
+            if (state.compareAndSet(oldState, plan.newState())) {
+                onStateCommitted(oldState, event, plan.newState());
+                transitionCommitted(oldState, event, plan.newState(), transitionEvent);
+                return result;
+            }
+        }
+    }
+
+    private void awaitLockedTransition() {
+        if (transitionLock.isHeldByCurrentThread()) {
+            throw new FSMException("Events can't be triggered from inside a transition, use triggerAfterwards instead");
+        }
+        transitionLock.lock();
+        transitionLock.unlock();
+    }
+
+    private FSMState triggerLocked(FSMEvent event) {
+        transitionLock.lock();
+        try {
+            fire(event, true);
+            return lockedTransitionResult;
+        } finally {
+            transitionLock.unlock();
+        }
+    }
+
+    private FSMTriggerResult tryTriggerLocked(FSMEvent event) {
+        transitionLock.lock();
+        try {
+            return fire(event, false);
+        } finally {
+            transitionLock.unlock();
+        }
+    }
+
+    // The whole batch runs as locked transitions, so the lock is acquired once per batch
+    @Override
+    public FSMBatchResult triggerAll(Iterable<? extends FSMEvent> events, FSMBatchPolicy batchPolicy) {
+        transitionLock.lock();
+        try {
+            return super.triggerAll(events, batchPolicy);
+        } finally {
+            transitionLock.unlock();
+        }
+    }
+
+    // Must be called with the transition lock held
+    @Override
+    FSMTriggerResult fire(FSMEvent event, boolean throwOnNoTransition) {
+        var maxChainLength = getDefinition().getMaxChainLength();
+        var eventToProcess = event;
+        var chainLength = 0;
+        try {
+            do {
+                var oldState = claimCurrentState();
+                lockedTransitionResult = oldState;
+                var transitionEvent = beginTransitionEvent();
+                var plan = getDefinition().findTransition(oldState, eventToProcess);
+                if (plan == null) {
+                    state.set(oldState);
+                    recordNoSuchTransition(oldState, eventToProcess);
+                    if (throwOnNoTransition || chainLength > 0) {
+                        throw getDefinition().noSuchTransition(oldState, eventToProcess);
+                    }
+                    return FSMTriggerResult.NO_TRANSITION;
+                }
+                FSMTriggerResult result = null;
+                try {
+                    result = runStages(plan, oldState, eventToProcess);
+                } finally {
+                    state.set(result == FSMTriggerResult.APPLIED ? plan.newState() : oldState);
+                }
+                if (result != FSMTriggerResult.APPLIED) {
+                    clearPendingEvents();
+                    return result;
+                }
+                lockedTransitionResult = plan.newState();
+                onStateCommitted(oldState, eventToProcess, plan.newState());
+                transitionCommitted(oldState, eventToProcess, plan.newState(), transitionEvent);
+                eventToProcess = pollPendingEvent();
+                if (eventToProcess != null && ++chainLength > maxChainLength) {
+                    throw getDefinition().chainLengthExceeded();
+                }
+            } while (eventToProcess != null);
+            return FSMTriggerResult.APPLIED;
+        } catch (RuntimeException ex) {
+            clearPendingEvents();
+            throw ex;
+        }
+    }
+
+    // Optimistic transitions don't take the lock, so the current state is replaced with a marker to stop them from committing
+    private FSMState claimCurrentState() {
+        while (true) {
+            var oldState = (FSMState) state.get();
+            if (state.compareAndSet(oldState, new LockedTransition(oldState))) {
+                return oldState;
+            }
+        }
+    }
+
+    // The state is published by the callers of runStages, with a CAS or once the locked transition is done
+    @Override
+    void commitState(FSMState state) { }
+
+    // Pending events exist only while a locked transition is in progress and belong to its thread
+    @Override
+    int getPendingEventsCount() {
+        return transitionLock.isHeldByCurrentThread() ? super.getPendingEventsCount() : 0;
+    }
+
+    @Override
+    void restore(FSMState state, List<FSMEvent> events) {
+        transitionLock.lock();
+        try {
+            super.restore(state, events);
+            this.state.set(state);
+        } finally {
+            transitionLock.unlock();
+        }
+    }
+
+    // The state is published through its own reference and committed by CAS or under the transition lock
+    @Override
+    boolean supportsSkipping() {
+        return false;
+    }
+
+    @Override
+    void enqueueAfterwards(FSMEvent event) {
+        if (!transitionLock.isHeldByCurrentThread()) {
+            throw new FSMException("Events can be triggered afterwards only from locked transitions");
+        }
+        super.enqueueAfterwards(event);
+    }
+}
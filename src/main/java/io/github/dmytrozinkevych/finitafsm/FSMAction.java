@@ -0,0 +1,15 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.util.Objects;
+
+@FunctionalInterface
+public interface FSMAction {
+
+    void accept(FSMInstance fsm, FSMState oldState, FSMEvent event, FSMState newState);
+
+    // Triggers the event once the transition is committed, as triggerAfterwards does for subclasses of the instance
+    static FSMAction triggering(FSMEvent event) {
+        Objects.requireNonNull(event);
+        return (fsm, oldState, transitionEvent, newState) -> fsm.enqueueAfterwards(event);
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+// Exit or enter actions of nested states, run in a row as a single transition stage
+record FSMActionSequence(FSMAction[] actions) implements FSMAction {
+
+    @Override
+    public void accept(FSMInstance fsm, FSMState oldState, FSMEvent event, FSMState newState) {
+        for (var action : actions) {
+            action.accept(fsm, oldState, event, newState);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static analysis of a {@link FSMDefinition}: the states reachable from the initial state, dead states,
+ * which can't be left once entered, and states which are equivalent, i.e. accept the same events with the same
+ * transition actions and move to equivalent states. The minimized definition keeps only the reachable states
+ * and a single representative of every set of equivalent ones, the state reached first from the initial state.
+ * <p>
+ * States with enter or exit actions, timeouts or parent or child states are never merged.
+ * Equivalent states are found with Hopcroft's partition refinement, which runs in O(m log n)
+ * for m transitions between n states.
+ */
+public final class FSMAnalysis {
+
+    private static final Object NO_ACTION = new Object();
+
+    private final FSMDefinition definition;
+
+    private final FSMState initialState;
+
+    private final Set<FSMState> reachableStates;
+
+    private final Set<FSMState> unreachableStates;
+
+    private final Set<FSMState> deadStates;
+
+    private final Map<FSMState, FSMState> equivalentStates;
+
+    private final FSMDefinition minimizedDefinition;
+
+    private FSMAnalysis(FSMDefinition definition, FSMState initialState) {
+        if (initialState == null) {
+            throw new FSMHasNoInitialStateSetException();
+        }
+        this.definition = definition;
+        this.initialState = initialState;
+        reachableStates = Collections.unmodifiableSet(findReachableStates());
+        var unreachable = new LinkedHashSet<>(definition.getStates());
+        unreachable.removeAll(reachableStates);
+        unreachableStates = Collections.unmodifiableSet(unreachable);
+        deadStates = Collections.unmodifiableSet(findDeadStates());
+        equivalentStates = Collections.unmodifiableMap(findEquivalentStates());
+        minimizedDefinition = buildMinimizedDefinition();
+    }
+
+    public static FSMAnalysis analyze(FSMDefinition definition) {
+        return new FSMAnalysis(definition, definition.getInitialState());
+    }
+
+    // E.g. the state an AbstractFSM was constructed with, whose definition has no initial state of its own
+    public static FSMAnalysis analyze(FSMDefinition definition, FSMState initialState) {
+        return new FSMAnalysis(definition, initialState);
+    }
+
+    public FSMState getInitialState() {
+        return initialState;
+    }
+
+    // In the order they are reached, the parents of a reachable state are reachable as well, as they are entered with it
+    public Set<FSMState> getReachableStates() {
+        return reachableStates;
+    }
+
+    public Set<FSMState> getUnreachableStates() {
+        return unreachableStates;
+    }
+
+    // Reachable states with no transition to another state
+    public Set<FSMState> getDeadStates() {
+        return deadStates;
+    }
+
+    // Maps every merged state to the representative which replaces it
+    public Map<FSMState, FSMState> getEquivalentStates() {
+        return equivalentStates;
+    }
+
+    public FSMDefinition getMinimizedDefinition() {
+        return minimizedDefinition;
+    }
+
+    public int getMinimizedStatesCount() {
+        return reachableStates.size() - equivalentStates.size();
+    }
+
+    private Set<FSMState> findReachableStates() {
+        var transitions = definition.getResolvedTransitions();
+        var reachable = new LinkedHashSet<FSMState>();
+        var queue = new ArrayDeque<FSMState>();
+        reachable.add(initialState);
+        queue.add(initialState);
+        while (!queue.isEmpty()) {
+            var state = queue.poll();
+            definition.getParentState(state).ifPresent(parentState -> {
+                if (reachable.add(parentState)) {
+                    queue.add(parentState);
+                }
+            });
+            for (var plan : transitions.getOrDefault(state, Map.of()).values()) {
+                if (reachable.add(plan.newState())) {
+                    queue.add(plan.newState());
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private Set<FSMState> findDeadStates() {
+        var transitions = definition.getResolvedTransitions();
+        var dead = new LinkedHashSet<FSMState>();
+        for (var state : reachableStates) {
+            var plans = transitions.getOrDefault(state, Map.of()).values();
+            if (plans.stream().allMatch(plan -> plan.newState().equals(state))) {
+                dead.add(state);
+            }
+        }
+        return dead;
+    }
+
+    private Map<FSMState, FSMState> findEquivalentStates() {
+        var states = reachableStates.toArray(FSMState[]::new);
+        var stateIndexes = new HashMap<FSMState, Integer>();
+        for (int i = 0; i < states.length; i++) {
+            stateIndexes.put(states[i], i);
+        }
+        var partition = new Partition(states.length, initialBlocks(states));
+        partition.refine(inverseTransitions(states, stateIndexes));
+
+        var representatives = partition.representatives();
+        var equivalent = new LinkedHashMap<FSMState, FSMState>();
+        for (int i = 0; i < states.length; i++) {
+            var representative = states[representatives[i]];
+            if (representative != states[i]) {
+                equivalent.put(states[i], representative);
+            }
+        }
+        return equivalent;
+    }
+
+    // States are first told apart by the events they accept and the actions of those transitions,
+    // the states which must not be merged get blocks of their own
+    private int[] initialBlocks(FSMState[] states) {
+        var parentStates = new LinkedHashSet<FSMState>();
+        for (var state : states) {
+            definition.getParentState(state).ifPresent(parentStates::add);
+        }
+        var declaredTransitions = definition.getDeclaredTransitions();
+        var signatureBlocks = new HashMap<Object, Integer>();
+        var blocks = new int[states.length];
+        for (int i = 0; i < states.length; i++) {
+            var state = states[i];
+            Object signature;
+            if (hasOwnBlock(state, parentStates)) {
+                signature = state;
+            } else {
+                var eventActions = new HashMap<FSMEvent, Object>();
+                declaredTransitions.getOrDefault(state, Map.of()).forEach((event, plan) ->
+                        eventActions.put(event, plan.transitionAction() == null ? NO_ACTION : plan.transitionAction())
+                );
+                signature = eventActions;
+            }
+            blocks[i] = signatureBlocks.computeIfAbsent(signature, key -> signatureBlocks.size());
+        }
+        return blocks;
+    }
+
+    private boolean hasOwnBlock(FSMState state, Set<FSMState> parentStates) {
+        return definition.getEnterStateAction(state).isPresent()
+                || definition.getExitStateAction(state).isPresent()
+                || definition.getTimeout(state).isPresent()
+                || definition.getParentState(state).isPresent()
+                || parentStates.contains(state);
+    }
+
+    // Incoming transitions of every state as (source, event index) pairs, with arrays indexed like a CSR matrix
+    private InverseTransitions inverseTransitions(FSMState[] states, Map<FSMState, Integer> stateIndexes) {
+        var declaredTransitions = definition.getDeclaredTransitions();
+        var eventIndexes = new HashMap<FSMEvent, Integer>();
+        var sources = new ArrayList<int[]>();
+        var incomingCounts = new int[states.length + 1];
+        for (int source = 0; source < states.length; source++) {
+            for (var transition : declaredTransitions.getOrDefault(states[source], Map.of()).entrySet()) {
+                var event = eventIndexes.computeIfAbsent(transition.getKey(), key -> eventIndexes.size());
+                var target = stateIndexes.get(transition.getValue().newState());
+                sources.add(new int[] { source, event, target });
+                incomingCounts[target + 1]++;
+            }
+        }
+        for (int i = 0; i < states.length; i++) {
+            incomingCounts[i + 1] += incomingCounts[i];
+        }
+        var starts = incomingCounts.clone();
+        var sourceStates = new int[sources.size()];
+        var events = new int[sources.size()];
+        for (var transition : sources) {
+            var position = incomingCounts[transition[2]]++;
+            sourceStates[position] = transition[0];
+            events[position] = transition[1];
+        }
+        return new InverseTransitions(starts, sourceStates, events, eventIndexes.size());
+    }
+
+    private record InverseTransitions(int[] starts, int[] sourceStates, int[] events, int eventsCount) { }
+
+    // Blocks are ranges of the elements array, the marked states of a block are moved to the start of its range
+    private static final class Partition {
+
+        private final int[] elements;
+
+        private final int[] locations;
+
+        private final int[] blockOf;
+
+        private final int[] firsts;
+
+        private final int[] ends;
+
+        private final int[] marks;
+
+        private int blocksCount;
+
+        Partition(int statesCount, int[] initialBlocks) {
+            elements = new int[statesCount];
+            locations = new int[statesCount];
+            blockOf = new int[statesCount];
+            firsts = new int[statesCount];
+            ends = new int[statesCount];
+            marks = new int[statesCount];
+            for (var block : initialBlocks) {
+                blocksCount = Math.max(blocksCount, block + 1);
+                ends[block]++;
+            }
+            for (int block = 1; block < blocksCount; block++) {
+                ends[block] += ends[block - 1];
+            }
+            for (int block = 0; block < blocksCount; block++) {
+                firsts[block] = block == 0 ? 0 : ends[block - 1];
+                marks[block] = firsts[block];
+            }
+            for (int state = 0; state < statesCount; state++) {
+                var block = initialBlocks[state];
+                var location = marks[block]++;
+                elements[location] = state;
+                locations[state] = location;
+                blockOf[state] = block;
+            }
+            System.arraycopy(firsts, 0, marks, 0, blocksCount);
+        }
+
+        // With a partial transition function every initial block has to be a splitter,
+        // afterwards only the smaller part of a split block is
+        void refine(InverseTransitions inverse) {
+            var splitters = new ArrayDeque<Integer>();
+            for (int block = 0; block < blocksCount; block++) {
+                splitters.add(block);
+            }
+            var eventCounts = new int[inverse.eventsCount()];
+            var touchedEvents = new int[inverse.eventsCount()];
+            var eventSources = new int[inverse.sourceStates().length];
+            var touchedBlocks = new ArrayList<Integer>();
+            while (!splitters.isEmpty()) {
+                int splitter = splitters.poll();
+
+                // Sources of the transitions into the splitter, grouped by event, only the events
+                // of these transitions are visited, so every splitter costs as much as its incoming transitions
+                var first = firsts[splitter];
+                var end = ends[splitter];
+                var touchedEventsCount = 0;
+                for (int i = first; i < end; i++) {
+                    var state = elements[i];
+                    for (int t = inverse.starts()[state]; t < inverse.starts()[state + 1]; t++) {
+                        var event = inverse.events()[t];
+                        if (eventCounts[event]++ == 0) {
+                            touchedEvents[touchedEventsCount++] = event;
+                        }
+                    }
+                }
+                var groupStart = 0;
+                for (int i = 0; i < touchedEventsCount; i++) {
+                    var event = touchedEvents[i];
+                    var count = eventCounts[event];
+                    eventCounts[event] = groupStart;
+                    groupStart += count;
+                }
+                for (int i = first; i < end; i++) {
+                    var state = elements[i];
+                    for (int t = inverse.starts()[state]; t < inverse.starts()[state + 1]; t++) {
+                        eventSources[eventCounts[inverse.events()[t]]++] = inverse.sourceStates()[t];
+                    }
+                }
+
+                // The counts now hold the ends of the groups
+                groupStart = 0;
+                for (int i = 0; i < touchedEventsCount; i++) {
+                    var event = touchedEvents[i];
+                    var groupEnd = eventCounts[event];
+                    eventCounts[event] = 0;
+                    touchedBlocks.clear();
+                    for (int j = groupStart; j < groupEnd; j++) {
+                        mark(eventSources[j], touchedBlocks);
+                    }
+                    for (var block : touchedBlocks) {
+                        split(block, splitters);
+                    }
+                    groupStart = groupEnd;
+                }
+            }
+        }
+
+        private void mark(int state, List<Integer> touchedBlocks) {
+            var block = blockOf[state];
+            var location = locations[state];
+            var mark = marks[block];
+            if (location < mark) {
+                return;
+            }
+            if (mark == firsts[block]) {
+                touchedBlocks.add(block);
+            }
+            var other = elements[mark];
+            elements[mark] = state;
+            locations[state] = mark;
+            elements[location] = other;
+            locations[other] = location;
+            marks[block] = mark + 1;
+        }
+
+        // The smaller part becomes the new block, so a state moves to a new block at most log n times
+        private void split(int block, ArrayDeque<Integer> splitters) {
+            var first = firsts[block];
+            var mark = marks[block];
+            var end = ends[block];
+            marks[block] = first;
+            if (mark == end) {
+                return;
+            }
+            var newBlock = blocksCount++;
+            if (mark - first <= end - mark) {
+                firsts[newBlock] = first;
+                ends[newBlock] = mark;
+                firsts[block] = mark;
+            } else {
+                firsts[newBlock] = mark;
+                ends[newBlock] = end;
+                ends[block] = mark;
+            }
+            marks[block] = firsts[block];
+            marks[newBlock] = firsts[newBlock];
+            for (int i = firsts[newBlock]; i < ends[newBlock]; i++) {
+                blockOf[elements[i]] = newBlock;
+            }
+            splitters.add(newBlock);
+        }
+
+        // States are indexed in the order they are reached, so the first reached state of a block represents it
+        int[] representatives() {
+            var blockRepresentatives = new int[blocksCount];
+            Arrays.fill(blockRepresentatives, Integer.MAX_VALUE);
+            for (int state = 0; state < blockOf.length; state++) {
+                var block = blockOf[state];
+                blockRepresentatives[block] = Math.min(blockRepresentatives[block], state);
+            }
+            var representatives = new int[blockOf.length];
+            for (int state = 0; state < blockOf.length; state++) {
+                representatives[state] = blockRepresentatives[blockOf[state]];
+            }
+            return representatives;
+        }
+    }
+
+    private FSMDefinition buildMinimizedDefinition() {
+        var builder = FSMDefinition.builder()
+                .settingsFrom(definition)
+                .initialState(initialState);
+        var declaredTransitions = definition.getDeclaredTransitions();
+        for (var state : reachableStates) {
+            if (equivalentStates.containsKey(state)) {
+                continue;
+            }
+            declaredTransitions.getOrDefault(state, Map.of()).forEach((event, plan) ->
+                    builder.transition(state, event, representativeOf(plan.newState()), plan.transitionAction())
+            );
+            var enterStateAction = definition.getEnterStateAction(state);
+            var exitStateAction = definition.getExitStateAction(state);
+            if (enterStateAction.isPresent() || exitStateAction.isPresent()) {
+                builder.stateActions(state, enterStateAction.orElse(null), exitStateAction.orElse(null));
+            }
+            definition.getParentState(state).ifPresent(parentState -> builder.parentState(state, parentState));
+            definition.getTimeout(state).ifPresent(timeout -> builder.timeout(state, timeout.delay(), timeout.event()));
+        }
+        return builder.build();
+    }
+
+    private FSMState representativeOf(FSMState state) {
+        return equivalentStates.getOrDefault(state, state);
+    }
+}
@@ -0,0 +1,5 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+public enum FSMBatchPolicy {
+    STOP_ON_FAILURE, SKIP_FAILED
+}
@@ -0,0 +1,14 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+public record FSMBatchResult(
+        FSMState finalState,
+        int appliedCount,
+        int failedCount,
+        int firstFailureIndex
+) {
+    public static final int NO_FAILURE = -1;
+
+    public boolean hasFailures() {
+        return firstFailureIndex != NO_FAILURE;
+    }
+}
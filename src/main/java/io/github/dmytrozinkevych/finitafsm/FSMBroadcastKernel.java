@@ -0,0 +1,46 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+// Applies one event to a range of byte state ordinals: every state is replaced with its entry of the new states table
+// and the bit of every entity whose state has a transition is set, the words of the bits are indexed like in a BitSet
+interface FSMBroadcastKernel {
+
+    FSMBroadcastKernel SCALAR = new FSMBroadcastKernel() {
+
+        @Override
+        public int getMaxStatesCount() {
+            return 1 << Byte.SIZE;
+        }
+
+        @Override
+        public void apply(byte[] states, int from, int to, byte[] newStates, byte[] transitions, long[] words) {
+            for (int i = from; i < to; i++) {
+                var state = Byte.toUnsignedInt(states[i]);
+                states[i] = newStates[state];
+                words[i >>> 6] |= (long) transitions[state] << i;
+            }
+        }
+    };
+
+    // The Vector API is an incubator module, so it's used only when the application adds it with --add-modules
+    FSMBroadcastKernel VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ? loadVectorKernel() : null;
+
+    private static FSMBroadcastKernel loadVectorKernel() {
+        try {
+            return (FSMBroadcastKernel) Class.forName("io.github.dmytrozinkevych.finitafsm.FSMVectorBroadcastKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    static FSMBroadcastKernel forStates(int stateCount) {
+        return VECTOR != null && stateCount <= VECTOR.getMaxStatesCount() ? VECTOR : SCALAR;
+    }
+
+    int getMaxStatesCount();
+
+    // Both tables have getMaxStatesCount entries, a transition is marked with 1,
+    // the range starts at a multiple of 64 unless it's the first one
+    void apply(byte[] states, int from, int to, byte[] newStates, byte[] transitions, long[] words);
+}
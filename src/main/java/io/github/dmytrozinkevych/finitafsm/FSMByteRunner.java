@@ -0,0 +1,215 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.utils.Pair;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Drives an FSM instance of one enum-based {@link FSMDefinition} straight from the bytes of a {@link ByteBuffer},
+ * heap, direct or memory-mapped, e.g. to parse a protocol. Every byte is mapped to an event by a table of 256 byte
+ * classes, which is compiled together with the transition table into a single table indexed by the state ordinal
+ * and the byte, so following a transition is a single array read.
+ * <p>
+ * Only the transitions marked as emitting are triggered on the instance, with their actions, hooks and follow-up
+ * events. All the others just move the state, so their actions and hooks are skipped, and no timeouts are scheduled.
+ * While an emitting transition runs, the position of the buffer is at its byte.
+ * <p>
+ * A runner is immutable and can be shared, the state stays in the instance, so a buffer which ends in the middle
+ * of a message is continued by the next one. Stored instances write the state through to their store whenever the
+ * runner stops, concurrent and journaled instances can't be driven, as they have to run every transition themselves.
+ */
+public final class FSMByteRunner {
+
+    private static final int BYTE_VALUES_COUNT = 1 << Byte.SIZE;
+
+    // Entries of the table which aren't rows of new states
+    private static final int NO_TRANSITION = -1;
+
+    private static final int EMITTING_TRANSITION = -2;
+
+    private final FSMDefinition definition;
+
+    private final FSMState[] states;
+
+    private final FSMEvent[] byteEvents;
+
+    // Rows of 256 entries per state, the entry of a byte is the offset of the row of the new state,
+    // so that the next byte is looked up without any arithmetic but an OR
+    private final int[] table;
+
+    private FSMByteRunner(Builder builder) {
+        definition = builder.definition;
+        states = definition.getStateConstants();
+        byteEvents = builder.byteEvents.clone();
+        table = compileTable(builder);
+    }
+
+    public static Builder builder(FSMDefinition definition) {
+        return new Builder(definition);
+    }
+
+    private int[] compileTable(Builder builder) {
+        var emittingTransitions = new HashSet<Pair<FSMState, FSMEvent>>();
+        for (var transition : builder.emittingTransitions) {
+            if (definition.findTransition(transition.left(), transition.right()) == null) {
+                throw definition.noSuchTransition(transition.left(), transition.right());
+            }
+            emittingTransitions.add(transition);
+        }
+        var table = new int[states.length * BYTE_VALUES_COUNT];
+        for (int stateOrdinal = 0; stateOrdinal < states.length; stateOrdinal++) {
+            for (int value = 0; value < BYTE_VALUES_COUNT; value++) {
+                var event = byteEvents[value];
+                var plan = event == null ? null : definition.findTransition(stateOrdinal, definition.eventOrdinal(event));
+                int entry;
+                if (plan == null) {
+                    entry = NO_TRANSITION;
+                } else if (builder.emittingEvents.contains(event) || emittingTransitions.contains(new Pair<>(states[stateOrdinal], event))) {
+                    entry = EMITTING_TRANSITION;
+                } else {
+                    entry = definition.stateOrdinal(plan.newState()) * BYTE_VALUES_COUNT;
+                }
+                table[stateOrdinal * BYTE_VALUES_COUNT + value] = entry;
+            }
+        }
+        return table;
+    }
+
+    public FSMEvent getByteClass(int value) {
+        return byteEvents[value & 0xFF];
+    }
+
+    // Consumes the remaining bytes of the buffer and returns the state after the last one. A byte without
+    // a transition from the current state throws with the position of the buffer left at it, as does an emitting
+    // transition which throws, so parsing can be continued once the cause is dealt with.
+    public FSMState run(FSMInstance fsm, ByteBuffer buffer) {
+        if (fsm.getDefinition() != definition) {
+            throw new FSMException("The instance has to be driven by the definition of the runner");
+        }
+        if (!fsm.supportsSkipping()) {
+            throw new FSMException("%s can't be driven by a byte runner, as it has to run every transition itself".formatted(fsm.getClass().getSimpleName()));
+        }
+        var table = this.table;
+        var array = buffer.hasArray() ? buffer.array() : null;
+        var offset = array == null ? 0 : buffer.arrayOffset();
+        var row = definition.stateOrdinal(fsm.getCurrentState()) * BYTE_VALUES_COUNT;
+        var position = buffer.position();
+        var limit = buffer.limit();
+        while (true) {
+            // The hot loops, heap buffers are read from their array without bounds checks of the buffer
+            int entry = NO_TRANSITION;
+            if (array != null) {
+                var index = offset + position;
+                var end = offset + limit;
+                while (index < end && (entry = table[row | array[index] & 0xFF]) >= 0) {
+                    row = entry;
+                    index++;
+                }
+                position = index - offset;
+            } else {
+                while (position < limit && (entry = table[row | buffer.get(position) & 0xFF]) >= 0) {
+                    row = entry;
+                    position++;
+                }
+            }
+            var state = states[row / BYTE_VALUES_COUNT];
+            buffer.position(position);
+            fsm.skipTo(state);
+            if (position == limit) {
+                return state;
+            }
+
+            var value = buffer.get(position) & 0xFF;
+            var event = byteEvents[value];
+            if (event == null) {
+                throw new FSMException("No byte class is set for byte 0x%02X".formatted(value));
+            }
+            if (entry == NO_TRANSITION) {
+                throw definition.noSuchTransition(state, event);
+            }
+            fsm.trigger(event);
+            row = definition.stateOrdinal(fsm.getCurrentState()) * BYTE_VALUES_COUNT;
+            buffer.position(++position);
+        }
+    }
+
+    public static final class Builder {
+
+        private final FSMDefinition definition;
+
+        private final FSMEvent[] byteEvents = new FSMEvent[BYTE_VALUES_COUNT];
+
+        private final Set<FSMEvent> emittingEvents = new HashSet<>();
+
+        private final List<Pair<FSMState, FSMEvent>> emittingTransitions = new ArrayList<>();
+
+        private Builder(FSMDefinition definition) {
+            if (!definition.isDense()) {
+                throw new FSMException("Byte runners require all states and all events to be constants of one enum each");
+            }
+            this.definition = definition;
+        }
+
+        // Values are taken as unsigned bytes, so both (byte) 0xFF and 0xFF are the same byte
+        public Builder byteClass(int value, FSMEvent event) {
+            byteEvents[value & 0xFF] = requireEventConstant(event);
+            return this;
+        }
+
+        // Both bounds are included, e.g. byteClass('0', '9', Event.DIGIT)
+        public Builder byteClass(int fromValue, int toValue, FSMEvent event) {
+            requireEventConstant(event);
+            for (int value = fromValue & 0xFF; value <= (toValue & 0xFF); value++) {
+                byteEvents[value] = event;
+            }
+            return this;
+        }
+
+        // Every byte of the string, which is encoded in ISO-8859-1, e.g. byteClass(" \t", Event.WHITESPACE)
+        public Builder byteClass(String values, FSMEvent event) {
+            requireEventConstant(event);
+            for (int i = 0; i < values.length(); i++) {
+                byteEvents[values.charAt(i) & 0xFF] = event;
+            }
+            return this;
+        }
+
+        // The class of every byte which has none yet
+        public Builder otherBytes(FSMEvent event) {
+            requireEventConstant(event);
+            for (int value = 0; value < BYTE_VALUES_COUNT; value++) {
+                if (byteEvents[value] == null) {
+                    byteEvents[value] = event;
+                }
+            }
+            return this;
+        }
+
+        public Builder emitting(FSMState state, FSMEvent event) {
+            emittingTransitions.add(new Pair<>(state, event));
+            return this;
+        }
+
+        // Marks the transitions of the event from every state as emitting
+        public Builder emitting(FSMEvent event) {
+            emittingEvents.add(requireEventConstant(event));
+            return this;
+        }
+
+        private FSMEvent requireEventConstant(FSMEvent event) {
+            if (definition.eventOrdinal(event) < 0) {
+                throw new FSMException("Event '%s' is not a constant of the event enum of the definition".formatted(event));
+            }
+            return event;
+        }
+
+        public FSMByteRunner build() {
+            return new FSMByteRunner(this);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Incremental checkpoints of a fleet of FSM instances sharing one enum-based {@link FSMDefinition}.
+ * A registered instance queues itself up on its first committed transition after a checkpoint,
+ * so a checkpoint writes only the instances which have changed since the previous one, in the {@link FSMSnapshot} format,
+ * and costs time in proportion to the activity rather than to the number of instances.
+ * Restoring a full checkpoint followed by the incremental ones in order brings all the instances back.
+ */
+public final class FSMCheckpointer {
+
+    static final class Registration implements FSMStateListener {
+
+        private final FSMCheckpointer checkpointer;
+
+        private final int entityId;
+
+        private final FSMInstance fsm;
+
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private Registration(FSMCheckpointer checkpointer, int entityId, FSMInstance fsm) {
+            this.checkpointer = checkpointer;
+            this.entityId = entityId;
+            this.fsm = fsm;
+        }
+
+        // A plain read first, so that the transitions of an already dirty instance don't contend on the flag
+        void markDirty() {
+            if (!dirty.get() && dirty.compareAndSet(false, true)) {
+                checkpointer.dirtyRegistrations.offer(this);
+            }
+        }
+
+        @Override
+        public void stateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+            markDirty();
+        }
+
+        @Override
+        public void stateReplaced(FSMState state) {
+            markDirty();
+        }
+    }
+
+    private final FSMDefinition definition;
+
+    private final Map<Integer, Registration> registrations = new ConcurrentHashMap<>();
+
+    private final Queue<Registration> dirtyRegistrations = new ConcurrentLinkedQueue<>();
+
+    public FSMCheckpointer(FSMDefinition definition) {
+        if (!definition.isDense()) {
+            throw new FSMException("Checkpoints require all states and all events to be constants of one enum each");
+        }
+        this.definition = definition;
+    }
+
+    public FSMDefinition getDefinition() {
+        return definition;
+    }
+
+    public int getRegisteredCount() {
+        return registrations.size();
+    }
+
+    // A newly registered instance is written by the next checkpoint
+    public void register(int entityId, FSMInstance fsm) {
+        var fsmDefinition = fsm.getDefinition();
+        if (fsmDefinition != definition && (!fsmDefinition.isDense() || fsmDefinition.fingerprint() != definition.fingerprint())) {
+            throw new FSMException("The instance has a different FSM definition than the checkpointer");
+        }
+        var registration = new Registration(this, entityId, fsm);
+        if (registrations.putIfAbsent(entityId, registration) != null) {
+            throw new FSMException("Entity %d is already registered".formatted(entityId));
+        }
+        fsm.addListener(registration);
+        registration.markDirty();
+    }
+
+    public void unregister(int entityId) {
+        var registration = registrations.remove(entityId);
+        if (registration != null) {
+            registration.fsm.removeListener(registration);
+        }
+    }
+
+    // Writes the instances which have changed since the previous checkpoint and returns their number
+    public int checkpoint(WritableByteChannel channel) throws IOException {
+        var dirty = new ArrayList<Registration>();
+        for (var registration = dirtyRegistrations.poll(); registration != null; registration = dirtyRegistrations.poll()) {
+            if (registrations.get(registration.entityId) == registration) {
+                dirty.add(registration);
+            }
+            // Cleared before the state is read, so a transition committed meanwhile gets into the next checkpoint
+            registration.dirty.set(false);
+        }
+        return write(channel, dirty);
+    }
+
+    // Writes all the registered instances, a base for the following incremental checkpoints
+    public int fullCheckpoint(WritableByteChannel channel) throws IOException {
+        for (var registration = dirtyRegistrations.poll(); registration != null; registration = dirtyRegistrations.poll()) {
+            registration.dirty.set(false);
+        }
+        return write(channel, List.copyOf(registrations.values()));
+    }
+
+    private int write(WritableByteChannel channel, List<Registration> registrationsToWrite) throws IOException {
+        var instances = new ArrayList<Map.Entry<Integer, FSMInstance>>(registrationsToWrite.size());
+        for (var registration : registrationsToWrite) {
+            instances.add(Map.entry(registration.entityId, registration.fsm));
+        }
+        try {
+            FSMSnapshot.write(channel, definition, instances);
+        } catch (IOException | RuntimeException ex) {
+            registrationsToWrite.forEach(Registration::markDirty);
+            throw ex;
+        }
+        return instances.size();
+    }
+
+    // Restores the registered instances from a checkpoint, entities of the checkpoint which aren't registered are skipped
+    public int restore(ReadableByteChannel channel) throws IOException {
+        var restoredCount = 0;
+        for (var entry : FSMSnapshot.read(channel, definition)) {
+            var registration = registrations.get(entry.entityId());
+            if (registration != null) {
+                registration.fsm.restore(entry.state(), entry.pendingEvents());
+                restoredCount++;
+            }
+        }
+        return restoredCount;
+    }
+}
@@ -0,0 +1,687 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.DuplicateFSMEventException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMChainLengthExceededException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import io.github.dmytrozinkevych.finitafsm.utils.Pair;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Immutable, compiled set of transitions and state actions.
+ * A single definition is safe to share between any number of {@link FSMInstance}s and threads.
+ */
+public final class FSMDefinition {
+
+    private static final long FINGERPRINT_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FINGERPRINT_PRIME = 0x100000001b3L;
+
+    public static final int DEFAULT_MAX_CHAIN_LENGTH = 10_000;
+
+    static final FSMDefinition EMPTY = builder().build();
+
+    private final FSMState initialState;
+
+    private final int maxChainLength;
+
+    private final boolean stacklessExceptions;
+
+    // Every transition is resolved into a plan holding its exit, transition and enter actions,
+    // so triggering does not look anything up besides the plan itself
+    private final Map<FSMState, Map<FSMEvent, FSMTransitionPlan>> statesWithTransitions;
+
+    private final Map<FSMState, Pair<FSMAction, FSMAction>> statesEnterExitActions;
+
+    private final Map<FSMState, FSMState> parentStates;
+
+    private final Map<FSMState, FSMStateTimeout> timeouts;
+
+    // The declared transitions of every state together with the ones it inherits from its ancestors,
+    // the same map as statesWithTransitions when there are no nested states
+    private final Map<FSMState, Map<FSMEvent, FSMTransitionPlan>> resolvedTransitions;
+
+    // Set only when all states and all events are constants of one enum each:
+    // transitions are then looked up by denseTransitions[stateOrdinal * eventCount + eventOrdinal]
+    private final Class<?> stateEnumType;
+
+    private final Class<?> eventEnumType;
+
+    private final int eventCount;
+
+    private final FSMTransitionPlan[] denseTransitions;
+
+    private final boolean compiled;
+
+    // Generated by FSMDispatcherCompiler, set only when compilation was requested and has succeeded
+    private final BiFunction<Object, Object, Object> dispatcher;
+
+    // The last rendered diagrams, a definition is immutable so they only have to be rendered again for other states
+    private volatile FSMDiagram.Rendered renderedPlantUmlDiagram;
+
+    private volatile FSMDiagram.Rendered renderedDotDiagram;
+
+    private FSMDefinition(Builder builder) {
+        initialState = builder.initialState;
+        maxChainLength = builder.maxChainLength;
+        stacklessExceptions = builder.stacklessExceptions;
+        compiled = builder.compiled;
+        statesEnterExitActions = Collections.unmodifiableMap(new HashMap<>(builder.statesEnterExitActions));
+        parentStates = Collections.unmodifiableMap(new HashMap<>(builder.parentStates));
+        timeouts = Collections.unmodifiableMap(new HashMap<>(builder.timeouts));
+        requireAcyclicParentStates();
+        // Transitions keep the order they are declared in, so everything which walks them is deterministic
+        var transitions = new LinkedHashMap<FSMState, Map<FSMEvent, FSMTransitionPlan>>();
+        builder.statesWithTransitions.forEach((state, eventMap) -> {
+            var plans = new LinkedHashMap<FSMEvent, FSMTransitionPlan>();
+            eventMap.forEach((event, newStateWithAction) -> plans.put(event, compilePlan(state, event, newStateWithAction)));
+            transitions.put(state, Collections.unmodifiableMap(plans));
+        });
+        statesWithTransitions = Collections.unmodifiableMap(transitions);
+        resolvedTransitions = parentStates.isEmpty() ? statesWithTransitions : resolveInheritedTransitions(builder);
+
+        var stateTypes = new EnumTypeCollector();
+        var eventTypes = new EnumTypeCollector();
+        statesWithTransitions.forEach((state, eventMap) -> {
+            stateTypes.add(state);
+            eventMap.forEach((event, transition) -> {
+                eventTypes.add(event);
+                stateTypes.add(transition.newState());
+            });
+        });
+        parentStates.forEach((state, parentState) -> {
+            stateTypes.add(state);
+            stateTypes.add(parentState);
+        });
+        stateEnumType = stateTypes.getEnumType();
+        eventEnumType = eventTypes.getEnumType();
+        if (stateEnumType != null && eventEnumType != null) {
+            eventCount = eventEnumType.getEnumConstants().length;
+            denseTransitions = compileDenseTransitions(stateEnumType.getEnumConstants().length * eventCount);
+        } else {
+            eventCount = 0;
+            denseTransitions = null;
+        }
+        dispatcher = compiled && hasTransitions() ? FSMDispatcherCompiler.compile(this) : null;
+    }
+
+    // Definitions generated at compile time are already validated, so the plans are created right away
+    // without collecting the declarations first, the declared transitions are kept for diagrams and rebuilds
+    private FSMDefinition(Class<?> stateEnumType, Class<?> eventEnumType, FSMState initialState, int[] transitionOrdinals,
+                          FSMAction[] transitionActions, FSMAction[] enterStateActions, FSMAction[] exitStateActions) {
+        var states = (FSMState[]) stateEnumType.getEnumConstants();
+        var events = (FSMEvent[]) eventEnumType.getEnumConstants();
+        if (transitionOrdinals.length != transitionActions.length * 3
+                || enterStateActions.length != states.length
+                || exitStateActions.length != states.length) {
+            throw tableMismatch(stateEnumType, eventEnumType);
+        }
+        this.initialState = initialState;
+        maxChainLength = DEFAULT_MAX_CHAIN_LENGTH;
+        stacklessExceptions = false;
+        compiled = false;
+        dispatcher = null;
+        parentStates = Map.of();
+        timeouts = Map.of();
+        var stateActions = new HashMap<FSMState, Pair<FSMAction, FSMAction>>();
+        for (int i = 0; i < states.length; i++) {
+            if (enterStateActions[i] != null || exitStateActions[i] != null) {
+                stateActions.put(states[i], new Pair<>(enterStateActions[i], exitStateActions[i]));
+            }
+        }
+        statesEnterExitActions = Collections.unmodifiableMap(stateActions);
+
+        this.stateEnumType = stateEnumType;
+        this.eventEnumType = eventEnumType;
+        eventCount = events.length;
+        denseTransitions = new FSMTransitionPlan[states.length * eventCount];
+        var transitions = new LinkedHashMap<FSMState, Map<FSMEvent, FSMTransitionPlan>>();
+        for (int i = 0; i < transitionActions.length; i++) {
+            var oldStateOrdinal = transitionOrdinals[i * 3];
+            var eventOrdinal = transitionOrdinals[i * 3 + 1];
+            var newStateOrdinal = transitionOrdinals[i * 3 + 2];
+            if (Math.max(oldStateOrdinal, newStateOrdinal) >= states.length || eventOrdinal >= eventCount) {
+                throw tableMismatch(stateEnumType, eventEnumType);
+            }
+            var oldState = states[oldStateOrdinal];
+            var event = events[eventOrdinal];
+            var newState = states[newStateOrdinal];
+            var plan = new FSMTransitionPlan(
+                    oldState,
+                    event,
+                    newState,
+                    exitStateActions[oldStateOrdinal],
+                    transitionActions[i],
+                    enterStateActions[newStateOrdinal]
+            );
+            denseTransitions[oldStateOrdinal * eventCount + eventOrdinal] = plan;
+            transitions.computeIfAbsent(oldState, state -> new LinkedHashMap<>()).put(event, plan);
+        }
+        transitions.replaceAll((state, plans) -> Collections.unmodifiableMap(plans));
+        statesWithTransitions = Collections.unmodifiableMap(transitions);
+        resolvedTransitions = statesWithTransitions;
+    }
+
+    private static FSMException tableMismatch(Class<?> stateEnumType, Class<?> eventEnumType) {
+        return new FSMException("The transition table doesn't match the %s and %s enums, it has to be generated again"
+                .formatted(stateEnumType.getName(), eventEnumType.getName()));
+    }
+
+    // The enum type all the added values are constants of, or null once any value isn't
+    private static final class EnumTypeCollector {
+
+        private Class<?> enumType;
+
+        private boolean common = true;
+
+        void add(Object value) {
+            if (!common) {
+                return;
+            }
+            if (!(value instanceof Enum<?> enumValue)) {
+                common = false;
+                return;
+            }
+            var valueType = enumValue.getDeclaringClass();
+            if (enumType == null) {
+                enumType = valueType;
+            } else if (enumType != valueType) {
+                common = false;
+            }
+        }
+
+        Class<?> getEnumType() {
+            return common ? enumType : null;
+        }
+    }
+
+    private void requireAcyclicParentStates() {
+        parentStates.keySet().forEach(state -> {
+            var depth = 0;
+            for (var ancestor = parentStates.get(state); ancestor != null; ancestor = parentStates.get(ancestor)) {
+                if (++depth > parentStates.size()) {
+                    throw new FSMException("Parent states of %s form a cycle".formatted(state));
+                }
+            }
+        });
+    }
+
+    // A state inherits the transitions of its ancestors for the events it doesn't handle itself, the nearest ancestor wins
+    private Map<FSMState, Map<FSMEvent, FSMTransitionPlan>> resolveInheritedTransitions(Builder builder) {
+        var states = new LinkedHashSet<FSMState>(statesWithTransitions.keySet());
+        states.addAll(parentStates.keySet());
+        var transitions = new LinkedHashMap<FSMState, Map<FSMEvent, FSMTransitionPlan>>();
+        for (var state : states) {
+            var plans = new LinkedHashMap<FSMEvent, FSMTransitionPlan>(statesWithTransitions.getOrDefault(state, Map.of()));
+            for (var ancestor = parentStates.get(state); ancestor != null; ancestor = parentStates.get(ancestor)) {
+                builder.statesWithTransitions.getOrDefault(ancestor, Map.of()).forEach((event, newStateWithAction) -> {
+                    if (!plans.containsKey(event)) {
+                        plans.put(event, compilePlan(state, event, newStateWithAction));
+                    }
+                });
+            }
+            if (!plans.isEmpty()) {
+                transitions.put(state, Collections.unmodifiableMap(plans));
+            }
+        }
+        return Collections.unmodifiableMap(transitions);
+    }
+
+    // Exit and enter sequences are resolved here once, so triggering never walks the state tree,
+    // without nested states they are just the actions of the old and the new state
+    private FSMTransitionPlan compilePlan(FSMState oldState, FSMEvent event, Pair<FSMState, FSMAction> newStateWithAction) {
+        var newState = newStateWithAction.left();
+        if (parentStates.isEmpty()) {
+            return new FSMTransitionPlan(oldState, event, newState, exitStateActionOf(oldState), newStateWithAction.right(), enterStateActionOf(newState));
+        }
+        return new FSMTransitionPlan(
+                oldState,
+                event,
+                newState,
+                sequenceOf(exitedStates(oldState, newState), false),
+                newStateWithAction.right(),
+                sequenceOf(enteredStates(oldState, newState), true)
+        );
+    }
+
+    // The states a transition exits, from the old state up to the least common ancestor
+    List<FSMState> exitedStates(FSMState oldState, FSMState newState) {
+        var commonAncestor = leastCommonAncestor(oldState, newState);
+        var exitedStates = new ArrayList<FSMState>();
+        for (var state = oldState; state != null && !state.equals(commonAncestor); state = parentStates.get(state)) {
+            exitedStates.add(state);
+        }
+        return exitedStates;
+    }
+
+    // The states a transition enters, from below the least common ancestor down to the new state
+    List<FSMState> enteredStates(FSMState oldState, FSMState newState) {
+        var commonAncestor = leastCommonAncestor(oldState, newState);
+        var enteredStates = new ArrayList<FSMState>();
+        for (var state = newState; state != null && !state.equals(commonAncestor); state = parentStates.get(state)) {
+            enteredStates.add(state);
+        }
+        Collections.reverse(enteredStates);
+        return enteredStates;
+    }
+
+    // The nearest state which is a proper ancestor of both, so a transition to the same state, an ancestor
+    // or a descendant exits and enters the state it starts from
+    private FSMState leastCommonAncestor(FSMState oldState, FSMState newState) {
+        for (var ancestor = parentStates.get(oldState); ancestor != null; ancestor = parentStates.get(ancestor)) {
+            for (var newStateAncestor = parentStates.get(newState); newStateAncestor != null; newStateAncestor = parentStates.get(newStateAncestor)) {
+                if (ancestor.equals(newStateAncestor)) {
+                    return ancestor;
+                }
+            }
+        }
+        return null;
+    }
+
+    private FSMAction enterStateActionOf(FSMState state) {
+        var stateActions = statesEnterExitActions.get(state);
+        return stateActions == null ? null : stateActions.left();
+    }
+
+    private FSMAction exitStateActionOf(FSMState state) {
+        var stateActions = statesEnterExitActions.get(state);
+        return stateActions == null ? null : stateActions.right();
+    }
+
+    private FSMAction sequenceOf(List<FSMState> states, boolean enter) {
+        var actions = new ArrayList<FSMAction>(states.size());
+        for (var state : states) {
+            var action = enter ? enterStateActionOf(state) : exitStateActionOf(state);
+            if (action != null) {
+                actions.add(action);
+            }
+        }
+        return switch (actions.size()) {
+            case 0 -> null;
+            case 1 -> actions.get(0);
+            default -> new FSMActionSequence(actions.toArray(FSMAction[]::new));
+        };
+    }
+
+    private FSMTransitionPlan[] compileDenseTransitions(int size) {
+        var table = new FSMTransitionPlan[size];
+        resolvedTransitions.forEach((state, eventMap) -> eventMap.forEach((event, transition) ->
+                table[((Enum<?>) state).ordinal() * eventCount + ((Enum<?>) event).ordinal()] = transition
+        ));
+        return table;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Every transition takes three ordinals of the table: of the old state, the event and the new state,
+    // its action is at the transition index; the actions of states are indexed by the state ordinal
+    public static <S extends Enum<S> & FSMState, E extends Enum<E> & FSMEvent> FSMDefinition fromTable(
+            Class<S> stateType,
+            Class<E> eventType,
+            S initialState,
+            int[] transitionOrdinals,
+            FSMAction[] transitionActions,
+            FSMAction[] enterStateActions,
+            FSMAction[] exitStateActions
+    ) {
+        return new FSMDefinition(stateType, eventType, initialState, transitionOrdinals, transitionActions, enterStateActions, exitStateActions);
+    }
+
+    public FSMState getInitialState() {
+        return initialState;
+    }
+
+    // The max number of follow-up events a single trigger may process, a cheap guard against infinite loops
+    public int getMaxChainLength() {
+        return maxChainLength;
+    }
+
+    public boolean hasStacklessExceptions() {
+        return stacklessExceptions;
+    }
+
+    NoSuchTransitionException noSuchTransition(FSMState state, FSMEvent event) {
+        return new NoSuchTransitionException(state, event, !stacklessExceptions);
+    }
+
+    FSMChainLengthExceededException chainLengthExceeded() {
+        return new FSMChainLengthExceededException(maxChainLength, !stacklessExceptions);
+    }
+
+    public boolean hasTransitions() {
+        return !statesWithTransitions.isEmpty();
+    }
+
+    // Compilation falls back to the regular dispatch, which is logged once, when there is no Java compiler,
+    // i.e. on a JRE, or the transitions don't use enums or are too many
+    public boolean isCompiled() {
+        return dispatcher != null;
+    }
+
+    BiFunction<Object, Object, Object> getDispatcher() {
+        return dispatcher;
+    }
+
+    boolean isDense() {
+        return denseTransitions != null;
+    }
+
+    FSMState[] getStateConstants() {
+        return (FSMState[]) stateEnumType.getEnumConstants();
+    }
+
+    FSMEvent[] getEventConstants() {
+        return (FSMEvent[]) eventEnumType.getEnumConstants();
+    }
+
+    Class<?> getStateEnumType() {
+        return stateEnumType;
+    }
+
+    Class<?> getEventEnumType() {
+        return eventEnumType;
+    }
+
+    int getEventCount() {
+        return eventCount;
+    }
+
+    int stateOrdinal(FSMState state) {
+        return stateEnumType.isInstance(state) ? ((Enum<?>) state).ordinal() : -1;
+    }
+
+    int eventOrdinal(FSMEvent event) {
+        return eventEnumType.isInstance(event) ? ((Enum<?>) event).ordinal() : -1;
+    }
+
+    FSMTransitionPlan findTransition(int stateOrdinal, int eventOrdinal) {
+        return denseTransitions[stateOrdinal * eventCount + eventOrdinal];
+    }
+
+    // FNV-1a hash of the enum types, their constant names, the initial state and the transition table,
+    // stable across JVM runs so that it can be written to files which are loaded later
+    long fingerprint() {
+        var hash = FINGERPRINT_OFFSET_BASIS;
+        hash = fingerprint(hash, stateEnumType.getName());
+        for (var state : stateEnumType.getEnumConstants()) {
+            hash = fingerprint(hash, ((Enum<?>) state).name());
+        }
+        hash = fingerprint(hash, eventEnumType.getName());
+        for (var event : eventEnumType.getEnumConstants()) {
+            hash = fingerprint(hash, ((Enum<?>) event).name());
+        }
+        hash = fingerprint(hash, stateOrdinal(initialState));
+        for (int i = 0; i < denseTransitions.length; i++) {
+            var plan = denseTransitions[i];
+            if (plan != null) {
+                hash = fingerprint(hash, i);
+                hash = fingerprint(hash, stateOrdinal(plan.newState()));
+            }
+        }
+        return hash;
+    }
+
+    private static long fingerprint(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FINGERPRINT_PRIME;
+        }
+        return fingerprint(hash, value.length());
+    }
+
+    private static long fingerprint(long hash, int value) {
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * FINGERPRINT_PRIME;
+        }
+        return hash;
+    }
+
+    FSMTransitionPlan findTransition(FSMState state, FSMEvent event) {
+        if (denseTransitions != null) {
+            if (stateEnumType.isInstance(state) && eventEnumType.isInstance(event)) {
+                return denseTransitions[((Enum<?>) state).ordinal() * eventCount + ((Enum<?>) event).ordinal()];
+            }
+            return null;
+        }
+        var stateTransitions = resolvedTransitions.get(state);
+        return stateTransitions == null ? null : stateTransitions.get(event);
+    }
+
+    public Optional<FSMAction> getEnterStateAction(FSMState state) {
+        return Optional.ofNullable(statesEnterExitActions.get(state))
+                .map(Pair::left);
+    }
+
+    public Optional<FSMAction> getExitStateAction(FSMState state) {
+        return Optional.ofNullable(statesEnterExitActions.get(state))
+                .map(Pair::right);
+    }
+
+    public Optional<FSMState> getParentState(FSMState state) {
+        return Optional.ofNullable(parentStates.get(state));
+    }
+
+    public Optional<FSMStateTimeout> getTimeout(FSMState state) {
+        return Optional.ofNullable(findTimeout(state));
+    }
+
+    FSMStateTimeout findTimeout(FSMState state) {
+        return timeouts.isEmpty() ? null : timeouts.get(state);
+    }
+
+    Map<FSMState, Map<FSMEvent, FSMTransitionPlan>> getDeclaredTransitions() {
+        return statesWithTransitions;
+    }
+
+    // Declared transitions together with the ones inherited from the parent states
+    Map<FSMState, Map<FSMEvent, FSMTransitionPlan>> getResolvedTransitions() {
+        return resolvedTransitions;
+    }
+
+    // Every state the definition mentions, in a stable order
+    Set<FSMState> getStates() {
+        var states = new LinkedHashSet<FSMState>();
+        statesWithTransitions.forEach((state, eventMap) -> {
+            states.add(state);
+            eventMap.values().forEach(plan -> states.add(plan.newState()));
+        });
+        parentStates.forEach((state, parentState) -> {
+            states.add(state);
+            states.add(parentState);
+        });
+        states.addAll(statesEnterExitActions.keySet());
+        states.addAll(timeouts.keySet());
+        return states;
+    }
+
+    FSMDiagram.Rendered getRenderedPlantUmlDiagram() {
+        return renderedPlantUmlDiagram;
+    }
+
+    FSMDiagram.Rendered getRenderedDotDiagram() {
+        return renderedDotDiagram;
+    }
+
+    public String generatePlantUmlDiagramCode(FSMState startState, FSMState endState) {
+        var rendered = renderedPlantUmlDiagram;
+        if (rendered == null || !rendered.isFor(startState, endState)) {
+            var code = new StringBuilder();
+            writeDiagram(code, out -> FSMDiagram.writePlantUml(this, startState, endState, out));
+            rendered = new FSMDiagram.Rendered(startState, endState, code.toString());
+            renderedPlantUmlDiagram = rendered;
+        }
+        return rendered.code();
+    }
+
+    public String generateDotDiagramCode(FSMState startState, FSMState endState) {
+        var rendered = renderedDotDiagram;
+        if (rendered == null || !rendered.isFor(startState, endState)) {
+            var code = new StringBuilder();
+            writeDiagram(code, out -> FSMDiagram.writeDot(this, startState, endState, out));
+            rendered = new FSMDiagram.Rendered(startState, endState, code.toString());
+            renderedDotDiagram = rendered;
+        }
+        return rendered.code();
+    }
+
+    private interface DiagramWriter {
+
+        void write(StringBuilder out) throws IOException;
+    }
+
+    // A StringBuilder never throws IOException
+    private static void writeDiagram(StringBuilder out, DiagramWriter writer) {
+        try {
+            writer.write(out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static final class Builder {
+
+        private FSMState initialState;
+
+        private int maxChainLength = DEFAULT_MAX_CHAIN_LENGTH;
+
+        private boolean stacklessExceptions;
+
+        private boolean compiled;
+
+        private final Map<FSMState, Map<FSMEvent, Pair<FSMState, FSMAction>>> statesWithTransitions = new LinkedHashMap<>();
+
+        private final Map<FSMState, Pair<FSMAction, FSMAction>> statesEnterExitActions = new HashMap<>();
+
+        private final Map<FSMState, FSMState> parentStates = new HashMap<>();
+
+        private final Map<FSMState, FSMStateTimeout> timeouts = new HashMap<>();
+
+        private Builder() { }
+
+        public Builder initialState(FSMState initialState) {
+            this.initialState = initialState;
+            return this;
+        }
+
+        public Builder maxChainLength(int maxChainLength) {
+            if (maxChainLength < 0) {
+                throw new IllegalArgumentException("Max chain length must not be negative");
+            }
+            this.maxChainLength = maxChainLength;
+            return this;
+        }
+
+        // Exceptions thrown by the engine then skip filling in their stack traces, which costs more than the transition itself
+        public Builder stacklessExceptions(boolean stacklessExceptions) {
+            this.stacklessExceptions = stacklessExceptions;
+            return this;
+        }
+
+        // Transitions are then dispatched by a class generated for this definition, see FSMDispatcherCompiler
+        public Builder compiled(boolean compiled) {
+            this.compiled = compiled;
+            return this;
+        }
+
+        public Builder transition(FSMState oldState, FSMEvent event, FSMState newState) {
+            return transition(oldState, event, newState, null);
+        }
+
+        public Builder transition(FSMState oldState, FSMEvent event, FSMState newState, FSMAction action) {
+            var eventMap = statesWithTransitions.computeIfAbsent(oldState, state -> new LinkedHashMap<>());
+            if (eventMap.containsKey(event)) {
+                throw new DuplicateFSMEventException();
+            }
+            eventMap.put(event, new Pair<>(newState, action));
+            return this;
+        }
+
+        public Builder stateActions(FSMState state, FSMAction enterStateAction, FSMAction exitStateAction) {
+            if (enterStateAction == null && exitStateAction == null) {
+                statesEnterExitActions.remove(state);
+            } else {
+                statesEnterExitActions.put(state, new Pair<>(enterStateAction, exitStateAction));
+            }
+            return this;
+        }
+
+        // Nests the state into the parent state, whose transitions and enter and exit actions then apply to it as well
+        public Builder parentState(FSMState state, FSMState parentState) {
+            if (parentState == null) {
+                parentStates.remove(state);
+            } else {
+                parentStates.put(state, parentState);
+            }
+            return this;
+        }
+
+        // Triggers the event once an instance has spent the delay in the state, see FSMTimer
+        public Builder timeout(FSMState state, Duration delay, FSMEvent event) {
+            if (delay.isNegative() || delay.isZero()) {
+                throw new IllegalArgumentException("Timeout delay must be positive");
+            }
+            timeouts.put(state, new FSMStateTimeout(state, delay, Objects.requireNonNull(event)));
+            return this;
+        }
+
+        Builder settingsFrom(FSMDefinition definition) {
+            maxChainLength = definition.maxChainLength;
+            stacklessExceptions = definition.stacklessExceptions;
+            compiled = definition.compiled;
+            return this;
+        }
+
+        // A builder with everything of the definition, which the package-private clear methods then replace part by part
+        static Builder from(FSMDefinition definition) {
+            var builder = new Builder().settingsFrom(definition);
+            builder.initialState = definition.initialState;
+            definition.statesWithTransitions.forEach((state, eventMap) -> eventMap.forEach((event, plan) ->
+                    builder.transition(state, event, plan.newState(), plan.transitionAction())
+            ));
+            builder.statesEnterExitActions.putAll(definition.statesEnterExitActions);
+            builder.parentStates.putAll(definition.parentStates);
+            builder.timeouts.putAll(definition.timeouts);
+            return builder;
+        }
+
+        Builder clearTransitions() {
+            statesWithTransitions.clear();
+            return this;
+        }
+
+        Builder clearStateActions() {
+            statesEnterExitActions.clear();
+            return this;
+        }
+
+        Builder clearParentStates() {
+            parentStates.clear();
+            return this;
+        }
+
+        Builder clearTimeouts() {
+            timeouts.clear();
+            return this;
+        }
+
+        public FSMDefinition build() {
+            return new FSMDefinition(this);
+        }
+    }
+}
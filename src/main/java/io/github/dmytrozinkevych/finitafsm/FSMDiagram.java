@@ -0,0 +1,101 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Streams PlantUML and Graphviz DOT state diagrams of a {@link FSMDefinition} straight into an {@link Appendable},
+ * edge by edge, so even definitions with a huge number of transitions are exported without building them in memory.
+ * A diagram which the definition has already rendered into a string is appended as it is.
+ */
+public final class FSMDiagram {
+
+    // Rendered code of the diagram with the given start and end states, cached by a definition
+    record Rendered(FSMState startState, FSMState endState, String code) {
+
+        boolean isFor(FSMState startState, FSMState endState) {
+            return Objects.equals(this.startState, startState) && Objects.equals(this.endState, endState);
+        }
+    }
+
+    private FSMDiagram() { }
+
+    public static void writePlantUml(FSMDefinition definition, FSMState startState, FSMState endState, Appendable out) throws IOException {
+        var rendered = definition.getRenderedPlantUmlDiagram();
+        if (rendered != null && rendered.isFor(startState, endState)) {
+            out.append(rendered.code());
+            return;
+        }
+        requireTransitions(definition);
+        out.append("@startuml\n!pragma layout smetana\nhide empty description\n\n[*] --> ")
+                .append(String.valueOf(startState))
+                .append("\n\n");
+        for (var stateTransitions : definition.getDeclaredTransitions().entrySet()) {
+            var oldState = String.valueOf(stateTransitions.getKey());
+            for (var transition : stateTransitions.getValue().entrySet()) {
+                out.append(oldState)
+                        .append(" --> ")
+                        .append(String.valueOf(transition.getValue().newState()))
+                        .append(" : ")
+                        .append(String.valueOf(transition.getKey()))
+                        .append('\n');
+            }
+        }
+        out.append('\n')
+                .append(String.valueOf(endState))
+                .append(" --> [*]\n\n@enduml\n");
+    }
+
+    public static void writeDot(FSMDefinition definition, FSMState startState, FSMState endState, Appendable out) throws IOException {
+        var rendered = definition.getRenderedDotDiagram();
+        if (rendered != null && rendered.isFor(startState, endState)) {
+            out.append(rendered.code());
+            return;
+        }
+        requireTransitions(definition);
+        out.append("digraph FSM {\n    __start [shape=point];\n    __end [shape=doublecircle, label=\"\", width=0.2];\n\n    __start -> ");
+        appendId(out, startState);
+        out.append(";\n");
+        for (var stateTransitions : definition.getDeclaredTransitions().entrySet()) {
+            var oldState = stateTransitions.getKey();
+            for (var transition : stateTransitions.getValue().entrySet()) {
+                out.append("    ");
+                appendId(out, oldState);
+                out.append(" -> ");
+                appendId(out, transition.getValue().newState());
+                out.append(" [label=");
+                appendId(out, transition.getKey());
+                out.append("];\n");
+            }
+        }
+        out.append("    ");
+        appendId(out, endState);
+        out.append(" -> __end;\n}\n");
+    }
+
+    private static void requireTransitions(FSMDefinition definition) {
+        if (!definition.hasTransitions()) {
+            throw new FSMHasNoTransitionsSetException();
+        }
+    }
+
+    // DOT IDs are quoted, so that any state or event name is valid, only quotes and backslashes need escaping
+    private static void appendId(Appendable out, Object value) throws IOException {
+        var id = String.valueOf(value);
+        out.append('"');
+        if (id.indexOf('"') < 0 && id.indexOf('\\') < 0) {
+            out.append(id);
+        } else {
+            for (int i = 0; i < id.length(); i++) {
+                var c = id.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\');
+                }
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
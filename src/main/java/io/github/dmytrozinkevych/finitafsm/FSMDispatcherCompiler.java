@@ -0,0 +1,435 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Compiles the transitions of an enum-based {@link FSMDefinition} into a hidden class with a {@code switch}
+ * over the state and event ordinals and a method per transition, which runs its stages exactly like
+ * {@link FSMInstance} does. Hooks and actions are called through {@code static final} method handles,
+ * so every call site of the generated class sees a single constant target which the JIT can inline.
+ * <p>
+ * The generated source refers to JDK types only and depends on the shape of the definition alone:
+ * actions are passed to each hidden class as its class data, so definitions of the same shape
+ * are compiled by javac once and only define a new hidden class each, and definitions which also share
+ * the very same actions share the dispatcher as well. The classes of the {@value #MAX_COMPILED_SHAPES} shapes used
+ * last are kept. Falling back to the regular dispatch is logged once per reason.
+ */
+final class FSMDispatcherCompiler {
+
+    // Keeps the generated methods well below the size the JIT refuses to compile
+    static final int MAX_COMPILED_TRANSITIONS = 1024;
+
+    static final int MAX_COMPILED_SHAPES = 64;
+
+    private static final String CLASS_NAME = "FSMCompiledDispatcher";
+
+    private static final String OBJECTS_4 = "(fsm, oldState, event, newState)";
+
+    private static final MethodType GENERIC_ACTION_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class, Object.class, Object.class);
+
+    private static final MethodHandle CURRENT_STATE_GETTER;
+
+    private static final MethodHandle CURRENT_STATE_SETTER;
+
+    private static final MethodHandle BEFORE_EACH_TRANSITION;
+
+    private static final MethodHandle AFTER_EACH_TRANSITION;
+
+    private static final MethodHandle HANDLE_TRANSITION_EXCEPTION;
+
+    private static final MethodHandle ACTION_ACCEPT;
+
+    static {
+        try {
+            var lookup = MethodHandles.privateLookupIn(FSMInstance.class, MethodHandles.lookup());
+            var hookType = MethodType.methodType(void.class, FSMState.class, FSMEvent.class, FSMState.class);
+            CURRENT_STATE_GETTER = lookup.findGetter(FSMInstance.class, "currentState", FSMState.class)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            CURRENT_STATE_SETTER = lookup.findSetter(FSMInstance.class, "currentState", FSMState.class)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            BEFORE_EACH_TRANSITION = lookup.findVirtual(FSMInstance.class, "beforeEachTransition", hookType)
+                    .asType(GENERIC_ACTION_TYPE);
+            AFTER_EACH_TRANSITION = lookup.findVirtual(FSMInstance.class, "afterEachTransition", hookType)
+                    .asType(GENERIC_ACTION_TYPE);
+            HANDLE_TRANSITION_EXCEPTION = lookup.findVirtual(FSMInstance.class, "handleTransitionException",
+                            hookType.appendParameterTypes(Exception.class, FSMTransitionStage.class))
+                    .asType(GENERIC_ACTION_TYPE.appendParameterTypes(Object.class, Object.class));
+            ACTION_ACCEPT = lookup.findVirtual(FSMAction.class, "accept",
+                    MethodType.methodType(void.class, FSMInstance.class, FSMState.class, FSMEvent.class, FSMState.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private static final System.Logger LOGGER = System.getLogger(FSMDispatcherCompiler.class.getName());
+
+    // Keyed by the generated source, in the order of use, and guarded by itself
+    private static final Map<String, CompiledShape> COMPILED_SHAPES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledShape> eldest) {
+            return size() > MAX_COMPILED_SHAPES;
+        }
+    };
+
+    private static final Set<String> REPORTED_FALLBACKS = ConcurrentHashMap.newKeySet();
+
+    // Looked up on first use only, the compiler is null on a JRE without the jdk.compiler module
+    private static final class Javac {
+
+        static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+    }
+
+    // The class of a shape and the dispatcher defined for it last, both the dispatcher and its actions are held
+    // weakly, since the actions of a definition built per instance belong to that instance only
+    private static final class CompiledShape {
+
+        final byte[] classBytes;
+
+        private WeakReference<BiFunction<Object, Object, Object>> dispatcher = new WeakReference<>(null);
+
+        private List<WeakReference<FSMAction>> actions = List.of();
+
+        CompiledShape(byte[] classBytes) {
+            this.classBytes = classBytes;
+        }
+
+        synchronized BiFunction<Object, Object, Object> dispatcherFor(List<FSMAction> actions) {
+            var dispatcher = this.dispatcher.get();
+            if (dispatcher == null || actions.size() != this.actions.size()) {
+                return null;
+            }
+            for (int i = 0; i < actions.size(); i++) {
+                if (actions.get(i) != this.actions.get(i).get()) {
+                    return null;
+                }
+            }
+            return dispatcher;
+        }
+
+        synchronized void setDispatcher(BiFunction<Object, Object, Object> dispatcher, List<FSMAction> actions) {
+            this.dispatcher = new WeakReference<>(dispatcher);
+            this.actions = actions.stream().map(WeakReference::new).toList();
+        }
+    }
+
+    private FSMDispatcherCompiler() { }
+
+    // Returns null when the definition can't be compiled or there is no Java compiler, i.e. on a JRE
+    static BiFunction<Object, Object, Object> compile(FSMDefinition definition) {
+        if (!definition.isDense()) {
+            return fallBack("the states and events of the definition aren't constants of one enum each");
+        }
+        if (Javac.COMPILER == null) {
+            return fallBack("there is no Java compiler, the jdk.compiler module is required at runtime");
+        }
+        var generator = new SourceGenerator(definition);
+        if (generator.transitionCount > MAX_COMPILED_TRANSITIONS) {
+            return fallBack("the definition has more than " + MAX_COMPILED_TRANSITIONS + " transitions");
+        }
+        var source = generator.generate();
+        var shape = compiledShape(source);
+        var dispatcher = shape.dispatcherFor(generator.actions);
+        if (dispatcher == null) {
+            dispatcher = defineDispatcher(shape.classBytes, generator.classData);
+            shape.setDispatcher(dispatcher, generator.actions);
+        }
+        return dispatcher;
+    }
+
+    // javac runs outside of the lock, a shape compiled by two threads at once is kept once
+    private static CompiledShape compiledShape(String source) {
+        synchronized (COMPILED_SHAPES) {
+            var shape = COMPILED_SHAPES.get(source);
+            if (shape != null) {
+                return shape;
+            }
+        }
+        var shape = new CompiledShape(compileSource(source));
+        synchronized (COMPILED_SHAPES) {
+            var compiledShape = COMPILED_SHAPES.putIfAbsent(source, shape);
+            return compiledShape == null ? shape : compiledShape;
+        }
+    }
+
+    private static BiFunction<Object, Object, Object> fallBack(String reason) {
+        if (REPORTED_FALLBACKS.add(reason)) {
+            LOGGER.log(System.Logger.Level.WARNING, "Compiled definitions use the regular dispatch, since " + reason);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiFunction<Object, Object, Object> defineDispatcher(byte[] classBytes, List<Object> classData) {
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClassWithClassData(classBytes, List.copyOf(classData), true);
+            return (BiFunction<Object, Object, Object>) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable ex) {
+            throw new FSMException(ex);
+        }
+    }
+
+    private static byte[] compileSource(String source) {
+        var compiler = Javac.COMPILER;
+        var classBytes = new ByteArrayOutputStream();
+        var sourceFile = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(compiler.getStandardFileManager(diagnostics, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + className + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classBytes;
+                    }
+                };
+            }
+        }) {
+            var options = List.of("-proc:none", "-g:none");
+            if (!compiler.getTask(Writer.nullWriter(), fileManager, diagnostics, options, null, List.of(sourceFile)).call()) {
+                throw new FSMException("Failed to compile the dispatcher: " + diagnostics.getDiagnostics());
+            }
+        } catch (IOException ex) {
+            throw new FSMException(ex);
+        }
+        return classBytes.toByteArray();
+    }
+
+    private static final class SourceGenerator {
+
+        private final FSMDefinition definition;
+
+        private final FSMState[] states;
+
+        private final int eventCount;
+
+        private final List<Object> classData = new ArrayList<>();
+
+        private final Map<FSMAction, String> actionFields = new IdentityHashMap<>();
+
+        // In the order of their fields, which is the same for definitions of the same shape
+        private final List<FSMAction> actions = new ArrayList<>();
+
+        private final StringBuilder fields = new StringBuilder();
+
+        private final StringBuilder methods = new StringBuilder();
+
+        private final int transitionCount;
+
+        SourceGenerator(FSMDefinition definition) {
+            this.definition = definition;
+            states = definition.getStateConstants();
+            eventCount = definition.getEventCount();
+            var count = 0;
+            for (int stateOrdinal = 0; stateOrdinal < states.length; stateOrdinal++) {
+                for (int eventOrdinal = 0; eventOrdinal < eventCount; eventOrdinal++) {
+                    if (definition.findTransition(stateOrdinal, eventOrdinal) != null) {
+                        count++;
+                    }
+                }
+            }
+            transitionCount = count;
+        }
+
+        private void field(String type, String name, Object value) {
+            fields.append("    private static final %s %s = (%s) DATA.get(%d);\n".formatted(type, name, type, classData.size()));
+            classData.add(value);
+        }
+
+        private String actionField(FSMAction action) {
+            var name = actionFields.get(action);
+            if (name == null) {
+                name = "ACTION_" + actionFields.size();
+                field("MethodHandle", name, ACTION_ACCEPT.bindTo(action).asType(GENERIC_ACTION_TYPE));
+                actionFields.put(action, name);
+                actions.add(action);
+            }
+            return name;
+        }
+
+        String generate() {
+            field("Class<?>", "STATE_TYPE", definition.getStateEnumType());
+            field("Class<?>", "EVENT_TYPE", definition.getEventEnumType());
+            field("MethodHandle", "GET_CURRENT_STATE", CURRENT_STATE_GETTER);
+            field("MethodHandle", "SET_CURRENT_STATE", CURRENT_STATE_SETTER);
+            field("MethodHandle", "BEFORE_EACH_TRANSITION", BEFORE_EACH_TRANSITION);
+            field("MethodHandle", "AFTER_EACH_TRANSITION", AFTER_EACH_TRANSITION);
+            field("MethodHandle", "HANDLE_TRANSITION_EXCEPTION", HANDLE_TRANSITION_EXCEPTION);
+            for (var stage : FSMTransitionStage.values()) {
+                field("Object", stage.name(), stage);
+            }
+            for (var result : FSMTriggerResult.values()) {
+                field("Object", "RESULT_" + result.name(), result);
+            }
+            for (int i = 0; i < states.length; i++) {
+                field("Object", "STATE_" + i, states[i]);
+            }
+
+            var stateSwitch = new StringBuilder();
+            for (int stateOrdinal = 0; stateOrdinal < states.length; stateOrdinal++) {
+                var eventSwitch = new StringBuilder();
+                for (int eventOrdinal = 0; eventOrdinal < eventCount; eventOrdinal++) {
+                    var plan = definition.findTransition(stateOrdinal, eventOrdinal);
+                    if (plan != null) {
+                        var methodName = "transition%d_%d".formatted(stateOrdinal, eventOrdinal);
+                        eventSwitch.append("            case %d: return %s(fsm, event);\n".formatted(eventOrdinal, methodName));
+                        generateTransition(methodName, stateOrdinal, plan);
+                    }
+                }
+                if (!eventSwitch.isEmpty()) {
+                    stateSwitch.append("            case %d: return state%d(fsm, event);\n".formatted(stateOrdinal, stateOrdinal));
+                    methods.append("""
+
+                                private static Object state%d(Object fsm, Object event) throws Throwable {
+                                    switch (((Enum<?>) event).ordinal()) {
+                                %s            default: return null;
+                                    }
+                                }
+                            """.formatted(stateOrdinal, eventSwitch));
+                }
+            }
+
+            return """
+                    package %s;
+
+                    import java.lang.invoke.MethodHandle;
+                    import java.lang.invoke.MethodHandles;
+                    import java.util.List;
+                    import java.util.function.BiFunction;
+
+                    final class %s implements BiFunction<Object, Object, Object> {
+
+                        private static final List<?> DATA;
+
+                        static {
+                            try {
+                                DATA = MethodHandles.classData(MethodHandles.lookup(), "_", List.class);
+                            } catch (IllegalAccessException ex) {
+                                throw new ExceptionInInitializerError(ex);
+                            }
+                        }
+
+                    %s
+                        @Override
+                        public Object apply(Object fsm, Object event) {
+                            try {
+                                return dispatch(fsm, event);
+                            } catch (Throwable ex) {
+                                throw %s.<RuntimeException>rethrow(ex);
+                            }
+                        }
+
+                        @SuppressWarnings("unchecked")
+                        private static <T extends Throwable> T rethrow(Throwable ex) throws T {
+                            throw (T) ex;
+                        }
+
+                        private static Object dispatch(Object fsm, Object event) throws Throwable {
+                            var state = (Object) GET_CURRENT_STATE.invokeExact(fsm);
+                            if (!STATE_TYPE.isInstance(state) || !EVENT_TYPE.isInstance(event)) {
+                                return null;
+                            }
+                            switch (((Enum<?>) state).ordinal()) {
+                    %s            default: return null;
+                            }
+                        }
+                    %s}
+                    """.formatted(FSMDispatcherCompiler.class.getPackageName(), CLASS_NAME, fields, CLASS_NAME, stateSwitch, methods);
+        }
+
+        // Mirrors FSMInstance.runStages without the metrics, which are never set when the dispatcher is used
+        private void generateTransition(String methodName, int stateOrdinal, FSMTransitionPlan plan) {
+            var body = new StringBuilder();
+            body.append("""
+                            var oldState = STATE_%d;
+                            var newState = STATE_%d;
+                            try {
+                                BEFORE_EACH_TRANSITION.invokeExact%s;
+                            } catch (Exception ex) {
+                                HANDLE_TRANSITION_EXCEPTION.invokeExact(fsm, oldState, event, newState, (Object) ex, BEFORE_TRANSITION);
+                                return RESULT_ROLLED_BACK_BEFORE_TRANSITION;
+                            }
+                    """.formatted(stateOrdinal, definition.stateOrdinal(plan.newState()), OBJECTS_4));
+            if (plan.exitStateAction() != null) {
+                body.append("""
+                                try {
+                                    %s.invokeExact%s;
+                                } catch (Exception ex) {
+                                    HANDLE_TRANSITION_EXCEPTION.invokeExact(fsm, oldState, event, newState, (Object) ex, EXIT_OLD_STATE);
+                                    return RESULT_ROLLED_BACK_EXIT_OLD_STATE;
+                                }
+                        """.formatted(actionField(plan.exitStateAction()), OBJECTS_4));
+            }
+            body.append("        try {\n");
+            if (plan.transitionAction() != null) {
+                body.append("            %s.invokeExact%s;\n".formatted(actionField(plan.transitionAction()), OBJECTS_4));
+            }
+            body.append("""
+                                SET_CURRENT_STATE.invokeExact(fsm, newState);
+                            } catch (Exception ex) {
+                                HANDLE_TRANSITION_EXCEPTION.invokeExact(fsm, oldState, event, newState, (Object) ex, TRANSITION_ACTION);
+                                return RESULT_ROLLED_BACK_TRANSITION_ACTION;
+                            }
+                    """);
+            if (plan.enterStateAction() != null) {
+                body.append("""
+                                try {
+                                    %s.invokeExact%s;
+                                } catch (Exception ex) {
+                                    SET_CURRENT_STATE.invokeExact(fsm, oldState);
+                                    HANDLE_TRANSITION_EXCEPTION.invokeExact(fsm, oldState, event, newState, (Object) ex, ENTER_NEW_STATE);
+                                    return RESULT_ROLLED_BACK_ENTER_NEW_STATE;
+                                }
+                        """.formatted(actionField(plan.enterStateAction()), OBJECTS_4));
+            }
+            body.append("""
+                            try {
+                                AFTER_EACH_TRANSITION.invokeExact%s;
+                            } catch (Exception ex) {
+                                SET_CURRENT_STATE.invokeExact(fsm, oldState);
+                                HANDLE_TRANSITION_EXCEPTION.invokeExact(fsm, oldState, event, newState, (Object) ex, AFTER_TRANSITION);
+                                return RESULT_ROLLED_BACK_AFTER_TRANSITION;
+                            }
+                            return RESULT_APPLIED;
+                    """.formatted(OBJECTS_4));
+            methods.append("""
+
+                        private static Object %s(Object fsm, Object event) throws Throwable {
+                    %s    }
+                    """.formatted(methodName, body));
+        }
+    }
+}
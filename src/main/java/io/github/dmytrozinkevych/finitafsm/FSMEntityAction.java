@@ -0,0 +1,7 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+@FunctionalInterface
+public interface FSMEntityAction {
+
+    void accept(int entityId, FSMState oldState, FSMEvent event, FSMState newState);
+}
@@ -0,0 +1,415 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
+import io.github.dmytrozinkevych.finitafsm.utils.RingBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lightweight runtime of a shared {@link FSMDefinition}: holds only the current state, the pending events
+ * and whatever follows the state, e.g. a checkpointer, a timer or a state store.
+ */
+public class FSMInstance {
+
+    private static final int INITIAL_PENDING_EVENTS_CAPACITY = 4;
+
+    private FSMDefinition definition;
+
+    private FSMState currentState;
+
+    // Follow-up events of the running chain, allocated on the first triggerAfterwards call and reused afterwards
+    private RingBuffer<FSMEvent> pendingEvents;
+
+    private FSMMetrics metrics;
+
+    // Set while the instance is registered in a checkpointer, a timer, a replay or a state store
+    private FSMStateListener listener;
+
+    public FSMInstance(FSMDefinition definition) {
+        this(definition, definition.getInitialState());
+    }
+
+    public FSMInstance(FSMDefinition definition, FSMState initialState) {
+        this(initialState);
+        if (initialState == null) {
+            throw new FSMHasNoInitialStateSetException();
+        }
+        this.definition = Objects.requireNonNull(definition);
+    }
+
+    FSMInstance(FSMState initialState) {
+        definition = FSMDefinition.EMPTY;
+        currentState = initialState;
+    }
+
+    public FSMMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Metrics are off by default, the same metrics may be set to many instances
+    public void setMetrics(FSMMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public FSMDefinition getDefinition() {
+        return definition;
+    }
+
+    void setDefinition(FSMDefinition definition) {
+        this.definition = definition;
+    }
+
+    public FSMState getCurrentState() {
+        return currentState;
+    }
+
+    protected void beforeEachTransition(FSMState oldState, FSMEvent event, FSMState newState) { }
+
+    protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) { }
+
+    protected void onTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) {
+        throw new FSMException(cause, !definition.hasStacklessExceptions());
+    }
+
+    void requireHasTransitions() {
+        if (!definition.hasTransitions()) {
+            throw new FSMHasNoTransitionsSetException();
+        }
+    }
+
+    protected void beforeBatch() { }
+
+    protected void afterBatch(FSMBatchResult result) { }
+
+    public FSMState trigger(FSMEvent event) {
+        requireHasTransitions();
+        fire(event, true);
+        return currentState;
+    }
+
+    // Unlike trigger, reports an event which has no transition from the current state without throwing
+    public FSMTriggerResult tryTrigger(FSMEvent event) {
+        requireHasTransitions();
+        return fire(event, false);
+    }
+
+    public FSMBatchResult triggerAll(FSMEvent... events) {
+        return triggerAll(Arrays.asList(events), FSMBatchPolicy.STOP_ON_FAILURE);
+    }
+
+    public FSMBatchResult triggerAll(Iterable<? extends FSMEvent> events) {
+        return triggerAll(events, FSMBatchPolicy.STOP_ON_FAILURE);
+    }
+
+    public FSMBatchResult triggerAll(FSMEvent[] events, FSMBatchPolicy batchPolicy) {
+        return triggerAll(Arrays.asList(events), batchPolicy);
+    }
+
+    // Events of the batch which have no transition or are rolled back are failures handled according to the policy,
+    // while follow-up events scheduled with triggerAfterwards behave exactly as in trigger. An event which throws
+    // ends the batch, afterBatch still gets the result up to it, with the event counted as failed
+    public FSMBatchResult triggerAll(Iterable<? extends FSMEvent> events, FSMBatchPolicy batchPolicy) {
+        requireHasTransitions();
+        beforeBatch();
+        var index = 0;
+        var appliedCount = 0;
+        var failedCount = 0;
+        var firstFailureIndex = FSMBatchResult.NO_FAILURE;
+        try {
+            for (var event : events) {
+                if (fire(event, false).isApplied()) {
+                    appliedCount++;
+                } else {
+                    failedCount++;
+                    if (firstFailureIndex == FSMBatchResult.NO_FAILURE) {
+                        firstFailureIndex = index;
+                    }
+                    if (batchPolicy == FSMBatchPolicy.STOP_ON_FAILURE) {
+                        break;
+                    }
+                }
+                index++;
+            }
+        } catch (RuntimeException ex) {
+            var result = new FSMBatchResult(getCurrentState(), appliedCount, failedCount + 1,
+                    firstFailureIndex == FSMBatchResult.NO_FAILURE ? index : firstFailureIndex);
+            try {
+                afterBatch(result);
+            } catch (RuntimeException afterBatchException) {
+                ex.addSuppressed(afterBatchException);
+            }
+            throw ex;
+        }
+        var result = new FSMBatchResult(getCurrentState(), appliedCount, failedCount, firstFailureIndex);
+        afterBatch(result);
+        return result;
+    }
+
+    FSMTriggerResult fire(FSMEvent event, boolean throwOnNoTransition) {
+        var maxChainLength = definition.getMaxChainLength();
+        var eventToProcess = event;
+        var chainLength = 0;
+        try {
+            do {
+                var oldState = currentState;
+                var transitionEvent = beginTransitionEvent();
+                var result = dispatch(oldState, eventToProcess);
+                if (result == null) {
+                    recordNoSuchTransition(oldState, eventToProcess);
+                    if (throwOnNoTransition || chainLength > 0) {
+                        throw definition.noSuchTransition(oldState, eventToProcess);
+                    }
+                    return FSMTriggerResult.NO_TRANSITION;
+                }
+                if (result != FSMTriggerResult.APPLIED) {
+                    clearPendingEvents();
+                    return result;
+                }
+                onStateCommitted(oldState, eventToProcess, currentState);
+                transitionCommitted(oldState, eventToProcess, currentState, transitionEvent);
+                eventToProcess = pollPendingEvent();
+                if (eventToProcess != null && ++chainLength > maxChainLength) {
+                    throw definition.chainLengthExceeded();
+                }
+            } while (eventToProcess != null);
+            return FSMTriggerResult.APPLIED;
+        } catch (RuntimeException ex) {
+            clearPendingEvents();
+            throw ex;
+        }
+    }
+
+    // Returns null when there is no transition, the generated dispatcher doesn't time stages and is skipped with metrics on
+    private FSMTriggerResult dispatch(FSMState oldState, FSMEvent event) {
+        var dispatcher = definition.getDispatcher();
+        if (dispatcher != null && metrics == null) {
+            return (FSMTriggerResult) dispatcher.apply(this, event);
+        }
+        var plan = definition.findTransition(oldState, event);
+        return plan == null ? null : runStages(plan, oldState, event);
+    }
+
+    // The stages of every transition, shared with ConcurrentFSM, which differs only in how the state is committed
+    final FSMTriggerResult runStages(FSMTransitionPlan plan, FSMState oldState, FSMEvent event) {
+        var newState = plan.newState();
+        var metrics = this.metrics;
+        var timed = metrics != null && metrics.sampleLatency();
+        var stageStartNanos = timed ? System.nanoTime() : 0L;
+
+        try {
+            beforeEachTransition(oldState, event, newState);
+        } catch (Exception ex) {
+            handleTransitionException(oldState, event, newState, ex, FSMTransitionStage.BEFORE_TRANSITION);
+            return FSMTriggerResult.ROLLED_BACK_BEFORE_TRANSITION;
+        }
+        if (timed) {
+            stageStartNanos = metrics.recordStage(FSMTransitionStage.BEFORE_TRANSITION, stageStartNanos);
+        }
+
+        var exitStateAction = plan.exitStateAction();
+        if (exitStateAction != null) {
+            try {
+                exitStateAction.accept(this, oldState, event, newState);
+            } catch (Exception ex) {
+                handleTransitionException(oldState, event, newState, ex, FSMTransitionStage.EXIT_OLD_STATE);
+                return FSMTriggerResult.ROLLED_BACK_EXIT_OLD_STATE;
+            }
+            if (timed) {
+                stageStartNanos = metrics.recordStage(FSMTransitionStage.EXIT_OLD_STATE, stageStartNanos);
+            }
+        }
+
+        var transitionAction = plan.transitionAction();
+        try {
+            if (transitionAction != null) {
+                transitionAction.accept(this, oldState, event, newState);
+            }
+            commitState(newState);
+        } catch (Exception ex) {
+            handleTransitionException(oldState, event, newState, ex, FSMTransitionStage.TRANSITION_ACTION);
+            return FSMTriggerResult.ROLLED_BACK_TRANSITION_ACTION;
+        }
+        if (timed && transitionAction != null) {
+            stageStartNanos = metrics.recordStage(FSMTransitionStage.TRANSITION_ACTION, stageStartNanos);
+        }
+
+        var enterStateAction = plan.enterStateAction();
+        if (enterStateAction != null) {
+            try {
+                enterStateAction.accept(this, oldState, event, newState);
+            } catch (Exception ex) {
+                commitState(oldState);
+                handleTransitionException(oldState, event, newState, ex, FSMTransitionStage.ENTER_NEW_STATE);
+                return FSMTriggerResult.ROLLED_BACK_ENTER_NEW_STATE;
+            }
+            if (timed) {
+                stageStartNanos = metrics.recordStage(FSMTransitionStage.ENTER_NEW_STATE, stageStartNanos);
+            }
+        }
+
+        try {
+            afterEachTransition(oldState, event, newState);
+        } catch (Exception ex) {
+            commitState(oldState);
+            handleTransitionException(oldState, event, newState, ex, FSMTransitionStage.AFTER_TRANSITION);
+            return FSMTriggerResult.ROLLED_BACK_AFTER_TRANSITION;
+        }
+        if (timed) {
+            metrics.recordStage(FSMTransitionStage.AFTER_TRANSITION, stageStartNanos);
+        }
+        return FSMTriggerResult.APPLIED;
+    }
+
+    // Moves the state once the transition action has run, and back when a later stage fails
+    void commitState(FSMState state) {
+        currentState = state;
+    }
+
+    // Called once a transition can no longer be rolled back
+    void onStateCommitted(FSMState oldState, FSMEvent event, FSMState newState) { }
+
+    void addListener(FSMStateListener listener) {
+        this.listener = FSMStateListener.add(this.listener, listener);
+    }
+
+    void removeListener(FSMStateListener listener) {
+        this.listener = FSMStateListener.remove(this.listener, listener);
+    }
+
+    <T extends FSMStateListener> T findListener(Class<T> type) {
+        return FSMStateListener.find(listener, type);
+    }
+
+    // Flight Recorder events are allocated only while they are enabled in a recording
+    static FSMTransitionEvent beginTransitionEvent() {
+        if (!FSMTransitionEvent.enabled()) {
+            return null;
+        }
+        var transitionEvent = new FSMTransitionEvent();
+        transitionEvent.begin();
+        return transitionEvent;
+    }
+
+    void transitionCommitted(FSMState oldState, FSMEvent event, FSMState newState, FSMTransitionEvent transitionEvent) {
+        if (transitionEvent != null && transitionEvent.shouldCommit()) {
+            transitionEvent.fsmClass = getClass().getName();
+            transitionEvent.oldState = String.valueOf(oldState);
+            transitionEvent.event = String.valueOf(event);
+            transitionEvent.newState = String.valueOf(newState);
+            transitionEvent.commit();
+        }
+        var metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordTransition(oldState, event);
+        }
+        var listener = this.listener;
+        if (listener != null) {
+            listener.stateCommitted(oldState, event, newState);
+        }
+    }
+
+    // Like the transition events, the String fields are filled only for the events which pass the threshold
+    void recordNoSuchTransition(FSMState state, FSMEvent event) {
+        if (FSMNoSuchTransitionEvent.enabled()) {
+            var noSuchTransitionEvent = new FSMNoSuchTransitionEvent();
+            noSuchTransitionEvent.begin();
+            if (noSuchTransitionEvent.shouldCommit()) {
+                noSuchTransitionEvent.fsmClass = getClass().getName();
+                noSuchTransitionEvent.state = String.valueOf(state);
+                noSuchTransitionEvent.event = String.valueOf(event);
+                noSuchTransitionEvent.commit();
+            }
+        }
+        var metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordNoSuchTransition();
+        }
+    }
+
+    void handleTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) {
+        if (FSMTransitionFailureEvent.enabled()) {
+            var failureEvent = new FSMTransitionFailureEvent();
+            failureEvent.begin();
+            if (failureEvent.shouldCommit()) {
+                failureEvent.fsmClass = getClass().getName();
+                failureEvent.oldState = String.valueOf(oldState);
+                failureEvent.event = String.valueOf(event);
+                failureEvent.newState = String.valueOf(newState);
+                failureEvent.stage = transitionStage.name();
+                failureEvent.exceptionClass = cause.getClass();
+                failureEvent.exceptionMessage = cause.getMessage();
+                failureEvent.commit();
+            }
+        }
+        var metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordStageFailure(transitionStage);
+        }
+        onTransitionException(oldState, event, newState, cause, transitionStage);
+    }
+
+    // Replaces the current state and the pending events with the ones of a snapshot
+    void restore(FSMState state, List<FSMEvent> events) {
+        currentState = state;
+        clearPendingEvents();
+        events.forEach(this::enqueuePendingEvent);
+        var listener = this.listener;
+        if (listener != null) {
+            listener.stateReplaced(state);
+        }
+    }
+
+    // Moves to the state without running anything, for runners which follow the transition table on their own.
+    // The listener still sees the new state, as it would after the transitions which were skipped
+    void skipTo(FSMState state) {
+        currentState = state;
+        var listener = this.listener;
+        if (listener != null) {
+            listener.stateReplaced(state);
+        }
+    }
+
+    // Instances whose state lives elsewhere or which must see every transition can't be skipped
+    boolean supportsSkipping() {
+        return true;
+    }
+
+    protected void triggerAfterwards(FSMEvent event) {
+        enqueueAfterwards(event);
+    }
+
+    // The path of actions which don't subclass the instance, see FSMAction.triggering
+    void enqueueAfterwards(FSMEvent event) {
+        enqueuePendingEvent(event);
+    }
+
+    private void enqueuePendingEvent(FSMEvent event) {
+        Objects.requireNonNull(event);
+        if (pendingEvents == null) {
+            pendingEvents = new RingBuffer<>(INITIAL_PENDING_EVENTS_CAPACITY);
+        }
+        pendingEvents.offer(event);
+    }
+
+    FSMEvent pollPendingEvent() {
+        return pendingEvents == null ? null : pendingEvents.poll();
+    }
+
+    int getPendingEventsCount() {
+        return pendingEvents == null ? 0 : pendingEvents.size();
+    }
+
+    FSMEvent getPendingEvent(int index) {
+        return pendingEvents.get(index);
+    }
+
+    void clearPendingEvents() {
+        if (pendingEvents != null && !pendingEvents.isEmpty()) {
+            pendingEvents.clear();
+        }
+    }
+}
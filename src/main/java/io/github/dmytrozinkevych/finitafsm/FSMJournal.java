@@ -0,0 +1,535 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMStoreMismatchException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of the transitions of entities driven by one enum-based {@link FSMDefinition}.
+ * Every transition is a fixed-size 32-byte record holding its sequence number, timestamp, entity ID,
+ * event ordinal, old and new state ordinals and a checksum, written to memory-mapped segment files of a directory.
+ * A full segment is forced to disk and a new one is started.
+ * <p>
+ * Appending never waits for the disk. {@link #sync(long)} forces the appended records with a group commit:
+ * one caller forces the segment while concurrent callers wait and are released by the same fsync.
+ * A group commit interval makes a background thread do the same periodically.
+ * Sequence numbers start at 1.
+ */
+public final class FSMJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x4C4A_4646;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int FORMAT_VERSION_OFFSET = 4;
+
+    private static final int FINGERPRINT_OFFSET = 8;
+
+    private static final int BASE_SEQUENCE_OFFSET = 16;
+
+    private static final int CAPACITY_OFFSET = 24;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int SEQUENCE_OFFSET = 0;
+
+    private static final int TIMESTAMP_OFFSET = 8;
+
+    private static final int ENTITY_ID_OFFSET = 16;
+
+    private static final int EVENT_OFFSET = 20;
+
+    private static final int OLD_STATE_OFFSET = 22;
+
+    private static final int NEW_STATE_OFFSET = 24;
+
+    private static final int CHECKSUM_OFFSET = 28;
+
+    private static final int RECORD_SIZE = 32;
+
+    private static final int MAX_ORDINALS_COUNT = 1 << Short.SIZE;
+
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+
+    private static final String SEGMENT_FILE_SUFFIX = ".journal";
+
+    public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 16;
+
+    public static final int MAX_SEGMENT_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final Path directory;
+
+    private final FSMDefinition definition;
+
+    private final FSMState[] states;
+
+    private final FSMEvent[] events;
+
+    private final long fingerprint;
+
+    private final int segmentCapacity;
+
+    private final Clock clock;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final Condition syncFinished = syncLock.newCondition();
+
+    private final ScheduledExecutorService groupCommitExecutor;
+
+    // Guarded by the append lock
+    private Segment currentSegment;
+
+    // Guarded by the append lock
+    private boolean closed;
+
+    // Written only under the append lock
+    private volatile long lastSequence;
+
+    // Written only under the sync lock
+    private volatile long durableSequence;
+
+    // Guarded by the sync lock
+    private boolean syncInProgress;
+
+    private FSMJournal(Builder builder) throws IOException {
+        directory = builder.directory;
+        definition = builder.definition;
+        states = definition.getStateConstants();
+        events = definition.getEventConstants();
+        fingerprint = definition.fingerprint();
+        segmentCapacity = builder.segmentCapacity;
+        clock = builder.clock;
+
+        Files.createDirectories(directory);
+        var segmentPaths = listSegments();
+        if (segmentPaths.isEmpty()) {
+            currentSegment = Segment.create(segmentPath(1), fingerprint, 1, segmentCapacity);
+        } else {
+            currentSegment = Segment.open(segmentPaths.get(segmentPaths.size() - 1), fingerprint);
+        }
+        lastSequence = currentSegment.baseSequence + currentSegment.count - 1;
+        durableSequence = lastSequence;
+
+        if (builder.groupCommitInterval != null) {
+            groupCommitExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+                var thread = new Thread(task, "finita-fsm-journal-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var intervalNanos = builder.groupCommitInterval.toNanos();
+            // A failed fsync cancels the periodic group commit, the failure then surfaces from the next sync call
+            groupCommitExecutor.scheduleWithFixedDelay(this::sync, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            groupCommitExecutor = null;
+        }
+    }
+
+    public static Builder builder(Path directory, FSMDefinition definition) {
+        return new Builder(directory, definition);
+    }
+
+    public FSMDefinition getDefinition() {
+        return definition;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    public long append(int entityId, FSMState oldState, FSMEvent event, FSMState newState) {
+        var oldStateOrdinal = requireStateOrdinal(oldState);
+        var newStateOrdinal = requireStateOrdinal(newState);
+        var eventOrdinal = definition.eventOrdinal(event);
+        if (eventOrdinal < 0) {
+            throw new IllegalArgumentException("Event %s doesn't belong to the definition of the journal".formatted(event));
+        }
+        var timestamp = clock.millis();
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new FSMException("FSM journal is closed");
+            }
+            if (currentSegment.isFull()) {
+                rollSegment();
+            }
+            var sequence = lastSequence + 1;
+            currentSegment.write(sequence, timestamp, entityId, eventOrdinal, oldStateOrdinal, newStateOrdinal);
+            lastSequence = sequence;
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private int requireStateOrdinal(FSMState state) {
+        var stateOrdinal = definition.stateOrdinal(state);
+        if (stateOrdinal < 0) {
+            throw new IllegalArgumentException("State %s doesn't belong to the definition of the journal".formatted(state));
+        }
+        return stateOrdinal;
+    }
+
+    private void rollSegment() {
+        try {
+            currentSegment.close();
+            var baseSequence = lastSequence + 1;
+            currentSegment = Segment.create(segmentPath(baseSequence), fingerprint, baseSequence, segmentCapacity);
+        } catch (IOException ex) {
+            throw new FSMException(ex);
+        }
+    }
+
+    public void sync() {
+        sync(lastSequence);
+    }
+
+    // Returns once all the records up to the sequence are on disk
+    public void sync(long sequence) {
+        if (sequence > lastSequence) {
+            throw new IllegalArgumentException("Sequence %d has not been appended yet".formatted(sequence));
+        }
+        syncLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (syncInProgress) {
+                    syncFinished.awaitUninterruptibly();
+                    continue;
+                }
+                syncInProgress = true;
+                syncLock.unlock();
+                var syncedSequence = 0L;
+                try {
+                    syncedSequence = forceAppended();
+                } finally {
+                    syncLock.lock();
+                    if (syncedSequence > durableSequence) {
+                        durableSequence = syncedSequence;
+                    }
+                    syncInProgress = false;
+                    syncFinished.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Full segments are forced when rolled, so only the current one needs to be
+    private long forceAppended() {
+        Segment segment;
+        long sequence;
+        appendLock.lock();
+        try {
+            segment = currentSegment;
+            sequence = lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        segment.buffer.force();
+        return sequence;
+    }
+
+    public void replay(long afterSequence, Consumer<? super FSMJournalRecord> consumer) throws IOException {
+        var segmentPaths = listSegments();
+        for (int i = 0; i < segmentPaths.size(); i++) {
+            if (i + 1 < segmentPaths.size() && baseSequenceOf(segmentPaths.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            replaySegment(segmentPaths.get(i), afterSequence, consumer);
+        }
+    }
+
+    private void replaySegment(Path path, long afterSequence, Consumer<? super FSMJournalRecord> consumer) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            checkHeader(buffer, fingerprint);
+            var baseSequence = buffer.getLong(BASE_SEQUENCE_OFFSET);
+            var capacity = buffer.getInt(CAPACITY_OFFSET);
+            for (var index = (int) Math.max(0, afterSequence + 1 - baseSequence); index < capacity; index++) {
+                var offset = HEADER_SIZE + index * RECORD_SIZE;
+                if (!isValidRecord(buffer, offset, baseSequence + index)) {
+                    break;
+                }
+                consumer.accept(new FSMJournalRecord(
+                        baseSequence + index,
+                        buffer.getLong(offset + TIMESTAMP_OFFSET),
+                        buffer.getInt(offset + ENTITY_ID_OFFSET),
+                        states[Short.toUnsignedInt(buffer.getShort(offset + OLD_STATE_OFFSET))],
+                        events[Short.toUnsignedInt(buffer.getShort(offset + EVENT_OFFSET))],
+                        states[Short.toUnsignedInt(buffer.getShort(offset + NEW_STATE_OFFSET))]
+                ));
+            }
+        }
+    }
+
+    // Rebuilds the states by applying the recorded events to the definition, without running any actions or hooks,
+    // and returns the sequence of the last applied record
+    public long replayInto(FSMStateStore store, long afterSequence) throws IOException {
+        if (store.getDefinition().fingerprint() != fingerprint) {
+            throw new FSMStoreMismatchException("The state store was written for a different FSM definition");
+        }
+        var lastAppliedSequence = new long[] { afterSequence };
+        replay(afterSequence, record -> {
+            var plan = definition.findTransition(record.oldState(), record.event());
+            if (plan == null || plan.newState() != record.newState()) {
+                throw new FSMException("Journal record %d doesn't match the FSM definition".formatted(record.sequence()));
+            }
+            store.write(record.entityId(), record.newState());
+            lastAppliedSequence[0] = record.sequence();
+        });
+        return lastAppliedSequence[0];
+    }
+
+    // Deletes the segments holding only records up to the sequence of a snapshot, returns the number of deleted segments
+    public int compact(long snapshotSequence) throws IOException {
+        var segmentPaths = listSegments();
+        Path currentSegmentPath;
+        appendLock.lock();
+        try {
+            currentSegmentPath = currentSegment.path;
+        } finally {
+            appendLock.unlock();
+        }
+        var deletedCount = 0;
+        for (int i = 0; i + 1 < segmentPaths.size(); i++) {
+            var path = segmentPaths.get(i);
+            if (path.equals(currentSegmentPath) || baseSequenceOf(segmentPaths.get(i + 1)) - 1 > snapshotSequence) {
+                break;
+            }
+            Files.delete(path);
+            deletedCount++;
+        }
+        return deletedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (groupCommitExecutor != null) {
+            groupCommitExecutor.shutdownNow();
+        }
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            currentSegment.close();
+            durableSequence = lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (var paths = Files.list(directory)) {
+            return paths
+                    .filter(path -> {
+                        var fileName = path.getFileName().toString();
+                        return fileName.startsWith(SEGMENT_FILE_PREFIX) && fileName.endsWith(SEGMENT_FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(FSMJournal::baseSequenceOf))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long baseSequence) {
+        return directory.resolve(SEGMENT_FILE_PREFIX + "%019d".formatted(baseSequence) + SEGMENT_FILE_SUFFIX);
+    }
+
+    private static long baseSequenceOf(Path segmentPath) {
+        var fileName = segmentPath.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+    }
+
+    private static void checkHeader(ByteBuffer buffer, long fingerprint) {
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(MAGIC_OFFSET) != MAGIC
+                || buffer.getInt(FORMAT_VERSION_OFFSET) != FORMAT_VERSION) {
+            throw new FSMStoreMismatchException("The file is not an FSM journal segment");
+        }
+        if (buffer.getLong(FINGERPRINT_OFFSET) != fingerprint) {
+            throw new FSMStoreMismatchException("The journal was written for a different FSM definition");
+        }
+        if (buffer.capacity() < HEADER_SIZE + (long) buffer.getInt(CAPACITY_OFFSET) * RECORD_SIZE) {
+            throw new FSMStoreMismatchException("The journal segment is truncated");
+        }
+    }
+
+    // Records past the last one appended are all zeros and never pass the check, neither do partially written ones
+    private static boolean isValidRecord(ByteBuffer buffer, int offset, long expectedSequence) {
+        return buffer.getLong(offset + SEQUENCE_OFFSET) == expectedSequence
+                && buffer.getInt(offset + CHECKSUM_OFFSET) == checksum(buffer, offset);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        var hash = 0x9E37_79B9_7F4A_7C15L;
+        for (int i = 0; i < CHECKSUM_OFFSET; i += Long.BYTES) {
+            var value = i + Long.BYTES <= CHECKSUM_OFFSET ? buffer.getLong(offset + i) : buffer.getInt(offset + i);
+            hash = (hash ^ value) * 0xBF58_476D_1CE4_E5B9L;
+            hash ^= hash >>> 31;
+        }
+        return (int) (hash ^ (hash >>> 32)) | 1;
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private final long baseSequence;
+
+        private final int capacity;
+
+        private int count;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer, long baseSequence, int capacity, int count) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.baseSequence = baseSequence;
+            this.capacity = capacity;
+            this.count = count;
+        }
+
+        private static Segment create(Path path, long fingerprint, long baseSequence, int capacity) throws IOException {
+            var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+                buffer.putLong(FINGERPRINT_OFFSET, fingerprint);
+                buffer.putLong(BASE_SEQUENCE_OFFSET, baseSequence);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+                buffer.force();
+                return new Segment(path, channel, buffer, baseSequence, capacity, 0);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        // The appending continues after the last valid record, overwriting a partially written one if there is any
+        private static Segment open(Path path, long fingerprint) throws IOException {
+            var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                checkHeader(buffer, fingerprint);
+                var baseSequence = buffer.getLong(BASE_SEQUENCE_OFFSET);
+                var capacity = buffer.getInt(CAPACITY_OFFSET);
+                var count = 0;
+                while (count < capacity && isValidRecord(buffer, HEADER_SIZE + count * RECORD_SIZE, baseSequence + count)) {
+                    count++;
+                }
+                return new Segment(path, channel, buffer, baseSequence, capacity, count);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        private boolean isFull() {
+            return count == capacity;
+        }
+
+        private void write(long sequence, long timestamp, int entityId, int eventOrdinal, int oldStateOrdinal, int newStateOrdinal) {
+            var offset = HEADER_SIZE + count * RECORD_SIZE;
+            buffer.putLong(offset + SEQUENCE_OFFSET, sequence);
+            buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+            buffer.putInt(offset + ENTITY_ID_OFFSET, entityId);
+            buffer.putShort(offset + EVENT_OFFSET, (short) eventOrdinal);
+            buffer.putShort(offset + OLD_STATE_OFFSET, (short) oldStateOrdinal);
+            buffer.putShort(offset + NEW_STATE_OFFSET, (short) newStateOrdinal);
+            buffer.putShort(offset + NEW_STATE_OFFSET + Short.BYTES, (short) 0);
+            buffer.putInt(offset + CHECKSUM_OFFSET, checksum(buffer, offset));
+            count++;
+        }
+
+        private void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    public static final class Builder {
+
+        private final Path directory;
+
+        private final FSMDefinition definition;
+
+        private int segmentCapacity = DEFAULT_SEGMENT_CAPACITY;
+
+        private Duration groupCommitInterval;
+
+        private Clock clock = Clock.systemUTC();
+
+        private Builder(Path directory, FSMDefinition definition) {
+            if (!definition.isDense()) {
+                throw new FSMException("Journals require all states and all events to be constants of one enum each");
+            }
+            if (definition.getStateConstants().length > MAX_ORDINALS_COUNT || definition.getEventCount() > MAX_ORDINALS_COUNT) {
+                throw new FSMException("Journals support at most %d states and %d events".formatted(MAX_ORDINALS_COUNT, MAX_ORDINALS_COUNT));
+            }
+            this.directory = directory;
+            this.definition = definition;
+        }
+
+        // The number of records per segment file, applies to the segments created from now on
+        public Builder segmentCapacity(int segmentCapacity) {
+            if (segmentCapacity <= 0 || segmentCapacity > MAX_SEGMENT_CAPACITY) {
+                throw new IllegalArgumentException("Segment capacity must be between 1 and %d".formatted(MAX_SEGMENT_CAPACITY));
+            }
+            this.segmentCapacity = segmentCapacity;
+            return this;
+        }
+
+        public Builder groupCommitInterval(Duration groupCommitInterval) {
+            if (groupCommitInterval.isNegative() || groupCommitInterval.isZero()) {
+                throw new IllegalArgumentException("Group commit interval must be positive");
+            }
+            this.groupCommitInterval = groupCommitInterval;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public FSMJournal open() throws IOException {
+            return new FSMJournal(this);
+        }
+    }
+}
@@ -0,0 +1,3 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+public record FSMJournalRecord(long sequence, long timestamp, int entityId, FSMState oldState, FSMEvent event, FSMState newState) { }
@@ -0,0 +1,48 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+/**
+ * {@link FSMInstance} appending every committed transition, including follow-up ones, to a journal.
+ * Appending only writes to the memory-mapped segment, the fsync is left to {@link FSMJournal#sync()}.
+ */
+public class FSMJournaledInstance extends FSMInstance {
+
+    private final FSMJournal journal;
+
+    private final int entityId;
+
+    public FSMJournaledInstance(FSMJournal journal, int entityId) {
+        this(journal, entityId, journal.getDefinition().getInitialState());
+    }
+
+    public FSMJournaledInstance(FSMJournal journal, int entityId, FSMState initialState) {
+        super(journal.getDefinition(), initialState);
+        this.journal = journal;
+        this.entityId = entityId;
+    }
+
+    public FSMJournal getJournal() {
+        return journal;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    // Appended before the transition is reported to checkpointers, timers, stores and metrics. An append which fails
+    // moves the instance back to the old state and throws, so that the instance never gets ahead of its journal
+    @Override
+    void onStateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+        try {
+            journal.append(entityId, oldState, event, newState);
+        } catch (RuntimeException ex) {
+            commitState(oldState);
+            throw ex;
+        }
+    }
+
+    // A skipped transition has no event to append, so the journal could no longer be replayed
+    @Override
+    boolean supportsSkipping() {
+        return false;
+    }
+}
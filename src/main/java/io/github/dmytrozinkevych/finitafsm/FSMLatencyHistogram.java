@@ -0,0 +1,106 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory, HDR-style histogram of latencies in nanoseconds.
+ * Values are counted in log-linear buckets: every power of two is split into 8 sub-buckets,
+ * so any recorded value is reported with an error of at most 12.5%, whatever its magnitude.
+ */
+public final class FSMLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS_COUNT) {
+            return (int) Math.max(nanos, 0);
+        }
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        var subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS_COUNT + subBucket;
+    }
+
+    // The highest value which is counted in the bucket
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS_COUNT) {
+            return index;
+        }
+        var shift = index / SUB_BUCKETS_COUNT - 1;
+        var lowerBound = (long) (SUB_BUCKETS_COUNT + index % SUB_BUCKETS_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulate(nanos);
+        }
+    }
+
+    public long getCount() {
+        var count = 0L;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        var count = getCount();
+        return count == 0 ? 0 : (double) getTotalNanos() / count;
+    }
+
+    // Returns the upper bound of the bucket holding the value at the percentile, from 0 to 100
+    public long getNanosAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        var bucketCounts = new long[BUCKETS_COUNT];
+        var count = 0L;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            bucketCounts[i] = counts.get(i);
+            count += bucketCounts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMMailboxFullException;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Actor-style front of an {@link FSMInstance}: events from any number of producer threads are queued
+ * and triggered one by one by a drain task, which is scheduled on the executor only while the mailbox is not empty.
+ * The instance is therefore only ever accessed by one thread at a time and needs no locking.
+ * On Java 21+ a virtual thread per task executor is a good fit for the executor.
+ */
+public class FSMMailbox {
+
+    public enum OverflowPolicy {
+        REJECT, BLOCK
+    }
+
+    private record Envelope(FSMEvent event, CompletableFuture<FSMState> result) { }
+
+    private static final int DEFAULT_THROUGHPUT = 64;
+
+    private final FSMInstance fsm;
+
+    private final Executor executor;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final int throughput;
+
+    private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+
+    private final Semaphore freeSlots;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public FSMMailbox(FSMInstance fsm) {
+        this(fsm, ForkJoinPool.commonPool(), Integer.MAX_VALUE, OverflowPolicy.REJECT);
+    }
+
+    public FSMMailbox(FSMInstance fsm, Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+        this(fsm, executor, capacity, overflowPolicy, DEFAULT_THROUGHPUT);
+    }
+
+    // throughput limits how many events one drain task processes before giving the executor thread back
+    public FSMMailbox(FSMInstance fsm, Executor executor, int capacity, OverflowPolicy overflowPolicy, int throughput) {
+        if (capacity <= 0 || throughput <= 0) {
+            throw new IllegalArgumentException("Capacity and throughput must be positive");
+        }
+        this.fsm = fsm;
+        this.executor = executor;
+        this.overflowPolicy = overflowPolicy;
+        this.throughput = throughput;
+        this.freeSlots = new Semaphore(capacity);
+    }
+
+    public FSMInstance getFsm() {
+        return fsm;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public CompletableFuture<FSMState> triggerAsync(FSMEvent event) {
+        var result = new CompletableFuture<FSMState>();
+        if (!reserveSlot(result)) {
+            return result;
+        }
+        queue.offer(new Envelope(event, result));
+        scheduleDrain();
+        return result;
+    }
+
+    private boolean reserveSlot(CompletableFuture<FSMState> result) {
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            if (!freeSlots.tryAcquire()) {
+                result.completeExceptionally(new FSMMailboxFullException());
+                return false;
+            }
+            return true;
+        }
+        try {
+            freeSlots.acquire();
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(ex);
+            return false;
+        }
+    }
+
+    private void scheduleDrain() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException ex) {
+                scheduled.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < throughput; i++) {
+                var envelope = queue.poll();
+                if (envelope == null) {
+                    break;
+                }
+                process(envelope);
+            }
+        } finally {
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    // Errors of actions are delivered to the caller as well, so that no future is left incomplete
+    private void process(Envelope envelope) {
+        try {
+            envelope.result().complete(fsm.trigger(envelope.event()));
+        } catch (Throwable ex) {
+            envelope.result().completeExceptionally(ex);
+        } finally {
+            freeSlots.release();
+        }
+    }
+}
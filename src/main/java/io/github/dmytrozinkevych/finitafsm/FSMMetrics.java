@@ -0,0 +1,109 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in metrics of FSM instances: committed transitions per state and event, events without a transition,
+ * failures and latency histograms per {@link FSMTransitionStage}.
+ * One metrics object can be shared by any number of instances and threads.
+ * Instances without metrics pay for a single null check per transition.
+ * Stage latencies are measured only for the stages which run something, optionally for a sample of the transitions.
+ */
+public final class FSMMetrics {
+
+    private static final FSMTransitionStage[] STAGES = FSMTransitionStage.values();
+
+    private final Map<FSMState, Map<FSMEvent, LongAdder>> transitionCounts = new ConcurrentHashMap<>();
+
+    private final LongAdder noSuchTransitionCount = new LongAdder();
+
+    private final LongAdder[] stageFailureCounts = new LongAdder[STAGES.length];
+
+    private final FSMLatencyHistogram[] stageLatencies = new FSMLatencyHistogram[STAGES.length];
+
+    private final int latencySamplingInterval;
+
+    public FSMMetrics() {
+        this(1);
+    }
+
+    // Reading the clock costs more than the rest of a transition, so only every n-th transition on average may be timed,
+    // while the counters are always exact
+    public FSMMetrics(int latencySamplingInterval) {
+        if (latencySamplingInterval <= 0) {
+            throw new IllegalArgumentException("Latency sampling interval must be positive");
+        }
+        this.latencySamplingInterval = latencySamplingInterval;
+        for (int i = 0; i < STAGES.length; i++) {
+            stageFailureCounts[i] = new LongAdder();
+            stageLatencies[i] = new FSMLatencyHistogram();
+        }
+    }
+
+    public int getLatencySamplingInterval() {
+        return latencySamplingInterval;
+    }
+
+    boolean sampleLatency() {
+        return latencySamplingInterval == 1 || ThreadLocalRandom.current().nextInt(latencySamplingInterval) == 0;
+    }
+
+    void recordTransition(FSMState oldState, FSMEvent event) {
+        var eventCounts = transitionCounts.get(oldState);
+        if (eventCounts == null) {
+            eventCounts = transitionCounts.computeIfAbsent(oldState, state -> new ConcurrentHashMap<>());
+        }
+        var count = eventCounts.get(event);
+        if (count == null) {
+            count = eventCounts.computeIfAbsent(event, e -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    void recordNoSuchTransition() {
+        noSuchTransitionCount.increment();
+    }
+
+    void recordStageFailure(FSMTransitionStage stage) {
+        stageFailureCounts[stage.ordinal()].increment();
+    }
+
+    // Returns the end of the stage, which is the start of the next one
+    long recordStage(FSMTransitionStage stage, long startNanos) {
+        var endNanos = System.nanoTime();
+        stageLatencies[stage.ordinal()].record(endNanos - startNanos);
+        return endNanos;
+    }
+
+    public long getTransitionCount(FSMState oldState, FSMEvent event) {
+        var eventCounts = transitionCounts.get(oldState);
+        var count = eventCounts == null ? null : eventCounts.get(event);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getNoSuchTransitionCount() {
+        return noSuchTransitionCount.sum();
+    }
+
+    public long getStageFailureCount(FSMTransitionStage stage) {
+        return stageFailureCounts[stage.ordinal()].sum();
+    }
+
+    public FSMLatencyHistogram getStageLatency(FSMTransitionStage stage) {
+        return stageLatencies[stage.ordinal()];
+    }
+
+    public void exportTo(FSMMetricsExporter exporter) {
+        transitionCounts.forEach((oldState, eventCounts) -> eventCounts.forEach((event, count) ->
+                exporter.transitionCount(oldState, event, count.sum())
+        ));
+        exporter.noSuchTransitionCount(getNoSuchTransitionCount());
+        for (var stage : STAGES) {
+            exporter.stageFailureCount(stage, getStageFailureCount(stage));
+            exporter.stageLatency(stage, getStageLatency(stage));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+public interface FSMMetricsExporter {
+
+    default void transitionCount(FSMState oldState, FSMEvent event, long count) { }
+
+    default void noSuchTransitionCount(long count) { }
+
+    default void stageFailureCount(FSMTransitionStage stage, long count) { }
+
+    default void stageLatency(FSMTransitionStage stage, FSMLatencyHistogram histogram) { }
+}
@@ -0,0 +1,29 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.dmytrozinkevych.finitafsm.NoSuchTransition")
+@Label("FSM No Such Transition")
+@Description("Event triggered in a state which has no transition for it")
+@Category("Finita FSM")
+class FSMNoSuchTransitionEvent extends Event {
+
+    private static final FSMNoSuchTransitionEvent PROBE = new FSMNoSuchTransitionEvent();
+
+    @Label("FSM Class")
+    String fsmClass;
+
+    @Label("State")
+    String state;
+
+    @Label("Event")
+    String event;
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+}
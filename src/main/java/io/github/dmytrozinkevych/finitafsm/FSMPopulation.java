@@ -0,0 +1,429 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import io.github.dmytrozinkevych.finitafsm.utils.Pair;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * States of a whole population of entities driven by one enum-based {@link FSMDefinition}.
+ * Instead of an FSM object per entity, the state ordinal of every entity is stored in a {@code byte[]},
+ * or in a {@code short[]} when there are more than 256 states, indexed by the entity ID.
+ * <p>
+ * Exit, transition and enter actions run before the new state is committed with an array element CAS,
+ * so different entities can be triggered concurrently. When the same entity is triggered concurrently,
+ * the losing transition starts over and its actions run again.
+ */
+public final class FSMPopulation {
+
+    private static final VarHandle BYTE_STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final VarHandle SHORT_STATES = MethodHandles.arrayElementVarHandle(short[].class);
+
+    private static final int MAX_BYTE_STATES_COUNT = 1 << Byte.SIZE;
+
+    private static final int MAX_SHORT_STATES_COUNT = 1 << Short.SIZE;
+
+    // Broadcasts are split into blocks whose old states are kept for the actions, in parallel into chunks of blocks
+    private static final int BROADCAST_BLOCK_SIZE = 4 * 1024;
+
+    private static final int BROADCAST_CHUNK_SIZE = 16 * BROADCAST_BLOCK_SIZE;
+
+    private record EntityTransitionPlan(
+            int newStateOrdinal,
+            FSMState newState,
+            FSMEntityAction exitStateAction,
+            FSMEntityAction transitionAction,
+            FSMEntityAction enterStateAction
+    ) { }
+
+    private final FSMDefinition definition;
+
+    private final FSMState[] states;
+
+    private final int eventCount;
+
+    private final EntityTransitionPlan[] plans;
+
+    private final byte[] byteStates;
+
+    private final short[] shortStates;
+
+    private final LongAdder[] stateCounts;
+
+    private final FSMBroadcastKernel broadcastKernel;
+
+    private FSMPopulation(Builder builder) {
+        definition = builder.definition;
+        states = definition.getStateConstants();
+        eventCount = definition.getEventCount();
+        plans = compilePlans(builder);
+
+        var initialStateOrdinal = definition.stateOrdinal(definition.getInitialState());
+        if (initialStateOrdinal < 0) {
+            throw new FSMHasNoInitialStateSetException();
+        }
+        if (states.length <= MAX_BYTE_STATES_COUNT) {
+            byteStates = new byte[builder.size];
+            shortStates = null;
+            Arrays.fill(byteStates, (byte) initialStateOrdinal);
+        } else {
+            byteStates = null;
+            shortStates = new short[builder.size];
+            Arrays.fill(shortStates, (short) initialStateOrdinal);
+        }
+        stateCounts = new LongAdder[states.length];
+        for (int i = 0; i < states.length; i++) {
+            stateCounts[i] = new LongAdder();
+        }
+        stateCounts[initialStateOrdinal].add(builder.size);
+        broadcastKernel = FSMBroadcastKernel.forStates(states.length);
+    }
+
+    private EntityTransitionPlan[] compilePlans(Builder builder) {
+        var compiledPlans = new EntityTransitionPlan[states.length * eventCount];
+        for (int stateOrdinal = 0; stateOrdinal < states.length; stateOrdinal++) {
+            for (int eventOrdinal = 0; eventOrdinal < eventCount; eventOrdinal++) {
+                var plan = definition.findTransition(stateOrdinal, eventOrdinal);
+                if (plan == null) {
+                    continue;
+                }
+                compiledPlans[stateOrdinal * eventCount + eventOrdinal] = new EntityTransitionPlan(
+                        definition.stateOrdinal(plan.newState()),
+                        plan.newState(),
+                        sequenceOf(definition.exitedStates(plan.oldState(), plan.newState()), builder, false),
+                        transitionActionOf(plan, builder),
+                        sequenceOf(definition.enteredStates(plan.oldState(), plan.newState()), builder, true)
+                );
+            }
+        }
+        return compiledPlans;
+    }
+
+    // An inherited transition runs the action set on the state which declares it, unless the inheriting state has its own
+    private FSMEntityAction transitionActionOf(FSMTransitionPlan plan, Builder builder) {
+        var declaredTransitions = definition.getDeclaredTransitions();
+        for (var state = plan.oldState(); state != null; state = definition.getParentState(state).orElse(null)) {
+            var action = builder.transitionActions.get(new Pair<>(state, plan.event()));
+            if (action != null || declaredTransitions.getOrDefault(state, Map.of()).containsKey(plan.event())) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private static FSMEntityAction sequenceOf(List<FSMState> states, Builder builder, boolean enter) {
+        var actions = states.stream()
+                .map(builder.statesEnterExitActions::get)
+                .filter(Objects::nonNull)
+                .map(stateActions -> enter ? stateActions.left() : stateActions.right())
+                .filter(Objects::nonNull)
+                .toArray(FSMEntityAction[]::new);
+        return switch (actions.length) {
+            case 0 -> null;
+            case 1 -> actions[0];
+            default -> (entityId, oldState, event, newState) -> {
+                for (var action : actions) {
+                    action.accept(entityId, oldState, event, newState);
+                }
+            };
+        };
+    }
+
+    public static Builder builder(FSMDefinition definition, int size) {
+        return new Builder(definition, size);
+    }
+
+    public FSMDefinition getDefinition() {
+        return definition;
+    }
+
+    public int size() {
+        return byteStates != null ? byteStates.length : shortStates.length;
+    }
+
+    public FSMState stateOf(int entityId) {
+        return states[stateOrdinalOf(entityId)];
+    }
+
+    public int stateOrdinalOf(int entityId) {
+        return byteStates != null
+                ? Byte.toUnsignedInt((byte) BYTE_STATES.getAcquire(byteStates, entityId))
+                : Short.toUnsignedInt((short) SHORT_STATES.getAcquire(shortStates, entityId));
+    }
+
+    private boolean compareAndSetStateOrdinal(int entityId, int expectedOrdinal, int newOrdinal) {
+        return byteStates != null
+                ? BYTE_STATES.compareAndSet(byteStates, entityId, (byte) expectedOrdinal, (byte) newOrdinal)
+                : SHORT_STATES.compareAndSet(shortStates, entityId, (short) expectedOrdinal, (short) newOrdinal);
+    }
+
+    public long countOf(FSMState state) {
+        var stateOrdinal = definition.stateOrdinal(state);
+        return stateOrdinal < 0 ? 0 : stateCounts[stateOrdinal].sum();
+    }
+
+    public Map<FSMState, Long> counts() {
+        var counts = new LinkedHashMap<FSMState, Long>();
+        for (int i = 0; i < states.length; i++) {
+            counts.put(states[i], stateCounts[i].sum());
+        }
+        return counts;
+    }
+
+    public FSMState trigger(int entityId, FSMEvent event) {
+        var eventOrdinal = definition.eventOrdinal(event);
+        while (true) {
+            var oldStateOrdinal = stateOrdinalOf(entityId);
+            var oldState = states[oldStateOrdinal];
+            var plan = eventOrdinal < 0 ? null : plans[oldStateOrdinal * eventCount + eventOrdinal];
+            if (plan == null) {
+                throw definition.noSuchTransition(oldState, event);
+            }
+            runActions(plan, entityId, oldState, event);
+            if (compareAndSetStateOrdinal(entityId, oldStateOrdinal, plan.newStateOrdinal())) {
+                stateCounts[oldStateOrdinal].decrement();
+                stateCounts[plan.newStateOrdinal()].increment();
+                return plan.newState();
+            }
+        }
+    }
+
+    private void runActions(EntityTransitionPlan plan, int entityId, FSMState oldState, FSMEvent event) {
+        var newState = plan.newState();
+        try {
+            if (plan.exitStateAction() != null) {
+                plan.exitStateAction().accept(entityId, oldState, event, newState);
+            }
+            if (plan.transitionAction() != null) {
+                plan.transitionAction().accept(entityId, oldState, event, newState);
+            }
+            if (plan.enterStateAction() != null) {
+                plan.enterStateAction().accept(entityId, oldState, event, newState);
+            }
+        } catch (Exception ex) {
+            throw new FSMException(ex, !definition.hasStacklessExceptions());
+        }
+    }
+
+    public BitSet broadcast(FSMEvent event) {
+        return broadcast(event, null);
+    }
+
+    // Applies the event to every entity which has a transition for it from its current state, entities without one
+    // keep their state. The states are replaced through a table lookup, vectorized when the application adds
+    // the jdk.incubator.vector module, and split into chunks which run on the pool when it's given.
+    // Returns the entities which have taken a transition, their actions run once the states of their block are stored.
+    // A broadcast must not run concurrently with other triggers of the population.
+    public BitSet broadcast(FSMEvent event, ForkJoinPool pool) {
+        var eventOrdinal = definition.eventOrdinal(event);
+        if (eventOrdinal < 0) {
+            return new BitSet();
+        }
+        var broadcast = new Broadcast(event, eventOrdinal);
+        var completed = false;
+        try {
+            if (pool == null) {
+                broadcast.run(0, size());
+            } else {
+                pool.invoke(new BroadcastTask(broadcast, 0, size()));
+            }
+            completed = true;
+        } finally {
+            updateStateCounts(broadcast, completed);
+        }
+        return BitSet.valueOf(broadcast.words);
+    }
+
+    // Every entity in a state with a transition has moved, unless a failed action has stopped the broadcast
+    private void updateStateCounts(Broadcast broadcast, boolean completed) {
+        if (!completed) {
+            var counts = new long[states.length];
+            for (int entityId = 0; entityId < size(); entityId++) {
+                counts[stateOrdinalOf(entityId)]++;
+            }
+            for (int i = 0; i < states.length; i++) {
+                stateCounts[i].add(counts[i] - stateCounts[i].sum());
+            }
+            return;
+        }
+        for (int i = 0; i < states.length; i++) {
+            var movedCount = broadcast.movedCounts[i];
+            if (movedCount != 0) {
+                stateCounts[i].add(-movedCount);
+                stateCounts[broadcast.newStateOrdinals[i]].add(movedCount);
+            }
+        }
+    }
+
+    private final class Broadcast {
+
+        private final FSMEvent event;
+
+        private final int eventOrdinal;
+
+        private final int[] newStateOrdinals = new int[states.length];
+
+        private final long[] movedCounts = new long[states.length];
+
+        private final byte[] byteNewStates;
+
+        private final byte[] byteTransitions;
+
+        private final boolean hasActions;
+
+        private final long[] words;
+
+        Broadcast(FSMEvent event, int eventOrdinal) {
+            this.event = event;
+            this.eventOrdinal = eventOrdinal;
+            var hasActions = false;
+            for (int i = 0; i < states.length; i++) {
+                var plan = plans[i * eventCount + eventOrdinal];
+                newStateOrdinals[i] = plan == null ? i : plan.newStateOrdinal();
+                if (plan != null) {
+                    movedCounts[i] = stateCounts[i].sum();
+                    hasActions |= plan.exitStateAction() != null || plan.transitionAction() != null || plan.enterStateAction() != null;
+                }
+            }
+            this.hasActions = hasActions;
+            if (byteStates != null) {
+                byteNewStates = new byte[broadcastKernel.getMaxStatesCount()];
+                byteTransitions = new byte[byteNewStates.length];
+                for (int i = 0; i < states.length; i++) {
+                    byteNewStates[i] = (byte) newStateOrdinals[i];
+                    byteTransitions[i] = (byte) (plans[i * eventCount + eventOrdinal] != null ? 1 : 0);
+                }
+            } else {
+                byteNewStates = null;
+                byteTransitions = null;
+            }
+            words = new long[-Math.floorDiv(-size(), Long.SIZE)];
+        }
+
+        // The range starts at a block boundary, so different ranges never share a word
+        void run(int from, int to) {
+            var oldStates = hasActions ? new int[BROADCAST_BLOCK_SIZE] : null;
+            for (int blockStart = from; blockStart < to; blockStart += BROADCAST_BLOCK_SIZE) {
+                var blockEnd = Math.min(blockStart + BROADCAST_BLOCK_SIZE, to);
+                if (oldStates != null) {
+                    for (int i = blockStart; i < blockEnd; i++) {
+                        oldStates[i - blockStart] = stateOrdinalOf(i);
+                    }
+                }
+                if (byteStates != null) {
+                    broadcastKernel.apply(byteStates, blockStart, blockEnd, byteNewStates, byteTransitions, words);
+                } else {
+                    applyToShortStates(blockStart, blockEnd);
+                }
+                if (oldStates != null) {
+                    runBlockActions(blockStart, blockEnd, oldStates);
+                }
+            }
+        }
+
+        private void applyToShortStates(int from, int to) {
+            for (int i = from; i < to; i++) {
+                var state = Short.toUnsignedInt(shortStates[i]);
+                if (plans[state * eventCount + eventOrdinal] != null) {
+                    shortStates[i] = (short) newStateOrdinals[state];
+                    words[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+
+        private void runBlockActions(int from, int to, int[] oldStates) {
+            for (int word = from >>> 6, lastWord = (to - 1) >>> 6; word <= lastWord; word++) {
+                for (var bits = words[word]; bits != 0; bits &= bits - 1) {
+                    var entityId = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    var oldStateOrdinal = oldStates[entityId - from];
+                    runActions(plans[oldStateOrdinal * eventCount + eventOrdinal], entityId, states[oldStateOrdinal], event);
+                }
+            }
+        }
+    }
+
+    private static final class BroadcastTask extends RecursiveAction {
+
+        private final Broadcast broadcast;
+
+        private final int from;
+
+        private final int to;
+
+        BroadcastTask(Broadcast broadcast, int from, int to) {
+            this.broadcast = broadcast;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BROADCAST_CHUNK_SIZE) {
+                broadcast.run(from, to);
+                return;
+            }
+            // Splitting at a chunk boundary keeps the ranges aligned to the blocks
+            var middle = from + (to - from) / 2 / BROADCAST_CHUNK_SIZE * BROADCAST_CHUNK_SIZE;
+            if (middle == from) {
+                middle += BROADCAST_CHUNK_SIZE;
+            }
+            invokeAll(new BroadcastTask(broadcast, from, middle), new BroadcastTask(broadcast, middle, to));
+        }
+    }
+
+    public static final class Builder {
+
+        private final FSMDefinition definition;
+
+        private final int size;
+
+        private final Map<Pair<FSMState, FSMEvent>, FSMEntityAction> transitionActions = new HashMap<>();
+
+        private final Map<FSMState, Pair<FSMEntityAction, FSMEntityAction>> statesEnterExitActions = new HashMap<>();
+
+        private Builder(FSMDefinition definition, int size) {
+            if (!definition.isDense()) {
+                throw new FSMException("Populations require all states and all events to be constants of one enum each");
+            }
+            if (definition.getStateConstants().length > MAX_SHORT_STATES_COUNT) {
+                throw new FSMException("Populations support at most %d states".formatted(MAX_SHORT_STATES_COUNT));
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("Population size must not be negative");
+            }
+            this.definition = definition;
+            this.size = size;
+        }
+
+        public Builder transitionAction(FSMState oldState, FSMEvent event, FSMEntityAction action) {
+            if (definition.findTransition(oldState, event) == null) {
+                throw new NoSuchTransitionException(oldState, event);
+            }
+            transitionActions.put(new Pair<>(oldState, event), action);
+            return this;
+        }
+
+        public Builder stateActions(FSMState state, FSMEntityAction enterStateAction, FSMEntityAction exitStateAction) {
+            statesEnterExitActions.put(state, new Pair<>(enterStateAction, exitStateAction));
+            return this;
+        }
+
+        public FSMPopulation build() {
+            return new FSMPopulation(this);
+        }
+    }
+}
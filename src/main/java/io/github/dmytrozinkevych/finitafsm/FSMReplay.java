@@ -0,0 +1,242 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Offline replay of recorded event traces of one enum-based {@link FSMDefinition}. Every entity's events are run
+ * in their recorded order through a fresh FSM, while different entities are replayed in parallel on a
+ * {@link ForkJoinPool}. Nothing is shared between the replaying threads, so the replay scales with the cores.
+ * <p>
+ * With actions, every entity gets an instance from the instance factory and behaves exactly like it does live,
+ * follow-up events included. Without them, only the transition table is followed, which is a couple of array reads
+ * per event. Either way the result holds the final states, the committed transitions and the rejected events.
+ */
+public final class FSMReplay {
+
+    private final FSMDefinition definition;
+
+    private final boolean actions;
+
+    private final Function<FSMDefinition, ? extends FSMInstance> instanceFactory;
+
+    private final ForkJoinPool pool;
+
+    private final FSMEvent[] events;
+
+    private final int initialStateOrdinal;
+
+    private FSMReplay(Builder builder) {
+        definition = builder.definition;
+        actions = builder.actions;
+        instanceFactory = builder.instanceFactory;
+        pool = builder.pool;
+        events = definition.getEventConstants();
+        initialStateOrdinal = definition.stateOrdinal(definition.getInitialState());
+        if (initialStateOrdinal < 0) {
+            throw new FSMHasNoInitialStateSetException();
+        }
+    }
+
+    public static Builder builder(FSMDefinition definition) {
+        return new Builder(definition);
+    }
+
+    // Grouping the (entity, event) pairs by entity is a single pass in the encounter order of the stream,
+    // traces which are already grouped are replayed with replayGrouped
+    public FSMReplayResult replay(Stream<? extends Map.Entry<?, ? extends FSMEvent>> keyedEvents) {
+        var entityEvents = new LinkedHashMap<Object, List<FSMEvent>>();
+        keyedEvents.forEachOrdered(keyedEvent ->
+                entityEvents.computeIfAbsent(keyedEvent.getKey(), entity -> new ArrayList<>()).add(keyedEvent.getValue())
+        );
+        return replayGrouped(new ArrayList<>(entityEvents.values()));
+    }
+
+    public FSMReplayResult replayGrouped(List<? extends Iterable<? extends FSMEvent>> entityEvents) {
+        // A few tasks per worker balance entities with traces of different lengths
+        var threshold = Math.max(1, entityEvents.size() / (pool.getParallelism() * 8));
+        var counts = pool.invoke(new ReplayTask(entityEvents, 0, entityEvents.size(), threshold));
+        return new FSMReplayResult(definition, entityEvents.size(), counts);
+    }
+
+    // Counts of a range of entities, indexed by the ordinals like the dense table of the definition
+    static final class Counts implements FSMStateListener {
+
+        private final FSMDefinition definition;
+
+        final long[] finalStateCounts;
+
+        final long[] transitionCounts;
+
+        final long[] rejectedEventCounts;
+
+        long eventsCount;
+
+        // Events which aren't constants of the event enum of the definition
+        long unknownEventsCount;
+
+        long failedEventsCount;
+
+        private Counts(FSMDefinition definition) {
+            this.definition = definition;
+            var stateCount = definition.getStateConstants().length;
+            var eventCount = definition.getEventCount();
+            finalStateCounts = new long[stateCount];
+            transitionCounts = new long[stateCount * eventCount];
+            rejectedEventCounts = new long[stateCount * eventCount];
+        }
+
+        // Called by the replaying instances for every committed transition, follow-up events included
+        @Override
+        public void stateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+            transitionCounts[definition.stateOrdinal(oldState) * definition.getEventCount() + definition.eventOrdinal(event)]++;
+        }
+
+        private Counts add(Counts other) {
+            for (int i = 0; i < finalStateCounts.length; i++) {
+                finalStateCounts[i] += other.finalStateCounts[i];
+            }
+            for (int i = 0; i < transitionCounts.length; i++) {
+                transitionCounts[i] += other.transitionCounts[i];
+                rejectedEventCounts[i] += other.rejectedEventCounts[i];
+            }
+            eventsCount += other.eventsCount;
+            unknownEventsCount += other.unknownEventsCount;
+            failedEventsCount += other.failedEventsCount;
+            return this;
+        }
+    }
+
+    private final class ReplayTask extends RecursiveTask<Counts> {
+
+        private final List<? extends Iterable<? extends FSMEvent>> entityEvents;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        ReplayTask(List<? extends Iterable<? extends FSMEvent>> entityEvents, int from, int to, int threshold) {
+            this.entityEvents = entityEvents;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from <= threshold) {
+                var counts = new Counts(definition);
+                for (int i = from; i < to; i++) {
+                    if (actions) {
+                        replayInstance(entityEvents.get(i), counts);
+                    } else {
+                        replayTable(entityEvents.get(i), counts);
+                    }
+                }
+                return counts;
+            }
+            var middle = (from + to) >>> 1;
+            var left = new ReplayTask(entityEvents, from, middle, threshold);
+            left.fork();
+            var right = new ReplayTask(entityEvents, middle, to, threshold).compute();
+            return left.join().add(right);
+        }
+    }
+
+    private void replayTable(Iterable<? extends FSMEvent> entityEvents, Counts counts) {
+        var eventCount = events.length;
+        var stateOrdinal = initialStateOrdinal;
+        for (var event : entityEvents) {
+            counts.eventsCount++;
+            var eventOrdinal = definition.eventOrdinal(event);
+            if (eventOrdinal < 0) {
+                counts.unknownEventsCount++;
+                continue;
+            }
+            var index = stateOrdinal * eventCount + eventOrdinal;
+            var plan = definition.findTransition(stateOrdinal, eventOrdinal);
+            if (plan == null) {
+                counts.rejectedEventCounts[index]++;
+            } else {
+                counts.transitionCounts[index]++;
+                stateOrdinal = definition.stateOrdinal(plan.newState());
+            }
+        }
+        counts.finalStateCounts[stateOrdinal]++;
+    }
+
+    private void replayInstance(Iterable<? extends FSMEvent> entityEvents, Counts counts) {
+        var fsm = instanceFactory.apply(definition);
+        fsm.addListener(counts);
+        for (var event : entityEvents) {
+            counts.eventsCount++;
+            var eventOrdinal = definition.eventOrdinal(event);
+            if (eventOrdinal < 0) {
+                counts.unknownEventsCount++;
+                continue;
+            }
+            var oldState = fsm.getCurrentState();
+            try {
+                var result = fsm.tryTrigger(event);
+                if (result == FSMTriggerResult.NO_TRANSITION) {
+                    counts.rejectedEventCounts[definition.stateOrdinal(oldState) * events.length + eventOrdinal]++;
+                } else if (result.isRolledBack()) {
+                    counts.failedEventsCount++;
+                }
+            } catch (FSMException ex) {
+                counts.failedEventsCount++;
+            }
+        }
+        counts.finalStateCounts[definition.stateOrdinal(fsm.getCurrentState())]++;
+    }
+
+    public static final class Builder {
+
+        private final FSMDefinition definition;
+
+        private boolean actions = true;
+
+        private Function<FSMDefinition, ? extends FSMInstance> instanceFactory = FSMInstance::new;
+
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        private Builder(FSMDefinition definition) {
+            if (!definition.isDense()) {
+                throw new FSMException("Replays require all states and all events to be constants of one enum each");
+            }
+            this.definition = definition;
+        }
+
+        // Actions are on by default, without them hooks and follow-up events are skipped as well
+        public Builder actions(boolean actions) {
+            this.actions = actions;
+            return this;
+        }
+
+        // Creates the instance which replays the events of one entity, e.g. a subclass whose actions expect it
+        public Builder instanceFactory(Function<FSMDefinition, ? extends FSMInstance> instanceFactory) {
+            this.instanceFactory = instanceFactory;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public FSMReplay build() {
+            return new FSMReplay(this);
+        }
+    }
+}
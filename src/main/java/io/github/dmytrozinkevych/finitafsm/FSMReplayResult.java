@@ -0,0 +1,78 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated outcome of an {@link FSMReplay}: final states of the entities, committed transitions per state and event,
+ * and the events which had no transition from the state of their entity.
+ */
+public final class FSMReplayResult {
+
+    private final FSMDefinition definition;
+
+    private final FSMState[] states;
+
+    private final int entitiesCount;
+
+    private final FSMReplay.Counts counts;
+
+    FSMReplayResult(FSMDefinition definition, int entitiesCount, FSMReplay.Counts counts) {
+        this.definition = definition;
+        this.states = definition.getStateConstants();
+        this.entitiesCount = entitiesCount;
+        this.counts = counts;
+    }
+
+    public int getEntitiesCount() {
+        return entitiesCount;
+    }
+
+    public long getEventsCount() {
+        return counts.eventsCount;
+    }
+
+    public long getFinalStateCount(FSMState state) {
+        var stateOrdinal = definition.stateOrdinal(state);
+        return stateOrdinal < 0 ? 0 : counts.finalStateCounts[stateOrdinal];
+    }
+
+    public Map<FSMState, Long> getFinalStateCounts() {
+        var finalStateCounts = new LinkedHashMap<FSMState, Long>();
+        for (int i = 0; i < states.length; i++) {
+            finalStateCounts.put(states[i], counts.finalStateCounts[i]);
+        }
+        return finalStateCounts;
+    }
+
+    public long getTransitionCount(FSMState oldState, FSMEvent event) {
+        var index = indexOf(oldState, event);
+        return index < 0 ? 0 : counts.transitionCounts[index];
+    }
+
+    public long getTransitionsCount() {
+        return Arrays.stream(counts.transitionCounts).sum();
+    }
+
+    public long getRejectedEventCount(FSMState state, FSMEvent event) {
+        var index = indexOf(state, event);
+        return index < 0 ? 0 : counts.rejectedEventCounts[index];
+    }
+
+    // Includes the events which aren't constants of the event enum of the definition
+    public long getRejectedEventsCount() {
+        return Arrays.stream(counts.rejectedEventCounts).sum() + counts.unknownEventsCount;
+    }
+
+    // Events whose transition was rolled back or has thrown, only actions can make them fail
+    public long getFailedEventsCount() {
+        return counts.failedEventsCount;
+    }
+
+    private int indexOf(FSMState state, FSMEvent event) {
+        var stateOrdinal = definition.stateOrdinal(state);
+        var eventOrdinal = definition.eventOrdinal(event);
+        return stateOrdinal < 0 || eventOrdinal < 0 ? -1 : stateOrdinal * definition.getEventCount() + eventOrdinal;
+    }
+}
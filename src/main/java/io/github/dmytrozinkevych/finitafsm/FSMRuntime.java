@@ -0,0 +1,176 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Owns FSM instances keyed by ID and routes events to them.
+ * Keys are hashed onto a fixed number of shards, each served by its own thread which is the only one to touch
+ * the instances of its keys, so events of one key are processed in order of submission and without locking.
+ * Instances are created lazily by the factory on the first event for their key.
+ */
+public class FSMRuntime<K> implements AutoCloseable {
+
+    public record ShardMetrics(int queueDepth, int instancesCount, long processedEventsCount) { }
+
+    // A task completes its result however it ends, an Error included, so that no caller waits forever
+    private record Task(CompletableFuture<FSMState> result, Runnable action) {
+
+        void run() {
+            try {
+                action.run();
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+
+        void reject() {
+            result.completeExceptionally(new FSMException("FSM runtime is closed"));
+        }
+    }
+
+    private static final Task STOP = new Task(new CompletableFuture<>(), () -> { });
+
+    private final Function<? super K, ? extends FSMInstance> instanceFactory;
+
+    private final List<Shard> shards;
+
+    private volatile boolean closed;
+
+    public FSMRuntime(Function<? super K, ? extends FSMInstance> instanceFactory) {
+        this(instanceFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public FSMRuntime(Function<? super K, ? extends FSMInstance> instanceFactory, int shardsCount) {
+        if (shardsCount <= 0) {
+            throw new IllegalArgumentException("Shards count must be positive");
+        }
+        this.instanceFactory = instanceFactory;
+        var shardsList = new ArrayList<Shard>(shardsCount);
+        for (int i = 0; i < shardsCount; i++) {
+            shardsList.add(new Shard(i));
+        }
+        shards = List.copyOf(shardsList);
+        shards.forEach(shard -> shard.thread.start());
+    }
+
+    public int getShardsCount() {
+        return shards.size();
+    }
+
+    public List<ShardMetrics> getShardMetrics() {
+        return shards.stream()
+                .map(shard -> new ShardMetrics(shard.queue.size(), shard.instancesCount, shard.processedEventsCount))
+                .toList();
+    }
+
+    public CompletableFuture<FSMState> trigger(K key, FSMEvent event) {
+        var result = new CompletableFuture<FSMState>();
+        var shard = shardFor(key);
+        submit(shard, result, () -> {
+            try {
+                result.complete(shard.instances.computeIfAbsent(key, instanceFactory).trigger(event));
+            } finally {
+                shard.instancesCount = shard.instances.size();
+                shard.processedEventsCount++;
+            }
+        });
+        return result;
+    }
+
+    public CompletableFuture<FSMState> getCurrentState(K key) {
+        var result = new CompletableFuture<FSMState>();
+        var shard = shardFor(key);
+        submit(shard, result, () -> {
+            var instance = shard.instances.get(key);
+            result.complete(instance == null ? null : instance.getCurrentState());
+        });
+        return result;
+    }
+
+    public CompletableFuture<FSMState> remove(K key) {
+        var result = new CompletableFuture<FSMState>();
+        var shard = shardFor(key);
+        submit(shard, result, () -> {
+            var instance = shard.instances.remove(key);
+            shard.instancesCount = shard.instances.size();
+            result.complete(instance == null ? null : instance.getCurrentState());
+        });
+        return result;
+    }
+
+    private Shard shardFor(K key) {
+        var hash = key.hashCode();
+        return shards.get(Math.floorMod(hash ^ (hash >>> 16), shards.size()));
+    }
+
+    // A task which gets into the queue of a shard that has already stopped takes itself back out, unless the shard
+    // has drained it first, so either way it is completed exactly once
+    private void submit(Shard shard, CompletableFuture<FSMState> result, Runnable action) {
+        var task = new Task(result, action);
+        if (closed) {
+            task.reject();
+            return;
+        }
+        shard.queue.add(task);
+        if (shard.stopped && shard.queue.remove(task)) {
+            task.reject();
+        }
+    }
+
+    // Events submitted before closing are processed before the shard threads stop, events racing with it may be rejected
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        for (var shard : shards) {
+            shard.queue.add(STOP);
+        }
+        for (var shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+
+        private final Map<K, FSMInstance> instances = new HashMap<>();
+
+        private final Thread thread;
+
+        private volatile int instancesCount;
+
+        private volatile long processedEventsCount;
+
+        private volatile boolean stopped;
+
+        private Shard(int index) {
+            thread = new Thread(this, "finita-fsm-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (var task = queue.take(); task != STOP; task = queue.take()) {
+                    task.run();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped = true;
+                for (var task = queue.poll(); task != null; task = queue.poll()) {
+                    task.reject();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMStoreMismatchException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary snapshots of FSM instances of one enum-based {@link FSMDefinition}.
+ * A snapshot is a header holding a fingerprint of the definition, followed by an entry per instance:
+ * its entity ID, the ordinal of its current state and the ordinals of its pending events.
+ * Instances must not be triggered while they are written, except for {@link ConcurrentFSM}s.
+ */
+public final class FSMSnapshot {
+
+    public record Entry(int entityId, FSMState state, List<FSMEvent> pendingEvents) { }
+
+    private static final int MAGIC = 0x5353_4646;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 20;
+
+    private static final int ENTRY_HEADER_SIZE = 8;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final int MAX_ORDINALS_COUNT = 1 << Short.SIZE;
+
+    private static final int MAX_PENDING_EVENTS_COUNT = (1 << Short.SIZE) - 1;
+
+    private FSMSnapshot() { }
+
+    public static void write(WritableByteChannel channel, FSMInstance fsm) throws IOException {
+        write(channel, fsm.getDefinition(), List.of(Map.entry(0, fsm)));
+    }
+
+    public static void write(WritableByteChannel channel, FSMDefinition definition, Map<Integer, ? extends FSMInstance> instances) throws IOException {
+        write(channel, definition, instances.entrySet());
+    }
+
+    static void write(
+            WritableByteChannel channel,
+            FSMDefinition definition,
+            Collection<? extends Map.Entry<Integer, ? extends FSMInstance>> instances
+    ) throws IOException {
+        requireSupported(definition);
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(definition.fingerprint())
+                .putInt(instances.size());
+        for (var instance : instances) {
+            var fsm = instance.getValue();
+            var stateOrdinal = definition.stateOrdinal(fsm.getCurrentState());
+            if (stateOrdinal < 0) {
+                throw new FSMException("State %s doesn't belong to the definition of the snapshot".formatted(fsm.getCurrentState()));
+            }
+            var pendingEventsCount = fsm.getPendingEventsCount();
+            if (pendingEventsCount > MAX_PENDING_EVENTS_COUNT) {
+                throw new FSMException("Snapshots support at most %d pending events per instance".formatted(MAX_PENDING_EVENTS_COUNT));
+            }
+            buffer = ensureRemaining(channel, buffer, ENTRY_HEADER_SIZE + pendingEventsCount * Short.BYTES);
+            buffer.putInt(instance.getKey())
+                    .putShort((short) stateOrdinal)
+                    .putShort((short) pendingEventsCount);
+            for (int i = 0; i < pendingEventsCount; i++) {
+                var event = fsm.getPendingEvent(i);
+                var eventOrdinal = definition.eventOrdinal(event);
+                if (eventOrdinal < 0) {
+                    throw new FSMException("Event %s doesn't belong to the definition of the snapshot".formatted(event));
+                }
+                buffer.putShort((short) eventOrdinal);
+            }
+        }
+        flush(channel, buffer);
+    }
+
+    private static ByteBuffer ensureRemaining(WritableByteChannel channel, ByteBuffer buffer, int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+        flush(channel, buffer);
+        return size <= buffer.capacity() ? buffer : ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static List<Entry> read(ReadableByteChannel channel, FSMDefinition definition) throws IOException {
+        requireSupported(definition);
+        var states = definition.getStateConstants();
+        var events = definition.getEventConstants();
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN).flip();
+        buffer = ensureAvailable(channel, buffer, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new FSMStoreMismatchException("The data is not an FSM snapshot");
+        }
+        if (buffer.getLong() != definition.fingerprint()) {
+            throw new FSMStoreMismatchException("The snapshot was written for a different FSM definition");
+        }
+        var entriesCount = buffer.getInt();
+        var entries = new ArrayList<Entry>(entriesCount);
+        for (int i = 0; i < entriesCount; i++) {
+            buffer = ensureAvailable(channel, buffer, ENTRY_HEADER_SIZE);
+            var entityId = buffer.getInt();
+            var state = states[Short.toUnsignedInt(buffer.getShort())];
+            var pendingEventsCount = Short.toUnsignedInt(buffer.getShort());
+            buffer = ensureAvailable(channel, buffer, pendingEventsCount * Short.BYTES);
+            var pendingEvents = new ArrayList<FSMEvent>(pendingEventsCount);
+            for (int j = 0; j < pendingEventsCount; j++) {
+                pendingEvents.add(events[Short.toUnsignedInt(buffer.getShort())]);
+            }
+            entries.add(new Entry(entityId, state, List.copyOf(pendingEvents)));
+        }
+        return entries;
+    }
+
+    // Reads from the channel until the buffer holds at least size bytes which are not consumed yet
+    private static ByteBuffer ensureAvailable(ReadableByteChannel channel, ByteBuffer buffer, int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+        if (size > buffer.capacity()) {
+            buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN).put(buffer).flip();
+        }
+        buffer.compact();
+        while (buffer.position() < size) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("The FSM snapshot is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    public static void restore(ReadableByteChannel channel, FSMInstance fsm) throws IOException {
+        for (var entry : read(channel, fsm.getDefinition())) {
+            fsm.restore(entry.state(), entry.pendingEvents());
+        }
+    }
+
+    // Every entity of the snapshot must have an instance in the map
+    public static void restore(ReadableByteChannel channel, FSMDefinition definition, Map<Integer, ? extends FSMInstance> instances) throws IOException {
+        for (var entry : read(channel, definition)) {
+            var fsm = instances.get(entry.entityId());
+            if (fsm == null) {
+                throw new FSMException("There is no instance for entity %d of the snapshot".formatted(entry.entityId()));
+            }
+            fsm.restore(entry.state(), entry.pendingEvents());
+        }
+    }
+
+    private static void requireSupported(FSMDefinition definition) {
+        if (!definition.isDense()) {
+            throw new FSMException("Snapshots require all states and all events to be constants of one enum each");
+        }
+        if (definition.getStateConstants().length > MAX_ORDINALS_COUNT || definition.getEventCount() > MAX_ORDINALS_COUNT) {
+            throw new FSMException("Snapshots support at most %d states and %d events".formatted(MAX_ORDINALS_COUNT, MAX_ORDINALS_COUNT));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.util.Arrays;
+
+// Follows the state of the instances it's added to, e.g. to checkpoint, time out, count or store them
+interface FSMStateListener {
+
+    // Called once a transition can no longer be rolled back
+    void stateCommitted(FSMState oldState, FSMEvent event, FSMState newState);
+
+    // Called when the state is replaced without a transition, by a restore or a runner which skips the transitions
+    default void stateReplaced(FSMState state) { }
+
+    static FSMStateListener add(FSMStateListener listeners, FSMStateListener listener) {
+        if (listeners == null) {
+            return listener;
+        }
+        var added = listeners instanceof Group group ? group.listeners : new FSMStateListener[] {listeners};
+        added = Arrays.copyOf(added, added.length + 1);
+        added[added.length - 1] = listener;
+        return new Group(added);
+    }
+
+    static FSMStateListener remove(FSMStateListener listeners, FSMStateListener listener) {
+        if (listeners == listener) {
+            return null;
+        }
+        if (!(listeners instanceof Group group)) {
+            return listeners;
+        }
+        var remaining = Arrays.stream(group.listeners)
+                .filter(groupListener -> groupListener != listener)
+                .toArray(FSMStateListener[]::new);
+        return remaining.length == 1 ? remaining[0] : new Group(remaining);
+    }
+
+    static <T extends FSMStateListener> T find(FSMStateListener listeners, Class<T> type) {
+        if (listeners instanceof Group group) {
+            for (var listener : group.listeners) {
+                if (type.isInstance(listener)) {
+                    return type.cast(listener);
+                }
+            }
+            return null;
+        }
+        return type.isInstance(listeners) ? type.cast(listeners) : null;
+    }
+
+    // An instance followed by several listeners refers to them through one group, which is replaced rather than changed
+    final class Group implements FSMStateListener {
+
+        private final FSMStateListener[] listeners;
+
+        private Group(FSMStateListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void stateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+            for (var listener : listeners) {
+                listener.stateCommitted(oldState, event, newState);
+            }
+        }
+
+        @Override
+        public void stateReplaced(FSMState state) {
+            for (var listener : listeners) {
+                listener.stateReplaced(state);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMStoreMismatchException;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Durable states of entities driven by one enum-based {@link FSMDefinition}, kept in a memory-mapped file.
+ * Every entity owns an 8-byte slot holding its state ordinal and the number of transitions committed to it,
+ * so reopening the file restores all the states at once, without any deserialization.
+ * The file header holds a fingerprint of the definition and the store refuses to open a file written for another one.
+ * <p>
+ * Slots are written as soon as a transition of an {@link FSMStoredInstance}, or of any instance attached to a slot
+ * with {@link #attach(int, FSMInstance)}, commits and reach the page cache immediately, so they survive a crash
+ * of the JVM, while {@link #force()} is needed to survive a crash of the whole machine.
+ */
+public final class FSMStateStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x4D53_4646;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int FORMAT_VERSION_OFFSET = 4;
+
+    private static final int FINGERPRINT_OFFSET = 8;
+
+    private static final int CAPACITY_OFFSET = 16;
+
+    private static final int STATES_COUNT_OFFSET = 20;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int SLOT_SIZE = Long.BYTES;
+
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+
+    // Slots are aligned, so the ordinal and the version of a slot are always read and written together
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Set on an instance attached to the slot of an entity, which is written on every commit
+    record Slot(FSMStateStore store, int entityId) implements FSMStateListener {
+
+        @Override
+        public void stateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+            store.write(entityId, newState);
+        }
+
+        @Override
+        public void stateReplaced(FSMState state) {
+            store.write(entityId, state);
+        }
+    }
+
+    private final FSMDefinition definition;
+
+    private final FSMState[] states;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    private FSMStateStore(FSMDefinition definition, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.definition = definition;
+        this.states = definition.getStateConstants();
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    // Creates the file when it doesn't exist or is empty, otherwise checks that it was written for the same definition and capacity
+    public static FSMStateStore open(Path path, FSMDefinition definition, int capacity) throws IOException {
+        if (!definition.isDense()) {
+            throw new FSMException("State stores require all states and all events to be constants of one enum each");
+        }
+        if (definition.stateOrdinal(definition.getInitialState()) < 0) {
+            throw new FSMHasNoInitialStateSetException();
+        }
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 0 and %d".formatted(MAX_CAPACITY));
+        }
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+            var isNew = channel.size() == 0;
+            // An existing file is checked before it is mapped, as mapping would grow a smaller file to the size of the store
+            if (!isNew) {
+                checkHeader(channel, definition, capacity);
+                if (channel.size() < size) {
+                    throw new FSMStoreMismatchException("The state store file is truncated");
+                }
+            }
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (isNew) {
+                writeHeader(buffer, definition, capacity);
+            }
+            return new FSMStateStore(definition, channel, buffer, capacity);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, FSMDefinition definition, int capacity) {
+        buffer.putInt(FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+        buffer.putLong(FINGERPRINT_OFFSET, definition.fingerprint());
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(STATES_COUNT_OFFSET, definition.getStateConstants().length);
+        // The magic goes last, so a file which was not fully initialized is never accepted
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.force();
+    }
+
+    private static void checkHeader(FileChannel channel, FSMDefinition definition, int capacity) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) { }
+        if (header.hasRemaining() || header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(FORMAT_VERSION_OFFSET) != FORMAT_VERSION) {
+            throw new FSMStoreMismatchException("The file is not an FSM state store");
+        }
+        if (header.getLong(FINGERPRINT_OFFSET) != definition.fingerprint()
+                || header.getInt(STATES_COUNT_OFFSET) != definition.getStateConstants().length) {
+            throw new FSMStoreMismatchException("The state store was written for a different FSM definition");
+        }
+        var storedCapacity = header.getInt(CAPACITY_OFFSET);
+        if (storedCapacity != capacity) {
+            throw new FSMStoreMismatchException("The state store has capacity %d, not %d".formatted(storedCapacity, capacity));
+        }
+    }
+
+    public FSMDefinition getDefinition() {
+        return definition;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public FSMStoredInstance instance(int entityId) {
+        return new FSMStoredInstance(this, entityId);
+    }
+
+    // Moves the instance to the state stored for the entity and writes its committed transitions through to the slot
+    // from then on, so that any instance, e.g. an AbstractFSM, can be stored. Its definition has to have the fingerprint
+    // of the store, so that the states read back from the store are the ones the instance has transitions for.
+    public void attach(int entityId, FSMInstance fsm) {
+        var fsmDefinition = fsm.getDefinition();
+        if (fsmDefinition != definition && (!fsmDefinition.isDense() || fsmDefinition.fingerprint() != definition.fingerprint())) {
+            throw new FSMStoreMismatchException("The instance has a different FSM definition than the state store");
+        }
+        if (definition.stateOrdinal(fsm.getCurrentState()) < 0) {
+            throw new FSMStoreMismatchException("State %s doesn't belong to the definition of the store".formatted(fsm.getCurrentState()));
+        }
+        detach(fsm);
+        var state = stateOf(entityId);
+        fsm.restore(state, List.of());
+        fsm.addListener(new Slot(this, entityId));
+    }
+
+    public void detach(FSMInstance fsm) {
+        var slot = fsm.findListener(Slot.class);
+        if (slot != null) {
+            fsm.removeListener(slot);
+        }
+    }
+
+    private long readSlot(int entityId) {
+        Objects.checkIndex(entityId, capacity);
+        return (long) SLOTS.getAcquire(buffer, HEADER_SIZE + entityId * SLOT_SIZE);
+    }
+
+    // Entities which have never been written to are in the initial state
+    public FSMState stateOf(int entityId) {
+        var slot = readSlot(entityId);
+        return slot == 0 ? definition.getInitialState() : states[(int) slot];
+    }
+
+    public long versionOf(int entityId) {
+        return readSlot(entityId) >>> Integer.SIZE;
+    }
+
+    public void write(int entityId, FSMState state) {
+        var stateOrdinal = definition.stateOrdinal(state);
+        if (stateOrdinal < 0) {
+            throw new IllegalArgumentException("State %s doesn't belong to the definition of the store".formatted(state));
+        }
+        var offset = HEADER_SIZE + entityId * SLOT_SIZE;
+        long slot;
+        long newSlot;
+        do {
+            slot = readSlot(entityId);
+            newSlot = ((slot >>> Integer.SIZE) + 1) << Integer.SIZE | stateOrdinal;
+        } while (!SLOTS.compareAndSet(buffer, offset, slot, newSlot));
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    // The mapping itself is released only when the buffer is garbage collected
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.time.Duration;
+
+// Once an instance has spent the delay in the state, the event is triggered by the FSMTimer the instance is registered in
+public record FSMStateTimeout(
+        FSMState state,
+        Duration delay,
+        FSMEvent event
+) { }
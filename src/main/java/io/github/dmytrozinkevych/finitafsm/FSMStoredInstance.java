@@ -0,0 +1,26 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+/**
+ * {@link FSMInstance} starting in the state stored for its entity and writing every committed transition through to the store.
+ */
+public class FSMStoredInstance extends FSMInstance {
+
+    private final FSMStateStore store;
+
+    private final int entityId;
+
+    public FSMStoredInstance(FSMStateStore store, int entityId) {
+        super(store.getDefinition(), store.stateOf(entityId));
+        this.store = store;
+        this.entityId = entityId;
+        addListener(new FSMStateStore.Slot(store, entityId));
+    }
+
+    public FSMStateStore getStore() {
+        return store;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+}
@@ -0,0 +1,393 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashed timing wheel which triggers the {@link FSMStateTimeout} events of any number of registered instances.
+ * Entering a state with a timeout schedules it and leaving the state cancels it, both in O(1): the timeout is at most
+ * enqueued, and the thread advancing the wheel moves it into the bucket of its tick, or drops it once it is cancelled.
+ * Timeouts fire at most one tick late and never early.
+ * <p>
+ * The wheel is advanced either by the thread of {@link #start()} or by calling {@link #advance()},
+ * which together with a {@link java.time.Clock} advanced by hand makes tests deterministic.
+ * Timeout events are triggered with {@link FSMInstance#tryTrigger} on the advancing thread, unless the instance
+ * is registered with an executor. Instances which aren't thread-safe need one that serializes the timeout
+ * events with the rest of their events.
+ */
+public final class FSMTimer implements AutoCloseable {
+
+    public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(10);
+
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    // An instance has at most one pending timeout, so its registration is the wheel entry itself
+    static final class Registration implements FSMStateListener {
+
+        private final FSMTimer timer;
+
+        private final FSMInstance fsm;
+
+        private final Executor executor;
+
+        // Guarded by this registration
+        private FSMState timeoutState;
+
+        private FSMEvent timeoutEvent;
+
+        private long deadlineMillis;
+
+        private boolean active;
+
+        private boolean queued;
+
+        private long wheelDeadlineMillis;
+
+        // Accessed only by the advancing thread
+        private long remainingRounds;
+
+        private Bucket bucket;
+
+        private Registration previous;
+
+        private Registration next;
+
+        private Registration(FSMTimer timer, FSMInstance fsm, Executor executor) {
+            this.timer = timer;
+            this.fsm = fsm;
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void stateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+            var currentState = fsm.getCurrentState();
+            // Concurrent transitions may report their commits out of order, the timeout of the current state is kept then
+            if (!Objects.equals(newState, currentState) && active && Objects.equals(timeoutState, currentState)) {
+                return;
+            }
+            schedule(currentState);
+        }
+
+        @Override
+        public void stateReplaced(FSMState state) {
+            schedule(state);
+        }
+
+        // A timeout which is already in the wheel stays in its bucket and is moved to a later one when that tick comes,
+        // so a state which is entered over and over again costs no queue operations
+        synchronized void schedule(FSMState state) {
+            var stateTimeout = fsm.getDefinition().findTimeout(state);
+            if (stateTimeout == null) {
+                cancel();
+                return;
+            }
+            if (!active) {
+                active = true;
+                timer.pendingTimeoutsCount.increment();
+            }
+            timeoutState = state;
+            timeoutEvent = stateTimeout.event();
+            deadlineMillis = timer.clock.millis() + stateTimeout.delay().toMillis();
+            if (!queued || deadlineMillis < wheelDeadlineMillis) {
+                queued = true;
+                wheelDeadlineMillis = Long.MIN_VALUE;
+                timer.scheduledTimeouts.offer(this);
+            }
+        }
+
+        synchronized void cancel() {
+            if (active) {
+                active = false;
+                timer.pendingTimeoutsCount.decrement();
+            }
+        }
+
+        private void trigger(FSMState state, FSMEvent event) {
+            if (!Objects.equals(fsm.getCurrentState(), state)) {
+                return;
+            }
+            try {
+                fsm.tryTrigger(event);
+            } catch (RuntimeException ex) {
+                reportException(ex);
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private Registration head;
+
+        private Registration tail;
+
+        void add(Registration registration) {
+            registration.bucket = this;
+            registration.previous = tail;
+            if (tail == null) {
+                head = registration;
+            } else {
+                tail.next = registration;
+            }
+            tail = registration;
+        }
+
+        void remove(Registration registration) {
+            if (registration.previous == null) {
+                head = registration.next;
+            } else {
+                registration.previous.next = registration.next;
+            }
+            if (registration.next == null) {
+                tail = registration.previous;
+            } else {
+                registration.next.previous = registration.previous;
+            }
+            registration.bucket = null;
+            registration.previous = null;
+            registration.next = null;
+        }
+    }
+
+    private final Clock clock;
+
+    private final long tickMillis;
+
+    private final Bucket[] wheel;
+
+    private final int wheelMask;
+
+    private final long startMillis;
+
+    private final Queue<Registration> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder pendingTimeoutsCount = new LongAdder();
+
+    private final ReentrantLock tickLock = new ReentrantLock();
+
+    // Guarded by the tick lock
+    private long tick;
+
+    private Thread thread;
+
+    private volatile boolean closed;
+
+    private FSMTimer(Builder builder) {
+        clock = builder.clock;
+        tickMillis = builder.tickDuration.toMillis();
+        wheel = new Bucket[builder.wheelSize];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        wheelMask = wheel.length - 1;
+        startMillis = clock.millis();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void register(FSMInstance fsm) {
+        register(fsm, null);
+    }
+
+    public void register(FSMInstance fsm, Executor executor) {
+        if (fsm.findListener(Registration.class) != null) {
+            throw new FSMException("The instance is already registered in a timer");
+        }
+        var registration = new Registration(this, fsm, executor);
+        fsm.addListener(registration);
+        registration.schedule(fsm.getCurrentState());
+    }
+
+    public void unregister(FSMInstance fsm) {
+        var registration = fsm.findListener(Registration.class);
+        if (registration != null && registration.timer == this) {
+            fsm.removeListener(registration);
+            registration.cancel();
+        }
+    }
+
+    public long getPendingTimeoutsCount() {
+        return pendingTimeoutsCount.sum();
+    }
+
+    // Processes every tick which is due by the clock and returns the number of expired timeouts
+    public int advance() {
+        tickLock.lock();
+        try {
+            var nowMillis = clock.millis();
+            var expiredCount = 0;
+            while (startMillis + tick * tickMillis <= nowMillis) {
+                transferScheduledTimeouts();
+                expiredCount += expireTimeouts(wheel[(int) (tick & wheelMask)]);
+                tick++;
+            }
+            return expiredCount;
+        } finally {
+            tickLock.unlock();
+        }
+    }
+
+    private void transferScheduledTimeouts() {
+        for (var registration = scheduledTimeouts.poll(); registration != null; registration = scheduledTimeouts.poll()) {
+            synchronized (registration) {
+                if (registration.bucket != null) {
+                    registration.bucket.remove(registration);
+                }
+                if (registration.active) {
+                    place(registration, tick);
+                } else {
+                    registration.queued = false;
+                }
+            }
+        }
+    }
+
+    // The first tick is the one whose bucket is visited next, rounds are counted from it
+    private void place(Registration registration, long firstTick) {
+        var deadlineTick = Math.max(firstTick, -Math.floorDiv(startMillis - registration.deadlineMillis, tickMillis));
+        registration.remainingRounds = (deadlineTick - firstTick) / wheel.length;
+        registration.wheelDeadlineMillis = startMillis + deadlineTick * tickMillis;
+        wheel[(int) (deadlineTick & wheelMask)].add(registration);
+    }
+
+    private int expireTimeouts(Bucket bucket) {
+        var registration = bucket.head;
+        bucket.head = null;
+        bucket.tail = null;
+        var expiredCount = 0;
+        while (registration != null) {
+            var next = registration.next;
+            registration.bucket = null;
+            registration.previous = null;
+            registration.next = null;
+            if (registration.remainingRounds > 0) {
+                registration.remainingRounds--;
+                bucket.add(registration);
+            } else if (expire(registration)) {
+                expiredCount++;
+            }
+            registration = next;
+        }
+        return expiredCount;
+    }
+
+    private boolean expire(Registration registration) {
+        FSMState state;
+        FSMEvent event;
+        synchronized (registration) {
+            if (!registration.active) {
+                registration.queued = false;
+                return false;
+            }
+            if (registration.deadlineMillis > startMillis + tick * tickMillis) {
+                place(registration, tick + 1);
+                return false;
+            }
+            registration.active = false;
+            registration.queued = false;
+            pendingTimeoutsCount.decrement();
+            state = registration.timeoutState;
+            event = registration.timeoutEvent;
+        }
+        if (registration.executor == null) {
+            registration.trigger(state, event);
+        } else {
+            // A rejected timeout is reported like a failed one, so that the rest of the bucket still expires
+            try {
+                registration.executor.execute(() -> registration.trigger(state, event));
+            } catch (RuntimeException ex) {
+                reportException(ex);
+            }
+        }
+        return true;
+    }
+
+    private static void reportException(RuntimeException ex) {
+        var thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+    }
+
+    // Starts a daemon thread which advances the wheel every tick until the timer is closed
+    public synchronized void start() {
+        if (thread != null) {
+            throw new FSMException("The timer is already started");
+        }
+        thread = new Thread(this::run, "finita-fsm-timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (!closed) {
+            advance();
+            long sleepMillis;
+            tickLock.lock();
+            try {
+                sleepMillis = startMillis + tick * tickMillis - clock.millis();
+            } finally {
+                tickLock.unlock();
+            }
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public static final class Builder {
+
+        private Duration tickDuration = DEFAULT_TICK_DURATION;
+
+        private int wheelSize = DEFAULT_WHEEL_SIZE;
+
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() { }
+
+        public Builder tickDuration(Duration tickDuration) {
+            if (tickDuration.toMillis() <= 0) {
+                throw new IllegalArgumentException("Tick duration must be at least a millisecond");
+            }
+            this.tickDuration = tickDuration;
+            return this;
+        }
+
+        // Rounded up to a power of two, so that a tick is mapped to its bucket with a mask
+        public Builder wheelSize(int wheelSize) {
+            if (wheelSize <= 0 || wheelSize > 1 << 30) {
+                throw new IllegalArgumentException("Wheel size must be between 1 and %d".formatted(1 << 30));
+            }
+            this.wheelSize = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public FSMTimer build() {
+            return new FSMTimer(this);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.github.dmytrozinkevych.finitafsm.Transition")
+@Label("FSM Transition")
+@Description("Committed FSM transition, its duration covers all of its stages")
+@Category("Finita FSM")
+@StackTrace(false)
+class FSMTransitionEvent extends Event {
+
+    // isEnabled doesn't depend on the event itself, so a shared one checks it without allocating
+    private static final FSMTransitionEvent PROBE = new FSMTransitionEvent();
+
+    @Label("FSM Class")
+    String fsmClass;
+
+    @Label("Old State")
+    String oldState;
+
+    @Label("Event")
+    String event;
+
+    @Label("New State")
+    String newState;
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+}
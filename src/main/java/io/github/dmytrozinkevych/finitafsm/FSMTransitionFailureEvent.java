@@ -0,0 +1,41 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.dmytrozinkevych.finitafsm.TransitionFailure")
+@Label("FSM Transition Failure")
+@Description("Exception thrown at a stage of an FSM transition")
+@Category("Finita FSM")
+class FSMTransitionFailureEvent extends Event {
+
+    private static final FSMTransitionFailureEvent PROBE = new FSMTransitionFailureEvent();
+
+    @Label("FSM Class")
+    String fsmClass;
+
+    @Label("Old State")
+    String oldState;
+
+    @Label("Event")
+    String event;
+
+    @Label("New State")
+    String newState;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Exception Class")
+    Class<?> exceptionClass;
+
+    @Label("Exception Message")
+    String exceptionMessage;
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+}
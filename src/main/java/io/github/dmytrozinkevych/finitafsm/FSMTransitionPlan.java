@@ -0,0 +1,12 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+// With nested states, a transition exits every state from the old one up to the least common ancestor
+// and enters every state below it down to the new one, whose actions the exit and enter actions run in order
+record FSMTransitionPlan(
+        FSMState oldState,
+        FSMEvent event,
+        FSMState newState,
+        FSMAction exitStateAction,
+        FSMAction transitionAction,
+        FSMAction enterStateAction
+) { }
@@ -0,0 +1,31 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+// Constants rather than objects, so reporting the outcome of a trigger never allocates
+public enum FSMTriggerResult {
+    APPLIED(null),
+    NO_TRANSITION(null),
+    ROLLED_BACK_BEFORE_TRANSITION(FSMTransitionStage.BEFORE_TRANSITION),
+    ROLLED_BACK_EXIT_OLD_STATE(FSMTransitionStage.EXIT_OLD_STATE),
+    ROLLED_BACK_TRANSITION_ACTION(FSMTransitionStage.TRANSITION_ACTION),
+    ROLLED_BACK_ENTER_NEW_STATE(FSMTransitionStage.ENTER_NEW_STATE),
+    ROLLED_BACK_AFTER_TRANSITION(FSMTransitionStage.AFTER_TRANSITION);
+
+    private final FSMTransitionStage rollbackStage;
+
+    FSMTriggerResult(FSMTransitionStage rollbackStage) {
+        this.rollbackStage = rollbackStage;
+    }
+
+    public boolean isApplied() {
+        return this == APPLIED;
+    }
+
+    public boolean isRolledBack() {
+        return rollbackStage != null;
+    }
+
+    // The stage whose exception was handled without rethrowing, null unless the transition was rolled back
+    public FSMTransitionStage getRollbackStage() {
+        return rollbackStage;
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.dmytrozinkevych.finitafsm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link io.github.dmytrozinkevych.finitafsm.FSMInstance} subclass whose {@link Transition}s and
+ * {@link StateActions} are compiled by the finita-fsm-processor into a {@code <ClassName>Definition} class
+ * in the same package. Its {@code DEFINITION} field holds the transition table validated at compile time
+ * and is shared by all instances of the class.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface CompiledFSM {
+
+    // Both have to be enums, implementing FSMState and FSMEvent respectively
+    Class<?> states();
+
+    Class<?> events();
+
+    String initialState();
+}
@@ -0,0 +1,20 @@
+package io.github.dmytrozinkevych.finitafsm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Enter and exit actions are names of methods of the annotated class, just like the actions of transitions
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+@Repeatable(StateActionsList.class)
+public @interface StateActions {
+
+    String state();
+
+    String enterStateAction() default "";
+
+    String exitStateAction() default "";
+}
@@ -0,0 +1,23 @@
+package io.github.dmytrozinkevych.finitafsm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// States and events are names of the enum constants, the action is the name of a method of the annotated class
+// which takes the old state, the event and the new state
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+@Repeatable(Transitions.class)
+public @interface Transition {
+
+    String from();
+
+    String event();
+
+    String to();
+
+    String action() default "";
+}
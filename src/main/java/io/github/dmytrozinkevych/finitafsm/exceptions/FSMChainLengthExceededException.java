@@ -0,0 +1,24 @@
+package io.github.dmytrozinkevych.finitafsm.exceptions;
+
+public class FSMChainLengthExceededException extends FSMException {
+
+    private final int maxChainLength;
+
+    public FSMChainLengthExceededException(int maxChainLength) {
+        this(maxChainLength, true);
+    }
+
+    public FSMChainLengthExceededException(int maxChainLength, boolean writableStackTrace) {
+        super(writableStackTrace);
+        this.maxChainLength = maxChainLength;
+    }
+
+    public int getMaxChainLength() {
+        return maxChainLength;
+    }
+
+    @Override
+    public String getMessage() {
+        return "More than %d follow-up events were triggered in a single chain".formatted(maxChainLength);
+    }
+}
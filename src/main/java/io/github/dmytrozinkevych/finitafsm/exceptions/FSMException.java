@@ -13,4 +13,20 @@ public class FSMException extends RuntimeException {
     public FSMException(Throwable cause) {
         super(cause);
     }
+
+    public FSMException(Throwable cause, boolean writableStackTrace) {
+        super(null, cause, true, writableStackTrace);
+    }
+
+    // For subclasses which format their messages on demand
+    protected FSMException(boolean writableStackTrace) {
+        super(null, null, true, writableStackTrace);
+    }
+
+    // The message of an exception wrapping a cause is formatted only when it's asked for
+    @Override
+    public String getMessage() {
+        var message = super.getMessage();
+        return message == null && getCause() != null ? getCause().toString() : message;
+    }
 }
@@ -0,0 +1,3 @@
+package io.github.dmytrozinkevych.finitafsm.exceptions;
+
+public class FSMMailboxFullException extends FSMException { }
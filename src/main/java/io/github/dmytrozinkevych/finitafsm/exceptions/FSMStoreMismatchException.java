@@ -0,0 +1,8 @@
+package io.github.dmytrozinkevych.finitafsm.exceptions;
+
+public class FSMStoreMismatchException extends FSMException {
+
+    public FSMStoreMismatchException(String message) {
+        super(message);
+    }
+}
@@ -5,7 +5,30 @@ import io.github.dmytrozinkevych.finitafsm.FSMState;
 
 public class NoSuchTransitionException extends FSMException {
 
+    private final FSMState state;
+
+    private final FSMEvent event;
+
     public NoSuchTransitionException(FSMState state, FSMEvent event) {
-        super("State '%s' does not have transition for event '%s'".formatted(state, event));
+        this(state, event, true);
+    }
+
+    public NoSuchTransitionException(FSMState state, FSMEvent event, boolean writableStackTrace) {
+        super(writableStackTrace);
+        this.state = state;
+        this.event = event;
+    }
+
+    public FSMState getState() {
+        return state;
+    }
+
+    public FSMEvent getEvent() {
+        return event;
+    }
+
+    @Override
+    public String getMessage() {
+        return "State '%s' does not have transition for event '%s'".formatted(state, event);
     }
 }
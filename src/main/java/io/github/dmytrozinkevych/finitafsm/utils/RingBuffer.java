@@ -0,0 +1,66 @@
+package io.github.dmytrozinkevych.finitafsm.utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public class RingBuffer<E> {
+
+    private Object[] elements;
+
+    private int head;
+
+    private int size;
+
+    public RingBuffer(int initialCapacity) {
+        elements = new Object[Math.max(1, initialCapacity)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(E element) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) % elements.length] = element;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+        var element = (E) elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        size--;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) elements[(head + index) % elements.length];
+    }
+
+    public void clear() {
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        var grown = new Object[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[(head + i) % elements.length];
+        }
+        elements = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentFSMTest {
+
+    private static final int THREADS_COUNT = 8;
+
+    private static final int TRIGGERS_PER_THREAD = 5_000;
+
+    private static final int STATES_COUNT = THREADS_COUNT * TRIGGERS_PER_THREAD + 1;
+
+    private record RingState(int index) implements FSMState { }
+
+    private static final RingState[] STATES = new RingState[STATES_COUNT];
+
+    static {
+        for (int i = 0; i < STATES_COUNT; i++) {
+            STATES[i] = new RingState(i);
+        }
+    }
+
+    private static class Counter {
+        long value;
+    }
+
+    // Each NEXT moves the machine one step along a ring which is longer than the total number of triggers,
+    // so every successful trigger must return a state no other trigger has returned
+    private static FSMDefinition ringDefinition(Counter counter, IntPredicate hasAction) {
+        var builder = FSMDefinition.builder()
+                .initialState(STATES[0]);
+        for (int i = 0; i < STATES_COUNT; i++) {
+            FSMAction action = hasAction.test(i) ? (fsm, oldState, event, newState) -> counter.value++ : null;
+            builder.transition(STATES[i], Event.E1, STATES[(i + 1) % STATES_COUNT], action);
+        }
+        return builder.build();
+    }
+
+    private static List<FSMState> triggerConcurrently(FSMInstance fsm) throws InterruptedException, ExecutionException {
+        var executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        try {
+            var startLatch = new CountDownLatch(1);
+            var futures = new ArrayList<Future<List<FSMState>>>();
+            for (int thread = 0; thread < THREADS_COUNT; thread++) {
+                Callable<List<FSMState>> task = () -> {
+                    var newStates = new ArrayList<FSMState>(TRIGGERS_PER_THREAD);
+                    startLatch.await();
+                    for (int i = 0; i < TRIGGERS_PER_THREAD; i++) {
+                        newStates.add(fsm.trigger(Event.E1));
+                    }
+                    return newStates;
+                };
+                futures.add(executor.submit(task));
+            }
+            startLatch.countDown();
+            var allNewStates = new ArrayList<FSMState>();
+            for (var future : futures) {
+                allNewStates.addAll(future.get());
+            }
+            return allNewStates;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertNoLostTransitions(FSMInstance fsm, List<FSMState> newStates) {
+        var totalTriggers = THREADS_COUNT * TRIGGERS_PER_THREAD;
+        assertEquals(totalTriggers, newStates.size());
+        assertEquals(totalTriggers, new HashSet<>(newStates).size());
+        assertEquals(STATES[totalTriggers], fsm.getCurrentState());
+    }
+
+    @Test
+    void testOptimisticTransitionsAreNotLost() throws Exception {
+        var fsm = new ConcurrentFSM(ringDefinition(null, index -> false));
+
+        assertNoLostTransitions(fsm, triggerConcurrently(fsm));
+    }
+
+    @Test
+    void testLockedTransitionsAreNotLostAndRunActionsExclusively() throws Exception {
+        var counter = new Counter();
+        var fsm = new ConcurrentFSM(ringDefinition(counter, index -> true));
+
+        assertNoLostTransitions(fsm, triggerConcurrently(fsm));
+        assertEquals(THREADS_COUNT * TRIGGERS_PER_THREAD, counter.value);
+    }
+
+    @Test
+    void testMixedOptimisticAndLockedTransitionsAreNotLost() throws Exception {
+        var counter = new Counter();
+        var fsm = new ConcurrentFSM(ringDefinition(counter, index -> index % 2 == 0));
+
+        assertNoLostTransitions(fsm, triggerConcurrently(fsm));
+        assertEquals(THREADS_COUNT * TRIGGERS_PER_THREAD / 2, counter.value);
+    }
+
+    @Test
+    void testAllTransitionsLockedWhenRequested() throws Exception {
+        var fsm = new ConcurrentFSM(ringDefinition(null, index -> false), ConcurrentFSM.TransitionLocking.ALL);
+
+        assertNoLostTransitions(fsm, triggerConcurrently(fsm));
+    }
+
+    @Test
+    void testCurrentStateIsOldStateWhileLockedTransitionIsInProgress() {
+        var observedStates = new ArrayList<FSMState>();
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> observedStates.add(fsm.getCurrentState()))
+                .build();
+        var fsm = new ConcurrentFSM(definition);
+
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(List.of(State.S1), observedStates);
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+
+    @Test
+    void testFailedLockedTransitionKeepsOldState() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> { throw new ArithmeticException(); })
+                .build();
+        var fsm = new ConcurrentFSM(definition);
+
+        var exception = assertThrows(FSMException.class, () -> fsm.trigger(Event.E1));
+        assertEquals(ArithmeticException.class, exception.getCause().getClass());
+        assertEquals(State.S1, fsm.getCurrentState());
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        assertEquals(State.S1, fsm.getCurrentState());
+    }
+
+    @Test
+    void testTriggerAfterwardsInLockedTransition() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S2, Event.E2, State.S3)
+                .build();
+        var fsm = new ConcurrentFSM(definition);
+
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+        assertEquals(State.S3, fsm.getCurrentState());
+    }
+
+    @Test
+    void testTriggerAfterwardsInOptimisticTransitionThrowsException() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .build();
+        var fsm = new ConcurrentFSM(definition, ConcurrentFSM.TransitionLocking.NONE);
+
+        assertThrows(FSMException.class, () -> fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.getCurrentState());
+    }
+
+    @Test
+    void testCommittedTransitionsAreReportedOnce() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, Event.E1, State.S3, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S3, Event.E2, State.S1)
+                .build();
+        var committed = new ArrayList<String>();
+        var fsm = new ConcurrentFSM(definition) {
+            @Override
+            void onStateCommitted(FSMState oldState, FSMEvent event, FSMState newState) {
+                committed.add(oldState + " -> " + newState);
+            }
+        };
+
+        fsm.trigger(Event.E1);
+        fsm.tryTrigger(Event.E1);
+
+        assertEquals(List.of("S1 -> S2", "S2 -> S3", "S3 -> S1"), committed);
+    }
+}
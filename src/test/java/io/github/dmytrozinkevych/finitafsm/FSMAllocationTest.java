@@ -0,0 +1,111 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FSMAllocationTest {
+
+    private static final int WARMUP_ROUND_TRIPS = 200_000;
+
+    private static final int MEASURED_ROUND_TRIPS = 100_000;
+
+    // Room for what the JVM itself may allocate meanwhile, far below a single object per round trip
+    private static final long ALLOCATION_SLACK_BYTES = 16 * 1024;
+
+    private static final class CountingFsm extends AbstractFSM {
+
+        private long transitionsCount;
+
+        CountingFsm() {
+            super(State.S1);
+            setTransitions(Set.of(
+                    new FSMTransition(State.S1, Event.E1, State.S2, this::countTransition),
+                    new FSMTransition(State.S2, Event.E2, State.S1, this::countTransitionAndTriggerAfterwards),
+                    new FSMTransition(State.S1, Event.E2, State.S1, this::countTransition)
+            ));
+            setStateActions(Set.of(
+                    new FSMStateActions(State.S1, this::countTransition, this::countTransition),
+                    new FSMStateActions(State.S2, this::countTransition, this::countTransition)
+            ));
+        }
+
+        @Override
+        protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+            transitionsCount++;
+        }
+
+        void countTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+            transitionsCount++;
+        }
+
+        void countTransitionAndTriggerAfterwards(FSMState oldState, FSMEvent event, FSMState newState) {
+            transitionsCount++;
+            triggerAfterwards(Event.E2);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        var threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        var allocationCountingBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationCountingBean.isThreadAllocatedMemorySupported());
+        allocationCountingBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationCountingBean;
+    }
+
+    private static void triggerRoundTrips(FSMInstance fsm, int count) {
+        for (int i = 0; i < count; i++) {
+            fsm.trigger(Event.E1);
+            fsm.trigger(Event.E2);
+        }
+    }
+
+    private static long allocatedBytesDuring(com.sun.management.ThreadMXBean threadMXBean, Runnable runnable) {
+        var threadId = Thread.currentThread().getId();
+        var start = threadMXBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    @Test
+    void testSuccessfulTransitionsDoNotAllocate() {
+        var threadMXBean = threadMXBean();
+        var fsm = new CountingFsm();
+        triggerRoundTrips(fsm, WARMUP_ROUND_TRIPS);
+
+        var measurementOverhead = allocatedBytesDuring(threadMXBean, () -> { });
+        var allocatedBytes = allocatedBytesDuring(threadMXBean, () -> triggerRoundTrips(fsm, MEASURED_ROUND_TRIPS));
+
+        assertEquals(State.S1, fsm.getCurrentState());
+        assertTrue(allocatedBytes - measurementOverhead < ALLOCATION_SLACK_BYTES,
+                allocatedBytes + " bytes allocated by " + MEASURED_ROUND_TRIPS + " round trips");
+    }
+
+    @Test
+    void testSuccessfulTransitionsOfSharedDefinitionDoNotAllocate() {
+        var threadMXBean = threadMXBean();
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S2, Event.E2, State.S3)
+                .transition(State.S3, Event.E2, State.S1)
+                .transition(State.S1, Event.E2, State.S1)
+                .stateActions(State.S1, (fsm, oldState, event, newState) -> { }, (fsm, oldState, event, newState) -> { })
+                .build();
+        var fsm = new FSMInstance(definition);
+        triggerRoundTrips(fsm, WARMUP_ROUND_TRIPS);
+
+        var measurementOverhead = allocatedBytesDuring(threadMXBean, () -> { });
+        var allocatedBytes = allocatedBytesDuring(threadMXBean, () -> triggerRoundTrips(fsm, MEASURED_ROUND_TRIPS));
+
+        assertEquals(State.S1, fsm.getCurrentState());
+        assertTrue(allocatedBytes - measurementOverhead < ALLOCATION_SLACK_BYTES,
+                allocatedBytes + " bytes allocated by " + MEASURED_ROUND_TRIPS + " round trips");
+    }
+}
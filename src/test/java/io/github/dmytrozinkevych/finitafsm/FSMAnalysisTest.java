@@ -0,0 +1,207 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMAnalysisTest {
+
+    private record NumberedState(int number) implements FSMState { }
+
+    @Test
+    void testUnreachableStatesArePruned() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, Event.E1, State.S1, (fsm, oldState, event, newState) -> { })
+                .transition(State.S3, Event.E1, State.S4)
+                .stateActions(State.S4, (fsm, oldState, event, newState) -> { }, null)
+                .build();
+
+        var analysis = FSMAnalysis.analyze(definition);
+
+        assertEquals(Set.of(State.S1, State.S2), analysis.getReachableStates());
+        assertEquals(Set.of(State.S3, State.S4), analysis.getUnreachableStates());
+        var minimized = analysis.getMinimizedDefinition();
+        assertEquals(Set.of(State.S1, State.S2), minimized.getStates());
+        assertTrue(minimized.getEnterStateAction(State.S4).isEmpty());
+    }
+
+    @Test
+    void testEquivalentStatesAreMerged() {
+        // S2 and S3 both go to S4 on E1 and to each other on E2, so they can't be told apart
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S3)
+                .transition(State.S2, Event.E1, State.S4)
+                .transition(State.S2, Event.E2, State.S3)
+                .transition(State.S3, Event.E1, State.S4)
+                .transition(State.S3, Event.E2, State.S2)
+                .build();
+
+        var analysis = FSMAnalysis.analyze(definition);
+
+        assertEquals(Map.of(State.S3, State.S2), analysis.getEquivalentStates());
+        assertEquals(3, analysis.getMinimizedStatesCount());
+        var fsm = new FSMInstance(analysis.getMinimizedDefinition());
+        assertEquals(State.S2, fsm.trigger(Event.E2));
+        assertEquals(State.S2, fsm.trigger(Event.E2));
+        assertEquals(State.S4, fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testStatesWithDifferentTransitionActionsAreNotMerged() {
+        FSMAction action = (fsm, oldState, event, newState) -> { };
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S3)
+                .transition(State.S2, Event.E1, State.S4, action)
+                .transition(State.S3, Event.E1, State.S4)
+                .build();
+
+        var analysis = FSMAnalysis.analyze(definition);
+
+        assertEquals(Map.of(), analysis.getEquivalentStates());
+    }
+
+    @Test
+    void testStatesWithSameTransitionActionsAreMerged() {
+        FSMAction action = (fsm, oldState, event, newState) -> { };
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S3)
+                .transition(State.S2, Event.E1, State.S4, action)
+                .transition(State.S3, Event.E1, State.S4, action)
+                .build();
+
+        var analysis = FSMAnalysis.analyze(definition);
+
+        assertEquals(Map.of(State.S3, State.S2), analysis.getEquivalentStates());
+    }
+
+    @Test
+    void testStatesWithActionsOrTimeoutsAreNotMerged() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S3)
+                .transition(State.S2, Event.E1, State.S4)
+                .transition(State.S3, Event.E1, State.S4)
+                .stateActions(State.S2, null, (fsm, oldState, event, newState) -> { })
+                .build();
+        var withTimeout = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S3)
+                .transition(State.S2, Event.E1, State.S4)
+                .transition(State.S3, Event.E1, State.S4)
+                .timeout(State.S3, Duration.ofSeconds(1), Event.E1)
+                .build();
+
+        assertEquals(Map.of(), FSMAnalysis.analyze(definition).getEquivalentStates());
+        assertEquals(Map.of(), FSMAnalysis.analyze(withTimeout).getEquivalentStates());
+        assertTrue(FSMAnalysis.analyze(definition).getMinimizedDefinition().getExitStateAction(State.S2).isPresent());
+        assertTrue(FSMAnalysis.analyze(withTimeout).getMinimizedDefinition().getTimeout(State.S3).isPresent());
+    }
+
+    @Test
+    void testParentStatesAreReachable() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S2)
+                .parentState(State.S2, State.S1)
+                .transition(State.S1, Event.E1, State.S3)
+                .transition(State.S4, Event.E1, State.S1)
+                .build();
+
+        var analysis = FSMAnalysis.analyze(definition);
+
+        assertEquals(Set.of(State.S2, State.S1, State.S3), analysis.getReachableStates());
+        assertEquals(Set.of(State.S4), analysis.getUnreachableStates());
+        var fsm = new FSMInstance(analysis.getMinimizedDefinition());
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testDeadStates() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S3)
+                .transition(State.S2, Event.E1, State.S2)
+                .transition(State.S3, Event.E1, State.S1)
+                .build();
+
+        var analysis = FSMAnalysis.analyze(definition);
+
+        assertEquals(Set.of(State.S2), analysis.getDeadStates());
+    }
+
+    @Test
+    void testAnalysisRequiresInitialState() {
+        var definition = FSMDefinition.builder()
+                .transition(State.S1, Event.E1, State.S2)
+                .build();
+
+        assertThrows(FSMHasNoInitialStateSetException.class, () -> FSMAnalysis.analyze(definition));
+        assertEquals(Set.of(State.S1, State.S2), FSMAnalysis.analyze(definition, State.S1).getReachableStates());
+    }
+
+    @Test
+    void testAbstractFSMMinimizesDefinition() {
+        var calls = new ArrayList<String>();
+        var fsm = new AbstractFSM(State.S1) {
+            {
+                setTransitions(Set.of(
+                        new FSMTransition(State.S1, Event.E1, State.S2, (oldState, event, newState) -> calls.add("S1 -> S2")),
+                        new FSMTransition(State.S2, Event.E1, State.S3, null),
+                        new FSMTransition(State.S3, Event.E1, State.S2, null),
+                        new FSMTransition(State.S4, Event.E1, State.S1, null)
+                ));
+            }
+        };
+
+        var analysis = fsm.minimizeDefinition();
+
+        assertEquals(Set.of(State.S4), analysis.getUnreachableStates());
+        assertEquals(Map.of(State.S3, State.S2), analysis.getEquivalentStates());
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(List.of("S1 -> S2"), calls);
+    }
+
+    @Test
+    void testLargeDefinitions() {
+        // A cycle whose every third state also accepts E2 collapses into three states,
+        // while a chain leading to a dead state can't be minimized at all
+        var statesCount = 150_000;
+        var cycle = FSMDefinition.builder().initialState(new NumberedState(0));
+        var chain = FSMDefinition.builder().initialState(new NumberedState(0));
+        for (int i = 0; i < statesCount; i++) {
+            cycle.transition(new NumberedState(i), Event.E1, new NumberedState((i + 1) % statesCount));
+            if (i % 3 == 0) {
+                cycle.transition(new NumberedState(i), Event.E2, new NumberedState(0));
+            }
+            if (i + 1 < statesCount) {
+                chain.transition(new NumberedState(i), Event.E1, new NumberedState(i + 1));
+            }
+        }
+
+        var cycleAnalysis = FSMAnalysis.analyze(cycle.build());
+        var chainAnalysis = FSMAnalysis.analyze(chain.build());
+
+        assertEquals(3, cycleAnalysis.getMinimizedStatesCount());
+        assertEquals(new NumberedState(1), cycleAnalysis.getEquivalentStates().get(new NumberedState(statesCount - 2)));
+        assertEquals(statesCount, chainAnalysis.getMinimizedStatesCount());
+        assertEquals(Set.of(new NumberedState(statesCount - 1)), chainAnalysis.getDeadStates());
+    }
+}
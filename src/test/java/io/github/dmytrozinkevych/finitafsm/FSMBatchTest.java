@@ -0,0 +1,147 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMBatchTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E2, State.S1)
+            .build();
+
+    private static final FSMDefinition DEFINITION_WITH_FAILING_ACTION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E2, State.S1)
+            .transition(State.S2, Event.E1, State.S3, (fsm, oldState, event, newState) -> { throw new ArithmeticException(); })
+            .build();
+
+    private static class RecordingFsm extends FSMInstance {
+
+        private final List<String> calls = new ArrayList<>();
+
+        RecordingFsm(FSMDefinition definition) {
+            super(definition);
+        }
+
+        @Override
+        protected void beforeBatch() {
+            calls.add("beforeBatch");
+        }
+
+        @Override
+        protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+            calls.add(oldState + "->" + newState);
+        }
+
+        @Override
+        protected void afterBatch(FSMBatchResult result) {
+            calls.add("afterBatch " + result.appliedCount());
+        }
+
+        @Override
+        protected void onTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) {
+            calls.add("rolled back " + transitionStage);
+        }
+    }
+
+    @Test
+    void testAllEventsAreApplied() {
+        var fsm = new FSMInstance(DEFINITION);
+
+        var result = fsm.triggerAll(Event.E1, Event.E2, Event.E1);
+
+        assertEquals(new FSMBatchResult(State.S2, 3, 0, FSMBatchResult.NO_FAILURE), result);
+        assertFalse(result.hasFailures());
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+
+    @Test
+    void testStopOnFailurePolicyStopsAtFirstEventWithoutTransition() {
+        var fsm = new FSMInstance(DEFINITION);
+
+        var result = fsm.triggerAll(List.of(Event.E1, Event.E2, Event.E2, Event.E1));
+
+        assertEquals(new FSMBatchResult(State.S1, 2, 1, 2), result);
+        assertTrue(result.hasFailures());
+    }
+
+    @Test
+    void testSkipFailedPolicySkipsEventsWithoutTransition() {
+        var fsm = new FSMInstance(DEFINITION);
+
+        var result = fsm.triggerAll(new FSMEvent[] { Event.E2, Event.E1, Event.E1, Event.E2 }, FSMBatchPolicy.SKIP_FAILED);
+
+        assertEquals(new FSMBatchResult(State.S1, 2, 2, 0), result);
+    }
+
+    @Test
+    void testRolledBackTransitionsAreFailuresAndBatchHooksRunOnce() {
+        var fsm = new RecordingFsm(DEFINITION_WITH_FAILING_ACTION);
+
+        var result = fsm.triggerAll(List.of(Event.E1, Event.E1, Event.E2), FSMBatchPolicy.SKIP_FAILED);
+
+        assertEquals(new FSMBatchResult(State.S1, 2, 1, 1), result);
+        assertEquals(List.of(
+                "beforeBatch",
+                "S1->S2",
+                "rolled back TRANSITION_ACTION",
+                "S2->S1",
+                "afterBatch 2"
+        ), fsm.calls);
+    }
+
+    @Test
+    void testThrownExceptionEndsBatchAfterAfterBatchHook() {
+        var results = new ArrayList<FSMBatchResult>();
+        var fsm = new FSMInstance(DEFINITION_WITH_FAILING_ACTION) {
+            @Override
+            protected void afterBatch(FSMBatchResult result) {
+                results.add(result);
+            }
+        };
+
+        var exception = assertThrows(FSMException.class, () -> fsm.triggerAll(List.of(Event.E2, Event.E1, Event.E1, Event.E2), FSMBatchPolicy.SKIP_FAILED));
+
+        assertEquals(ArithmeticException.class, exception.getCause().getClass());
+        assertEquals(List.of(new FSMBatchResult(State.S2, 1, 2, 0)), results);
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+
+    @Test
+    void testFollowUpEventsWithoutTransitionThrowException() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E1))
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertThrows(NoSuchTransitionException.class, () -> fsm.triggerAll(List.of(Event.E1), FSMBatchPolicy.SKIP_FAILED));
+    }
+
+    @Test
+    void testBatchOnFSMWithNoTransitionsSetThrowsException() {
+        var fsm = new AbstractFSM(State.S1) { };
+
+        assertThrows(FSMHasNoTransitionsSetException.class, () -> fsm.triggerAll(Event.E1));
+    }
+
+    @Test
+    void testBatchOnConcurrentFSM() {
+        var fsm = new ConcurrentFSM(DEFINITION);
+
+        var result = fsm.triggerAll(List.of(Event.E1, Event.E2, Event.E2, Event.E1, Event.E1), FSMBatchPolicy.SKIP_FAILED);
+
+        assertEquals(new FSMBatchResult(State.S2, 3, 2, 2), result);
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMByteRunnerTest {
+
+    // A line parser: S1 is the start of a line, S2 is inside of it, E1 is any byte but a line feed, which is E2
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> ((LineParser) fsm).startLine())
+            .transition(State.S2, Event.E1, State.S2)
+            .transition(State.S2, Event.E2, State.S1, (fsm, oldState, event, newState) -> ((LineParser) fsm).endLine())
+            .transition(State.S1, Event.E2, State.S1)
+            .build();
+
+    private static final FSMByteRunner RUNNER = FSMByteRunner.builder(DEFINITION)
+            .byteClass('\n', Event.E2)
+            .otherBytes(Event.E1)
+            .emitting(Event.E2)
+            .emitting(State.S1, Event.E1)
+            .build();
+
+    // Remembers where the current line starts, the runner leaves the position of the buffer at the emitting byte
+    private static final class LineParser extends FSMInstance {
+
+        private final List<String> lines = new ArrayList<>();
+
+        private final StringBuilder partialLine = new StringBuilder();
+
+        private ByteBuffer buffer;
+
+        private int lineStart;
+
+        LineParser() {
+            super(DEFINITION);
+        }
+
+        void parse(ByteBuffer buffer) {
+            this.buffer = buffer;
+            lineStart = buffer.position();
+            RUNNER.run(this, buffer);
+            if (getCurrentState() == State.S2) {
+                partialLine.append(text(lineStart, buffer.position()));
+            }
+        }
+
+        void startLine() {
+            lineStart = buffer.position();
+        }
+
+        void endLine() {
+            lines.add(partialLine + text(lineStart, buffer.position()));
+            partialLine.setLength(0);
+        }
+
+        private String text(int from, int to) {
+            var bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ByteBuffer direct(String text) {
+        var bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @Test
+    void testRunningHeapBuffer() {
+        var parser = new LineParser();
+        var buffer = ascii("first\n\nsecond line\n");
+
+        parser.parse(buffer);
+
+        assertEquals(List.of("first", "second line"), parser.lines);
+        assertEquals(State.S1, parser.getCurrentState());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testRunningDirectBuffer() {
+        var parser = new LineParser();
+
+        parser.parse(direct("first\nsecond\nthird"));
+
+        assertEquals(List.of("first", "second"), parser.lines);
+        assertEquals(State.S2, parser.getCurrentState());
+    }
+
+    @Test
+    void testRunningSlicedBuffer() {
+        var parser = new LineParser();
+        var buffer = ascii("skipped\nfirst\nsecond\nskipped").position(8).limit(21).slice();
+
+        parser.parse(buffer);
+
+        assertEquals(List.of("first", "second"), parser.lines);
+    }
+
+    @Test
+    void testStateResumesAcrossBuffers() {
+        var parser = new LineParser();
+
+        parser.parse(ascii("fir"));
+        parser.parse(direct("st\nsec"));
+        parser.parse(ascii("ond\n"));
+
+        assertEquals(List.of("first", "second"), parser.lines);
+    }
+
+    @Test
+    void testRunningMappedFile() throws IOException {
+        var file = Files.createTempFile("lines", ".txt");
+        try {
+            var text = new StringBuilder();
+            for (int i = 0; i < 10_000; i++) {
+                text.append("line ").append(i).append('\n');
+            }
+            Files.writeString(file, text, StandardCharsets.US_ASCII);
+            var parser = new LineParser();
+
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+
+            assertEquals(10_000, parser.lines.size());
+            assertEquals("line 9999", parser.lines.get(9_999));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testNonEmittingTransitionsSkipActionsAndHooks() {
+        var transitions = new ArrayList<String>();
+        var fsm = new FSMInstance(DEFINITION) {
+            @Override
+            protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+                transitions.add(oldState + " -> " + newState);
+            }
+        };
+        var runner = FSMByteRunner.builder(DEFINITION)
+                .byteClass('\n', Event.E2)
+                .byteClass('a', 'z', Event.E1)
+                .build();
+
+        assertEquals(State.S1, runner.run(fsm, ascii("abc\n\nxyz\n")));
+
+        assertEquals(List.of(), transitions);
+    }
+
+    @Test
+    void testByteWithoutTransitionIsNotConsumed() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, Event.E1, State.S2)
+                .build();
+        var runner = FSMByteRunner.builder(definition)
+                .byteClass('a', 'z', Event.E1)
+                .byteClass("\r\n", Event.E2)
+                .build();
+        var fsm = new FSMInstance(definition);
+        var buffer = ascii("abc\ndef!");
+
+        var ex = assertThrows(NoSuchTransitionException.class, () -> runner.run(fsm, buffer));
+        assertEquals(State.S2, ex.getState());
+        assertEquals(Event.E2, ex.getEvent());
+        assertEquals(3, buffer.position());
+        assertEquals(State.S2, fsm.getCurrentState());
+
+        buffer.position(4);
+        assertThrows(FSMException.class, () -> runner.run(fsm, buffer));
+        assertEquals(7, buffer.position());
+    }
+
+    @Test
+    void testConcurrentInstancesAreRejected() {
+        var fsm = new ConcurrentFSM(DEFINITION);
+        var buffer = ascii("abc");
+
+        assertThrows(FSMException.class, () -> RUNNER.run(fsm, buffer));
+        assertEquals(State.S1, fsm.getCurrentState());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testStoredInstancesWriteSkippedStateThrough() throws IOException {
+        var path = Files.createTempFile("states", ".fsm");
+        Files.delete(path);
+        try {
+            var runner = FSMByteRunner.builder(DEFINITION)
+                    .byteClass('\n', Event.E2)
+                    .otherBytes(Event.E1)
+                    .build();
+            try (var store = FSMStateStore.open(path, DEFINITION, 2)) {
+                assertEquals(State.S2, runner.run(store.instance(1), ascii("first\nsec")));
+            }
+            try (var store = FSMStateStore.open(path, DEFINITION, 2)) {
+                assertEquals(State.S2, store.stateOf(1));
+                assertEquals(State.S1, runner.run(store.instance(1), ascii("ond\n")));
+                assertEquals(State.S1, store.stateOf(1));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testCheckpointedInstancesAreMarkedChangedBySkippedTransitions() throws IOException {
+        var runner = FSMByteRunner.builder(DEFINITION)
+                .byteClass('\n', Event.E2)
+                .otherBytes(Event.E1)
+                .build();
+        var checkpointer = new FSMCheckpointer(DEFINITION);
+        var fsm = new FSMInstance(DEFINITION);
+        checkpointer.register(1, fsm);
+        checkpointer.fullCheckpoint(Channels.newChannel(new ByteArrayOutputStream()));
+
+        assertEquals(State.S2, runner.run(fsm, ascii("first\nsec")));
+
+        var incremental = new ByteArrayOutputStream();
+        assertEquals(1, checkpointer.checkpoint(Channels.newChannel(incremental)));
+        var restored = new FSMInstance(DEFINITION);
+        var restoringCheckpointer = new FSMCheckpointer(DEFINITION);
+        restoringCheckpointer.register(1, restored);
+        assertEquals(1, restoringCheckpointer.restore(Channels.newChannel(new ByteArrayInputStream(incremental.toByteArray()))));
+        assertEquals(State.S2, restored.getCurrentState());
+    }
+
+    @Test
+    void testBuilderValidation() {
+        var enumDefinition = FSMDefinition.builder()
+                .transition(State.S1, Event.E1, State.S2)
+                .build();
+        var nonEnumDefinition = FSMDefinition.builder()
+                .transition(new FSMState() { }, Event.E1, State.S2)
+                .build();
+
+        assertThrows(FSMException.class, () -> FSMByteRunner.builder(nonEnumDefinition));
+        assertThrows(FSMException.class, () -> FSMByteRunner.builder(enumDefinition).byteClass('a', new FSMEvent() { }));
+        assertThrows(NoSuchTransitionException.class, () -> FSMByteRunner.builder(enumDefinition).emitting(State.S2, Event.E1).build());
+        assertThrows(FSMException.class, () -> RUNNER.run(new FSMInstance(enumDefinition, State.S1), ascii("a")));
+    }
+
+    @Test
+    void testByteClasses() {
+        var runner = FSMByteRunner.builder(DEFINITION)
+                .byteClass(0xFF, Event.E2)
+                .otherBytes(Event.E1)
+                .build();
+
+        assertEquals(Event.E2, runner.getByteClass((byte) 0xFF));
+        assertEquals(Event.E2, runner.getByteClass(0xFF));
+        assertEquals(Event.E1, runner.getByteClass(0));
+    }
+}
@@ -0,0 +1,224 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMCompiledDispatchTest {
+
+    private static class RecordingFsm extends FSMInstance {
+
+        private final List<String> calls = new ArrayList<>();
+
+        private FSMTransitionStage failingStage;
+
+        private boolean rethrow;
+
+        RecordingFsm(FSMDefinition definition) {
+            super(definition);
+        }
+
+        void record(String call, FSMTransitionStage stage) {
+            calls.add(call + ":" + getCurrentState());
+            if (stage == failingStage) {
+                throw new ArithmeticException(stage.name());
+            }
+        }
+
+        @Override
+        protected void beforeEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+            record("before " + oldState + " " + event + " " + newState, FSMTransitionStage.BEFORE_TRANSITION);
+        }
+
+        @Override
+        protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+            record("after " + oldState + " " + event + " " + newState, FSMTransitionStage.AFTER_TRANSITION);
+        }
+
+        @Override
+        protected void onTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) {
+            calls.add("exception " + transitionStage + " " + cause.getMessage() + ":" + getCurrentState());
+            if (rethrow) {
+                super.onTransitionException(oldState, event, newState, cause, transitionStage);
+            }
+        }
+    }
+
+    private static FSMDefinition definition(boolean compiled) {
+        return FSMDefinition.builder()
+                .initialState(State.S1)
+                .compiled(compiled)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) ->
+                        ((RecordingFsm) fsm).record("action", FSMTransitionStage.TRANSITION_ACTION))
+                .transition(State.S2, Event.E1, State.S3, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S3, Event.E2, State.S1)
+                .transition(State.S2, Event.E2, State.S4)
+                .stateActions(
+                        State.S1,
+                        null,
+                        (fsm, oldState, event, newState) -> ((RecordingFsm) fsm).record("exit S1", FSMTransitionStage.EXIT_OLD_STATE)
+                )
+                .stateActions(
+                        State.S2,
+                        (fsm, oldState, event, newState) -> ((RecordingFsm) fsm).record("enter S2", FSMTransitionStage.ENTER_NEW_STATE),
+                        null
+                )
+                .build();
+    }
+
+    private static List<String> run(boolean compiled, FSMTransitionStage failingStage, boolean rethrow) {
+        var fsm = new RecordingFsm(definition(compiled));
+        fsm.failingStage = failingStage;
+        fsm.rethrow = rethrow;
+        var calls = fsm.calls;
+        for (var event : List.of(Event.E1, Event.E2, Event.E1, Event.E1, Event.E2)) {
+            try {
+                calls.add("result " + fsm.tryTrigger(event) + ":" + fsm.getCurrentState());
+            } catch (FSMException ex) {
+                calls.add("thrown " + ex.getClass().getSimpleName() + " " + ex.getCause() + ":" + fsm.getCurrentState());
+            }
+        }
+        return calls;
+    }
+
+    @Test
+    void testDefinitionIsCompiled() {
+        assertTrue(definition(true).isCompiled());
+        assertFalse(definition(false).isCompiled());
+    }
+
+    @Test
+    void testNonEnumDefinitionFallsBack() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .compiled(true)
+                .transition(State.S1, new FSMEvent() { }, State.S2)
+                .build();
+
+        assertFalse(definition.isCompiled());
+    }
+
+    @Test
+    void testCompiledDispatchBehavesLikeRegularDispatch() {
+        assertEquals(run(false, null, false), run(true, null, false));
+        for (var stage : FSMTransitionStage.values()) {
+            assertEquals(run(false, stage, false), run(true, stage, false), stage.name());
+            assertEquals(run(false, stage, true), run(true, stage, true), stage.name());
+        }
+    }
+
+    @Test
+    void testCompiledDispatchThrowsNoSuchTransition() {
+        var fsm = new RecordingFsm(definition(true));
+
+        var ex = assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        assertEquals(State.S1, ex.getState());
+        assertEquals(Event.E2, ex.getEvent());
+    }
+
+    @Test
+    void testCompiledDispatchRunsFollowUpEvents() {
+        var fsm = new RecordingFsm(definition(true));
+
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testDefinitionsOfTheSameShapeKeepTheirOwnActions() {
+        var firstCalls = new ArrayList<String>();
+        var secondCalls = new ArrayList<String>();
+        var first = new FSMInstance(FSMDefinition.builder()
+                .initialState(State.S1)
+                .compiled(true)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> firstCalls.add("first"))
+                .build());
+        var second = new FSMInstance(FSMDefinition.builder()
+                .initialState(State.S1)
+                .compiled(true)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> secondCalls.add("second"))
+                .build());
+
+        first.trigger(Event.E1);
+        second.trigger(Event.E1);
+
+        assertEquals(List.of("first"), firstCalls);
+        assertEquals(List.of("second"), secondCalls);
+    }
+
+    @Test
+    void testDefinitionsWithTheSameActionsShareTheDispatcher() {
+        FSMAction action = (fsm, oldState, event, newState) -> { };
+        var first = FSMDefinition.builder()
+                .compiled(true)
+                .transition(State.S1, Event.E1, State.S2, action)
+                .build();
+        var second = FSMDefinition.builder()
+                .compiled(true)
+                .transition(State.S1, Event.E1, State.S2, action)
+                .build();
+        var third = FSMDefinition.builder()
+                .compiled(true)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> { })
+                .build();
+
+        assertSame(first.getDispatcher(), second.getDispatcher());
+        assertNotSame(first.getDispatcher(), third.getDispatcher());
+    }
+
+    @Test
+    void testCompiledDispatchIsSkippedWhileMetricsAreSet() {
+        var fsm = new RecordingFsm(definition(true));
+        var metrics = new FSMMetrics(1);
+        fsm.setMetrics(metrics);
+
+        fsm.trigger(Event.E1);
+
+        assertEquals(1, metrics.getTransitionCount(State.S1, Event.E1));
+        assertEquals(1, metrics.getStageLatency(FSMTransitionStage.TRANSITION_ACTION).getCount());
+    }
+
+    @Test
+    void testAbstractFSMSharesCompiledDefinition() {
+        var calls = new ArrayList<String>();
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> calls.add("S1 -> S2"))
+                .transition(State.S2, Event.E1, State.S1)
+                .compiled(true)
+                .build();
+        class SharingFSM extends AbstractFSM {
+            SharingFSM() {
+                super(State.S1);
+                setDefinition(definition);
+            }
+        }
+        var fsm = new SharingFSM();
+
+        assertTrue(fsm.getDefinition().isCompiled());
+        assertSame(fsm.getDefinition().getDispatcher(), new SharingFSM().getDefinition().getDispatcher());
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.trigger(Event.E1));
+        assertEquals(List.of("S1 -> S2"), calls);
+    }
+
+    @Test
+    void testAbstractFSMRefusesToCompileItsOwnTransitions() {
+        var fsm = new AbstractFSM(State.S1) {
+            {
+                setTransitions(Set.of(new FSMTransition(State.S1, Event.E1, State.S2, null)));
+            }
+        };
+
+        assertThrows(FSMException.class, () -> fsm.setCompiled(true));
+        fsm.setCompiled(false);
+        assertFalse(fsm.getDefinition().isCompiled());
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.DuplicateFSMEventException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoInitialStateSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FSMDefinitionTest {
+
+    private record NamedState(String name) implements FSMState { }
+
+    private enum OtherEvent implements FSMEvent {
+        E3
+    }
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E2, State.S1)
+            .build();
+
+    @Test
+    void testInstancesShareDefinitionButNotState() {
+        var fsm1 = new FSMInstance(DEFINITION);
+        var fsm2 = new FSMInstance(DEFINITION);
+
+        fsm1.trigger(Event.E1);
+
+        assertSame(fsm1.getDefinition(), fsm2.getDefinition());
+        assertEquals(State.S2, fsm1.getCurrentState());
+        assertEquals(State.S1, fsm2.getCurrentState());
+    }
+
+    @Test
+    void testExplicitInitialStateOverridesDefinitionInitialState() {
+        var fsm = new FSMInstance(DEFINITION, State.S2);
+
+        assertEquals(State.S1, fsm.trigger(Event.E2));
+    }
+
+    @Test
+    void testCreatingInstanceWithoutInitialStateThrowsException() {
+        var definition = FSMDefinition.builder()
+                .transition(State.S1, Event.E1, State.S2)
+                .build();
+
+        assertThrows(FSMHasNoInitialStateSetException.class, () -> new FSMInstance(definition));
+    }
+
+    @Test
+    void testDuplicatingOfFSMEventThrowsException() {
+        var builder = FSMDefinition.builder()
+                .transition(State.S1, Event.E1, State.S2);
+
+        assertThrows(DuplicateFSMEventException.class, () -> builder.transition(State.S1, Event.E1, State.S3));
+    }
+
+    @Test
+    void testTriggeringInstanceWithEmptyDefinitionThrowsException() {
+        var fsm = new FSMInstance(FSMDefinition.builder().build(), State.S1);
+
+        assertThrows(FSMHasNoTransitionsSetException.class, () -> fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testTriggeringEventWhichIsNotSetForCurrentStateThrowsException() {
+        var fsm = new FSMInstance(DEFINITION);
+
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        assertEquals(State.S1, fsm.getCurrentState());
+    }
+
+    @Test
+    void testActionsReceiveInstanceAsContext() {
+        FSMAction transitionAction = mock(FSMAction.class);
+        FSMAction enterStateAction = mock(FSMAction.class);
+        FSMAction exitStateAction = mock(FSMAction.class);
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, transitionAction)
+                .stateActions(State.S1, null, exitStateAction)
+                .stateActions(State.S2, enterStateAction, null)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        fsm.trigger(Event.E1);
+
+        var inOrder = Mockito.inOrder(exitStateAction, transitionAction, enterStateAction);
+        inOrder.verify(exitStateAction).accept(fsm, State.S1, Event.E1, State.S2);
+        inOrder.verify(transitionAction).accept(fsm, State.S1, Event.E1, State.S2);
+        inOrder.verify(enterStateAction).accept(fsm, State.S1, Event.E1, State.S2);
+    }
+
+    @Test
+    void testTriggerAfterwardsFromActionUsesInstanceContext() {
+        var visitedStates = new ArrayList<FSMState>();
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S2, Event.E2, State.S3)
+                .stateActions(State.S2, (fsm, oldState, event, newState) -> visitedStates.add(newState), null)
+                .stateActions(State.S3, (fsm, oldState, event, newState) -> visitedStates.add(newState), null)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+        assertEquals(List.of(State.S2, State.S3), visitedStates);
+    }
+
+    @Test
+    void testTriggeringActionSchedulesEventAfterTransition() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, FSMAction.triggering(Event.E2))
+                .transition(State.S2, Event.E2, State.S3)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+        assertThrows(NullPointerException.class, () -> FSMAction.triggering(null));
+    }
+
+    @Test
+    void testBuiltDefinitionIsNotAffectedByFurtherBuilderChanges() {
+        var builder = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2);
+        var definition = builder.build();
+        builder.transition(State.S1, Event.E2, State.S3);
+
+        var fsm = new FSMInstance(definition);
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+    }
+
+    @Test
+    void testEnumStatesAndEventsCompileIntoDenseTable() {
+        var fsm = new FSMInstance(DEFINITION);
+
+        assertTrue(DEFINITION.isDense());
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.trigger(Event.E2));
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(OtherEvent.E3));
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(null));
+    }
+
+    @Test
+    void testNonEnumStatesUseHashLookup() {
+        var stateA = new NamedState("A");
+        var stateB = new NamedState("B");
+        var definition = FSMDefinition.builder()
+                .initialState(stateA)
+                .transition(stateA, Event.E1, stateB)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertFalse(definition.isDense());
+        assertEquals(stateB, fsm.trigger(Event.E1));
+    }
+
+    @Test
+    void testEventsOfDifferentEnumsUseHashLookup() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, OtherEvent.E3, State.S1)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertFalse(definition.isDense());
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.trigger(OtherEvent.E3));
+    }
+}
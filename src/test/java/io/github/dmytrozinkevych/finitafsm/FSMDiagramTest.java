@@ -0,0 +1,110 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMDiagramTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S3)
+            .build();
+
+    private static Set<String> linesContaining(String code, String text) {
+        return Arrays.stream(code.split("\n"))
+                .filter(line -> line.contains(text))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void testWritingPlantUmlMatchesGeneratedCode() throws IOException {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, Event.E2, State.S3)
+                .build();
+        var out = new StringWriter();
+
+        FSMDiagram.writePlantUml(definition, State.S1, State.S3, out);
+
+        assertEquals(out.toString(), definition.generatePlantUmlDiagramCode(State.S1, State.S3));
+    }
+
+    @Test
+    void testWritingDot() throws IOException {
+        var out = new StringBuilder();
+
+        FSMDiagram.writeDot(DEFINITION, State.S1, State.S3, out);
+
+        var code = out.toString();
+        assertTrue(code.startsWith("digraph FSM {\n"));
+        assertTrue(code.endsWith("    \"S3\" -> __end;\n}\n"));
+        assertEquals(Set.of("    __start -> \"S1\";"), linesContaining(code, "__start ->"));
+        assertEquals(Set.of(
+                "    \"S1\" -> \"S2\" [label=\"E1\"];",
+                "    \"S2\" -> \"S1\" [label=\"E1\"];",
+                "    \"S2\" -> \"S3\" [label=\"E2\"];"
+        ), linesContaining(code, "label=\"E"));
+    }
+
+    @Test
+    void testDotIdsAreEscaped() {
+        var quotedState = new FSMState() {
+            @Override
+            public String toString() {
+                return "say \"hi\"";
+            }
+        };
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, quotedState)
+                .build();
+
+        var code = definition.generateDotDiagramCode(State.S1, quotedState);
+
+        assertTrue(code.contains("    \"S1\" -> \"say \\\"hi\\\"\" [label=\"E1\"];\n"), code);
+    }
+
+    @Test
+    void testGeneratedCodeIsCachedPerStartAndEndStates() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .build();
+
+        var plantUml = definition.generatePlantUmlDiagramCode(State.S1, State.S2);
+        var dot = definition.generateDotDiagramCode(State.S1, State.S2);
+
+        assertSame(plantUml, definition.generatePlantUmlDiagramCode(State.S1, State.S2));
+        assertSame(dot, definition.generateDotDiagramCode(State.S1, State.S2));
+        assertNotEquals(plantUml, definition.generatePlantUmlDiagramCode(State.S2, State.S2));
+    }
+
+    @Test
+    void testWritingCachedCode() throws IOException {
+        var dot = DEFINITION.generateDotDiagramCode(State.S1, State.S3);
+        var out = new StringBuilder();
+
+        FSMDiagram.writeDot(DEFINITION, State.S1, State.S3, out);
+
+        assertEquals(dot, out.toString());
+    }
+
+    @Test
+    void testWritingDiagramWithNoTransitionsThrowsException() {
+        var definition = FSMDefinition.builder().initialState(State.S1).build();
+
+        assertThrows(FSMHasNoTransitionsSetException.class, () -> FSMDiagram.writePlantUml(definition, State.S1, State.S2, new StringBuilder()));
+        assertThrows(FSMHasNoTransitionsSetException.class, () -> FSMDiagram.writeDot(definition, State.S1, State.S2, new StringBuilder()));
+    }
+}
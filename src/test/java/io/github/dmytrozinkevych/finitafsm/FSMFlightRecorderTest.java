@@ -0,0 +1,78 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMFlightRecorderTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E2, State.S3, (fsm, oldState, event, newState) -> { throw new ArithmeticException("boom"); })
+            .build();
+
+    @TempDir
+    Path directory;
+
+    private List<RecordedEvent> record(Runnable activity) throws IOException {
+        var recordingPath = directory.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(FSMTransitionEvent.class).withThreshold(java.time.Duration.ZERO);
+            recording.enable(FSMTransitionFailureEvent.class);
+            recording.enable(FSMNoSuchTransitionEvent.class);
+            recording.start();
+            activity.run();
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+        return RecordingFile.readAllEvents(recordingPath).stream()
+                .filter(recordedEvent -> recordedEvent.getEventType().getName().startsWith("io.github.dmytrozinkevych.finitafsm."))
+                .toList();
+    }
+
+    @Test
+    void testTransitionsAndFailuresAreRecorded() throws IOException {
+        var events = record(() -> {
+            var fsm = new FSMInstance(DEFINITION);
+            fsm.trigger(Event.E1);
+            assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E1));
+            assertThrows(FSMException.class, () -> fsm.trigger(Event.E2));
+        });
+
+        assertEquals(3, events.size());
+
+        var transition = events.stream().filter(e -> e.getEventType().getName().endsWith(".Transition")).findFirst().orElseThrow();
+        assertEquals(FSMInstance.class.getName(), transition.getString("fsmClass"));
+        assertEquals("S1", transition.getString("oldState"));
+        assertEquals("E1", transition.getString("event"));
+        assertEquals("S2", transition.getString("newState"));
+
+        var noSuchTransition = events.stream().filter(e -> e.getEventType().getName().endsWith(".NoSuchTransition")).findFirst().orElseThrow();
+        assertEquals("S2", noSuchTransition.getString("state"));
+        assertEquals("E1", noSuchTransition.getString("event"));
+
+        var failure = events.stream().filter(e -> e.getEventType().getName().endsWith(".TransitionFailure")).findFirst().orElseThrow();
+        assertEquals("TRANSITION_ACTION", failure.getString("stage"));
+        assertEquals("boom", failure.getString("exceptionMessage"));
+        assertEquals(ArithmeticException.class.getName(), failure.getClass("exceptionClass").getName());
+    }
+
+    @Test
+    void testConcurrentFSMTransitionsAreRecorded() throws IOException {
+        var events = record(() -> new ConcurrentFSM(DEFINITION, ConcurrentFSM.TransitionLocking.NONE).trigger(Event.E1));
+
+        assertEquals(1, events.size());
+        assertEquals(ConcurrentFSM.class.getName(), events.get(0).getString("fsmClass"));
+    }
+}
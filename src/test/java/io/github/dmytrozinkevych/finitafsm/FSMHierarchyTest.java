@@ -0,0 +1,146 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMHierarchyTest {
+
+    // S2 and S3 are nested into S1, S4 is a top-level state
+    private static FSMDefinition.Builder builder(List<String> calls) {
+        var builder = FSMDefinition.builder()
+                .initialState(State.S2)
+                .parentState(State.S2, State.S1)
+                .parentState(State.S3, State.S1)
+                .transition(State.S1, Event.E2, State.S4)
+                .transition(State.S2, Event.E1, State.S3)
+                .transition(State.S4, Event.E1, State.S2);
+        for (var state : State.values()) {
+            builder.stateActions(
+                    state,
+                    (fsm, oldState, event, newState) -> calls.add("enter " + state),
+                    (fsm, oldState, event, newState) -> calls.add("exit " + state)
+            );
+        }
+        return builder;
+    }
+
+    @Test
+    void testTransitionsAreInheritedFromParentState() {
+        var calls = new ArrayList<String>();
+        var fsm = new FSMInstance(builder(calls).build());
+
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+        assertEquals(State.S4, fsm.trigger(Event.E2));
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+    }
+
+    @Test
+    void testEnterAndExitActionsRunInNestedOrder() {
+        var calls = new ArrayList<String>();
+        var fsm = new FSMInstance(builder(calls).build());
+
+        fsm.trigger(Event.E1);
+        assertEquals(List.of("exit S2", "enter S3"), calls);
+
+        calls.clear();
+        fsm.trigger(Event.E2);
+        assertEquals(List.of("exit S3", "exit S1", "enter S4"), calls);
+
+        calls.clear();
+        fsm.trigger(Event.E1);
+        assertEquals(List.of("exit S4", "enter S1", "enter S2"), calls);
+    }
+
+    @Test
+    void testTransitionsToSameAncestorAndDescendantStatesAreExternal() {
+        var calls = new ArrayList<String>();
+        var machine = new FSMInstance(FSMDefinition.builder()
+                .initialState(State.S2)
+                .parentState(State.S2, State.S1)
+                .transition(State.S2, Event.E1, State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S1, Event.E2, State.S1)
+                .stateActions(State.S1, (fsm, oldState, event, newState) -> calls.add("enter S1"), (fsm, oldState, event, newState) -> calls.add("exit S1"))
+                .stateActions(State.S2, (fsm, oldState, event, newState) -> calls.add("enter S2"), (fsm, oldState, event, newState) -> calls.add("exit S2"))
+                .build());
+
+        machine.trigger(Event.E1);
+        assertEquals(List.of("exit S2", "exit S1", "enter S1"), calls);
+
+        calls.clear();
+        machine.trigger(Event.E1);
+        assertEquals(List.of("exit S1", "enter S1", "enter S2"), calls);
+
+        calls.clear();
+        machine.trigger(Event.E2);
+        assertEquals(List.of("exit S2", "exit S1", "enter S1"), calls);
+    }
+
+    @Test
+    void testOwnTransitionOverridesInheritedOne() {
+        var calls = new ArrayList<String>();
+        var fsm = new FSMInstance(builder(calls)
+                .transition(State.S2, Event.E2, State.S3)
+                .build());
+
+        assertEquals(State.S3, fsm.trigger(Event.E2));
+        assertEquals(State.S4, fsm.trigger(Event.E2));
+    }
+
+    @Test
+    void testParentStatesCycleIsRejected() {
+        var builder = FSMDefinition.builder()
+                .initialState(State.S1)
+                .parentState(State.S1, State.S2)
+                .parentState(State.S2, State.S1)
+                .transition(State.S1, Event.E1, State.S2);
+
+        assertThrows(FSMException.class, builder::build);
+    }
+
+    @Test
+    void testGetParentState() {
+        var definition = builder(new ArrayList<>()).build();
+
+        assertEquals(Optional.of(State.S1), definition.getParentState(State.S2));
+        assertEquals(Optional.empty(), definition.getParentState(State.S1));
+    }
+
+    @Test
+    void testPopulationRunsNestedStateActions() {
+        var calls = new ArrayList<String>();
+        var population = FSMPopulation.builder(builder(new ArrayList<>()).build(), 1)
+                .stateActions(State.S1, (id, oldState, event, newState) -> calls.add("enter S1"), (id, oldState, event, newState) -> calls.add("exit S1"))
+                .stateActions(State.S3, (id, oldState, event, newState) -> calls.add("enter S3"), (id, oldState, event, newState) -> calls.add("exit S3"))
+                .build();
+
+        population.trigger(0, Event.E1);
+        population.trigger(0, Event.E2);
+
+        assertEquals(List.of("enter S3", "exit S3", "exit S1"), calls);
+    }
+
+    @Test
+    void testAbstractFSMKeepsParentStates() {
+        var calls = new ArrayList<String>();
+        var fsm = new AbstractFSM(State.S2) {
+            {
+                setParentStates(Map.of(State.S2, State.S1));
+                setTransitions(Set.of(new FSMTransition(State.S1, Event.E1, State.S3, null)));
+                setStateActions(Set.of(new FSMStateActions(State.S1, null, (oldState, event, newState) -> calls.add("exit S1"))));
+            }
+        };
+
+        assertEquals(State.S3, fsm.trigger(Event.E1));
+        assertEquals(List.of("exit S1"), calls);
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMStoreMismatchException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMJournalTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S3)
+            .transition(State.S3, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S4)
+            .build();
+
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(1_000), ZoneOffset.UTC);
+
+    @TempDir
+    Path directory;
+
+    private List<FSMJournalRecord> replayAll(FSMJournal journal, long afterSequence) throws IOException {
+        var records = new ArrayList<FSMJournalRecord>();
+        journal.replay(afterSequence, records::add);
+        return records;
+    }
+
+    private long segmentsCount() throws IOException {
+        try (var paths = Files.list(directory)) {
+            return paths.count();
+        }
+    }
+
+    @Test
+    void testTransitionsAreJournaledAndReplayed() throws IOException {
+        try (var journal = FSMJournal.builder(directory, DEFINITION).clock(CLOCK).open()) {
+            var fsm = new FSMJournaledInstance(journal, 7);
+            fsm.trigger(Event.E1);
+            fsm.trigger(Event.E2);
+            new FSMJournaledInstance(journal, 9).trigger(Event.E1);
+            journal.sync();
+
+            assertEquals(3, journal.getLastSequence());
+            assertEquals(3, journal.getDurableSequence());
+        }
+
+        try (var journal = FSMJournal.builder(directory, DEFINITION).clock(CLOCK).open()) {
+            assertEquals(List.of(
+                    new FSMJournalRecord(1, 1_000, 7, State.S1, Event.E1, State.S2),
+                    new FSMJournalRecord(2, 1_000, 7, State.S2, Event.E2, State.S4),
+                    new FSMJournalRecord(3, 1_000, 9, State.S1, Event.E1, State.S2)
+            ), replayAll(journal, 0));
+            assertEquals(3, journal.getLastSequence());
+            assertEquals(4, journal.append(9, State.S2, Event.E1, State.S3));
+            assertEquals(List.of(3L, 4L), replayAll(journal, 2).stream().map(FSMJournalRecord::sequence).toList());
+        }
+    }
+
+    @Test
+    void testFailedAppendMovesInstanceBack() throws IOException {
+        var journal = FSMJournal.builder(directory, DEFINITION).clock(CLOCK).open();
+        var fsm = new FSMJournaledInstance(journal, 7);
+        var checkpointer = new FSMCheckpointer(DEFINITION);
+        checkpointer.register(7, fsm);
+        fsm.trigger(Event.E1);
+        checkpointer.fullCheckpoint(Channels.newChannel(new ByteArrayOutputStream()));
+        journal.close();
+
+        assertThrows(FSMException.class, () -> fsm.trigger(Event.E1));
+        assertEquals(State.S2, fsm.getCurrentState());
+        assertEquals(0, checkpointer.checkpoint(Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    void testSegmentsAreRolledAndCompacted() throws IOException {
+        try (var journal = FSMJournal.builder(directory, DEFINITION).segmentCapacity(4).open()) {
+            var fsm = new FSMJournaledInstance(journal, 0);
+            for (int i = 0; i < 10; i++) {
+                fsm.trigger(Event.E1);
+            }
+
+            assertEquals(3, segmentsCount());
+            assertEquals(10, replayAll(journal, 0).size());
+            assertEquals(0, journal.compact(3));
+            assertEquals(1, journal.compact(7));
+            assertEquals(2, segmentsCount());
+            assertEquals(List.of(8L, 9L, 10L), replayAll(journal, 7).stream().map(FSMJournalRecord::sequence).toList());
+            assertEquals(1, journal.compact(10));
+            assertEquals(1, segmentsCount());
+        }
+    }
+
+    @Test
+    void testReplayIntoStateStoreRebuildsStatesWithoutActions() throws IOException {
+        var actionCalls = new ArrayList<FSMState>();
+        var definitionWithActions = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, Event.E1, State.S3)
+                .transition(State.S3, Event.E1, State.S1)
+                .transition(State.S2, Event.E2, State.S4)
+                .stateActions(State.S2, (fsm, oldState, event, newState) -> actionCalls.add(newState), null)
+                .build();
+        try (var journal = FSMJournal.builder(directory.resolve("journal"), definitionWithActions).open();
+             var store = FSMStateStore.open(directory.resolve("states.fsm"), definitionWithActions, 10)) {
+            var first = new FSMJournaledInstance(journal, 1);
+            first.trigger(Event.E1);
+            first.trigger(Event.E1);
+            var second = new FSMJournaledInstance(journal, 2);
+            second.trigger(Event.E1);
+            second.trigger(Event.E2);
+            actionCalls.clear();
+
+            assertEquals(4, journal.replayInto(store, 0));
+            assertEquals(State.S3, store.stateOf(1));
+            assertEquals(State.S4, store.stateOf(2));
+            assertEquals(State.S1, store.stateOf(3));
+            assertTrue(actionCalls.isEmpty());
+        }
+    }
+
+    @Test
+    void testConcurrentSyncsAreGroupCommitted() throws Exception {
+        var threadsCount = 8;
+        var appendsPerThread = 500;
+        try (var journal = FSMJournal.builder(directory, DEFINITION).segmentCapacity(1_000).open()) {
+            var executor = Executors.newFixedThreadPool(threadsCount);
+            try {
+                var futures = new ArrayList<Future<?>>();
+                for (int t = 0; t < threadsCount; t++) {
+                    var entityId = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < appendsPerThread; i++) {
+                            var sequence = journal.append(entityId, State.S1, Event.E1, State.S2);
+                            journal.sync(sequence);
+                            assertTrue(journal.getDurableSequence() >= sequence);
+                        }
+                    }));
+                }
+                for (var future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            var records = replayAll(journal, 0);
+            assertEquals(threadsCount * appendsPerThread, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(i + 1, records.get(i).sequence());
+            }
+        }
+    }
+
+    @Test
+    void testJournalRefusesMismatchedDefinition() throws IOException {
+        FSMJournal.builder(directory, DEFINITION).open().close();
+        var otherDefinition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .build();
+
+        assertThrows(FSMStoreMismatchException.class, () -> FSMJournal.builder(directory, otherDefinition).open());
+    }
+}
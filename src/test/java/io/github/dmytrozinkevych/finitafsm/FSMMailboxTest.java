@@ -0,0 +1,160 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMMailboxFullException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMMailboxTest {
+
+    private static class Counter {
+        long value;
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    private static FSMDefinition countingDefinition(Counter counter) {
+        FSMAction count = (fsm, oldState, event, newState) -> counter.value++;
+        return FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, count)
+                .transition(State.S2, Event.E1, State.S1, count)
+                .build();
+    }
+
+    @Test
+    void testEventsFromManyProducersAreAllProcessed() throws Exception {
+        var producersCount = 8;
+        var eventsPerProducer = 10_000;
+        var counter = new Counter();
+        var executor = Executors.newFixedThreadPool(4);
+        var producers = Executors.newFixedThreadPool(producersCount);
+        try {
+            var mailbox = new FSMMailbox(new FSMInstance(countingDefinition(counter)), executor, 1_000, FSMMailbox.OverflowPolicy.BLOCK);
+            var startLatch = new CountDownLatch(1);
+            var lastResults = new ArrayList<CompletableFuture<FSMState>>();
+            for (int producer = 0; producer < producersCount; producer++) {
+                var lastResult = new CompletableFuture<FSMState>();
+                lastResults.add(lastResult);
+                producers.execute(() -> {
+                    try {
+                        startLatch.await();
+                        CompletableFuture<FSMState> result = null;
+                        for (int i = 0; i < eventsPerProducer; i++) {
+                            result = mailbox.triggerAsync(Event.E1);
+                        }
+                        result.whenComplete((state, ex) -> lastResult.complete(state));
+                    } catch (InterruptedException ex) {
+                        lastResult.completeExceptionally(ex);
+                    }
+                });
+            }
+            startLatch.countDown();
+            CompletableFuture.allOf(lastResults.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            var drained = mailbox.triggerAsync(Event.E1).get(30, TimeUnit.SECONDS);
+
+            assertEquals(producersCount * eventsPerProducer + 1, counter.value);
+            assertEquals(State.S2, drained);
+            assertEquals(0, mailbox.getQueueSize());
+        } finally {
+            producers.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testEventsAreProcessedInOrderOfSubmission() throws Exception {
+        var executor = new ManualExecutor();
+        var mailbox = new FSMMailbox(new FSMInstance(countingDefinition(new Counter())), executor, 10, FSMMailbox.OverflowPolicy.REJECT);
+
+        var first = mailbox.triggerAsync(Event.E1);
+        var second = mailbox.triggerAsync(Event.E1);
+        var third = mailbox.triggerAsync(Event.E1);
+        assertFalse(first.isDone());
+        executor.runAll();
+
+        assertEquals(State.S2, first.get());
+        assertEquals(State.S1, second.get());
+        assertEquals(State.S2, third.get());
+    }
+
+    @Test
+    void testRejectPolicyFailsEventsWhenMailboxIsFull() throws Exception {
+        var executor = new ManualExecutor();
+        var mailbox = new FSMMailbox(new FSMInstance(countingDefinition(new Counter())), executor, 2, FSMMailbox.OverflowPolicy.REJECT);
+
+        var first = mailbox.triggerAsync(Event.E1);
+        var second = mailbox.triggerAsync(Event.E1);
+        var rejected = mailbox.triggerAsync(Event.E1);
+
+        var exception = assertThrows(ExecutionException.class, rejected::get);
+        assertEquals(FSMMailboxFullException.class, exception.getCause().getClass());
+        assertEquals(2, mailbox.getQueueSize());
+
+        executor.runAll();
+        assertEquals(State.S2, first.get());
+        assertEquals(State.S1, second.get());
+
+        var acceptedAfterDrain = mailbox.triggerAsync(Event.E1);
+        executor.runAll();
+        assertEquals(State.S2, acceptedAfterDrain.get());
+    }
+
+    @Test
+    void testTransitionExceptionsCompleteFutureExceptionally() {
+        var executor = new ManualExecutor();
+        var mailbox = new FSMMailbox(new FSMInstance(countingDefinition(new Counter())), executor, 10, FSMMailbox.OverflowPolicy.REJECT);
+
+        var result = mailbox.triggerAsync(Event.E2);
+        executor.runAll();
+
+        var exception = assertThrows(ExecutionException.class, result::get);
+        assertEquals(NoSuchTransitionException.class, exception.getCause().getClass());
+        assertEquals(State.S1, mailbox.getFsm().getCurrentState());
+    }
+
+    @Test
+    void testErrorsCompleteFutureExceptionally() throws Exception {
+        var executor = new ManualExecutor();
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> { throw new AssertionError(); })
+                .transition(State.S1, Event.E2, State.S3)
+                .build();
+        var mailbox = new FSMMailbox(new FSMInstance(definition), executor, 1, FSMMailbox.OverflowPolicy.REJECT);
+
+        var failed = mailbox.triggerAsync(Event.E1);
+        executor.runAll();
+        var applied = mailbox.triggerAsync(Event.E2);
+        executor.runAll();
+
+        var exception = assertThrows(ExecutionException.class, failed::get);
+        assertEquals(AssertionError.class, exception.getCause().getClass());
+        assertEquals(State.S3, applied.get());
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMMetricsTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> { })
+            .transition(State.S2, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S3)
+            .stateActions(State.S3, (fsm, oldState, event, newState) -> { throw new ArithmeticException(); }, null)
+            .build();
+
+    @Test
+    void testTransitionsAndFailuresAreCounted() {
+        var metrics = new FSMMetrics();
+        var fsm = new FSMInstance(DEFINITION);
+        fsm.setMetrics(metrics);
+
+        fsm.trigger(Event.E1);
+        fsm.trigger(Event.E1);
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        fsm.trigger(Event.E1);
+        assertThrows(FSMException.class, () -> fsm.trigger(Event.E2));
+
+        assertEquals(2, metrics.getTransitionCount(State.S1, Event.E1));
+        assertEquals(1, metrics.getTransitionCount(State.S2, Event.E1));
+        assertEquals(0, metrics.getTransitionCount(State.S2, Event.E2));
+        assertEquals(1, metrics.getNoSuchTransitionCount());
+        assertEquals(1, metrics.getStageFailureCount(FSMTransitionStage.ENTER_NEW_STATE));
+        assertEquals(0, metrics.getStageFailureCount(FSMTransitionStage.TRANSITION_ACTION));
+    }
+
+    @Test
+    void testStageLatenciesAreRecordedOnlyForStagesWhichRun() {
+        var metrics = new FSMMetrics();
+        var fsm = new ConcurrentFSM(DEFINITION);
+        fsm.setMetrics(metrics);
+
+        fsm.trigger(Event.E1);
+        fsm.trigger(Event.E1);
+
+        assertEquals(2, metrics.getStageLatency(FSMTransitionStage.BEFORE_TRANSITION).getCount());
+        assertEquals(1, metrics.getStageLatency(FSMTransitionStage.TRANSITION_ACTION).getCount());
+        assertEquals(0, metrics.getStageLatency(FSMTransitionStage.EXIT_OLD_STATE).getCount());
+        assertEquals(2, metrics.getStageLatency(FSMTransitionStage.AFTER_TRANSITION).getCount());
+        assertEquals(1, metrics.getTransitionCount(State.S1, Event.E1));
+        assertEquals(1, metrics.getTransitionCount(State.S2, Event.E1));
+    }
+
+    @Test
+    void testSampledLatenciesKeepCountersExact() {
+        var metrics = new FSMMetrics(64);
+        var fsm = new FSMInstance(DEFINITION);
+        fsm.setMetrics(metrics);
+
+        for (int i = 0; i < 64_000; i++) {
+            fsm.trigger(Event.E1);
+        }
+
+        assertEquals(32_000, metrics.getTransitionCount(State.S1, Event.E1));
+        var timedCount = metrics.getStageLatency(FSMTransitionStage.BEFORE_TRANSITION).getCount();
+        assertTrue(timedCount > 500 && timedCount < 2_000, "timed " + timedCount);
+    }
+
+    @Test
+    void testExporterReceivesAllMetrics() {
+        var metrics = new FSMMetrics();
+        var fsm = new FSMInstance(DEFINITION);
+        fsm.setMetrics(metrics);
+        assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        fsm.trigger(Event.E1);
+
+        var transitionCounts = new HashMap<String, Long>();
+        var stageLatencyCounts = new EnumMap<FSMTransitionStage, Long>(FSMTransitionStage.class);
+        var noSuchTransitionCount = new long[1];
+        metrics.exportTo(new FSMMetricsExporter() {
+            @Override
+            public void transitionCount(FSMState oldState, FSMEvent event, long count) {
+                transitionCounts.put(oldState + "+" + event, count);
+            }
+
+            @Override
+            public void noSuchTransitionCount(long count) {
+                noSuchTransitionCount[0] = count;
+            }
+
+            @Override
+            public void stageLatency(FSMTransitionStage stage, FSMLatencyHistogram histogram) {
+                stageLatencyCounts.put(stage, histogram.getCount());
+            }
+        });
+
+        assertEquals(Map.of("S1+E1", 1L), transitionCounts);
+        assertEquals(1, noSuchTransitionCount[0]);
+        assertEquals(5, stageLatencyCounts.size());
+        assertEquals(1, stageLatencyCounts.get(FSMTransitionStage.TRANSITION_ACTION));
+    }
+
+    @Test
+    void testHistogramPercentilesAreWithinBucketPrecision() {
+        var histogram = new FSMLatencyHistogram();
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMaxNanos());
+        assertEquals(5_000.5, histogram.getMeanNanos());
+        var median = histogram.getNanosAtPercentile(50);
+        assertTrue(median >= 5_000 && median <= 5_000 * 1.125, "median " + median);
+        var p99 = histogram.getNanosAtPercentile(99);
+        assertTrue(p99 >= 9_900 && p99 <= 9_900 * 1.125, "p99 " + p99);
+        assertEquals(10_000, histogram.getNanosAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getNanosAtPercentile(50));
+    }
+
+    @Test
+    void testHistogramBucketsCoverAllValues() {
+        for (var nanos : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE }) {
+            var index = FSMLatencyHistogram.bucketIndex(nanos);
+            assertTrue(FSMLatencyHistogram.bucketUpperBound(index) >= nanos);
+            assertTrue(index == 0 || FSMLatencyHistogram.bucketUpperBound(index - 1) < nanos);
+        }
+    }
+}
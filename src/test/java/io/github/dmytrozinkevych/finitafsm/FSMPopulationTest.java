@@ -0,0 +1,255 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FSMPopulationTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S3)
+            .transition(State.S3, Event.E1, State.S4)
+            .transition(State.S4, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S1)
+            .build();
+
+    private record NamedState(String name) implements FSMState { }
+
+    @Test
+    void testEntitiesHaveIndependentStates() {
+        var population = FSMPopulation.builder(DEFINITION, 10).build();
+
+        assertEquals(State.S2, population.trigger(3, Event.E1));
+        assertEquals(State.S3, population.trigger(3, Event.E1));
+        assertEquals(State.S2, population.trigger(7, Event.E1));
+
+        assertEquals(10, population.size());
+        assertEquals(State.S1, population.stateOf(0));
+        assertEquals(State.S3, population.stateOf(3));
+        assertEquals(State.S2, population.stateOf(7));
+        assertEquals(Map.of(State.S1, 8L, State.S2, 1L, State.S3, 1L, State.S4, 0L), population.counts());
+        assertEquals(8, population.countOf(State.S1));
+    }
+
+    @Test
+    void testTriggeringEventWhichIsNotSetForCurrentStateThrowsException() {
+        var population = FSMPopulation.builder(DEFINITION, 1).build();
+
+        assertThrows(NoSuchTransitionException.class, () -> population.trigger(0, Event.E2));
+        assertEquals(State.S1, population.stateOf(0));
+    }
+
+    @Test
+    void testActionsReceiveEntityId() {
+        var calls = new ArrayList<String>();
+        var population = FSMPopulation.builder(DEFINITION, 5)
+                .transitionAction(State.S1, Event.E1, (entityId, oldState, event, newState) -> calls.add("transition " + entityId))
+                .stateActions(State.S1, null, (entityId, oldState, event, newState) -> calls.add("exit " + entityId))
+                .stateActions(State.S2, (entityId, oldState, event, newState) -> calls.add("enter " + entityId), null)
+                .build();
+
+        population.trigger(4, Event.E1);
+
+        assertEquals(List.of("exit 4", "transition 4", "enter 4"), calls);
+    }
+
+    @Test
+    void testInheritedTransitionsRunActionsOfDeclaringState() {
+        // S2 and S3 are nested into S1, S3 overrides the E1 transition of S1
+        var definition = FSMDefinition.builder()
+                .initialState(State.S2)
+                .parentState(State.S2, State.S1)
+                .parentState(State.S3, State.S1)
+                .transition(State.S1, Event.E1, State.S4)
+                .transition(State.S3, Event.E1, State.S2)
+                .transition(State.S4, Event.E2, State.S3)
+                .build();
+        var calls = new ArrayList<String>();
+        var population = FSMPopulation.builder(definition, 2)
+                .transitionAction(State.S1, Event.E1, (entityId, oldState, event, newState) -> calls.add("S1 " + oldState))
+                .build();
+
+        assertEquals(State.S4, population.trigger(0, Event.E1));
+        population.trigger(1, Event.E1);
+        population.trigger(1, Event.E2);
+        assertEquals(State.S2, population.trigger(1, Event.E1));
+
+        assertEquals(List.of("S1 S2", "S1 S2"), calls);
+    }
+
+    @Test
+    void testFailedActionKeepsOldState() {
+        var population = FSMPopulation.builder(DEFINITION, 1)
+                .stateActions(State.S2, (entityId, oldState, event, newState) -> { throw new ArithmeticException(); }, null)
+                .build();
+
+        var exception = assertThrows(FSMException.class, () -> population.trigger(0, Event.E1));
+        assertEquals(ArithmeticException.class, exception.getCause().getClass());
+        assertEquals(State.S1, population.stateOf(0));
+        assertEquals(1, population.countOf(State.S1));
+    }
+
+    @Test
+    void testConcurrentTriggersAreNotLost() {
+        var entitiesCount = 64;
+        var triggersPerEntity = 4_001;
+        var enteredS2 = new AtomicLongArray(entitiesCount);
+        var population = FSMPopulation.builder(DEFINITION, entitiesCount)
+                .stateActions(State.S2, (entityId, oldState, event, newState) -> enteredS2.incrementAndGet(entityId), null)
+                .build();
+
+        IntStream.range(0, entitiesCount * triggersPerEntity)
+                .parallel()
+                .forEach(i -> population.trigger(i % entitiesCount, Event.E1));
+
+        for (int entityId = 0; entityId < entitiesCount; entityId++) {
+            assertEquals(State.S2, population.stateOf(entityId));
+        }
+        assertEquals(entitiesCount, population.countOf(State.S2));
+        assertEquals(0, population.countOf(State.S1));
+        assertTrue(enteredS2.get(0) >= 1_001);
+    }
+
+    @Test
+    void testPopulationRequiresEnumDefinition() {
+        var definition = FSMDefinition.builder()
+                .initialState(new NamedState("A"))
+                .transition(new NamedState("A"), Event.E1, new NamedState("B"))
+                .build();
+
+        assertThrows(FSMException.class, () -> FSMPopulation.builder(definition, 1));
+    }
+
+    private static FSMPopulation mixedPopulation(int size) {
+        var population = FSMPopulation.builder(DEFINITION, size).build();
+        for (int entityId = 0; entityId < size; entityId++) {
+            for (int i = 0; i < entityId % 5; i++) {
+                population.trigger(entityId, Event.E1);
+            }
+        }
+        return population;
+    }
+
+    @Test
+    void testBroadcastAppliesEventToEntitiesWithTransition() {
+        var population = mixedPopulation(1_000);
+        var expected = new BitSet();
+        for (int entityId = 0; entityId < 1_000; entityId++) {
+            if (population.stateOf(entityId) == State.S2) {
+                expected.set(entityId);
+            }
+        }
+        var countsBefore = population.counts();
+
+        var transitioned = population.broadcast(Event.E2);
+
+        assertEquals(expected, transitioned);
+        for (int entityId = 0; entityId < 1_000; entityId++) {
+            assertNotEquals(State.S2, population.stateOf(entityId));
+        }
+        assertEquals(0, population.countOf(State.S2));
+        assertEquals(countsBefore.get(State.S1) + countsBefore.get(State.S2), population.countOf(State.S1));
+    }
+
+    @Test
+    void testParallelBroadcastMatchesSequentialOne() {
+        var size = 300_007;
+        var sequential = mixedPopulation(size);
+        var parallel = mixedPopulation(size);
+        var pool = new ForkJoinPool(4);
+
+        var sequentialTransitioned = sequential.broadcast(Event.E1);
+        var parallelTransitioned = parallel.broadcast(Event.E1, pool);
+        pool.shutdown();
+
+        assertEquals(size, sequentialTransitioned.cardinality());
+        assertEquals(sequentialTransitioned, parallelTransitioned);
+        assertEquals(sequential.counts(), parallel.counts());
+        for (int entityId = 0; entityId < size; entityId++) {
+            assertEquals(sequential.stateOf(entityId), parallel.stateOf(entityId));
+        }
+    }
+
+    @Test
+    void testBroadcastRunsActionsOfTransitionedEntities() {
+        var calls = new ArrayList<String>();
+        var population = FSMPopulation.builder(DEFINITION, 100)
+                .transitionAction(State.S2, Event.E2, (entityId, oldState, event, newState) -> calls.add(entityId + " " + oldState + " -> " + newState))
+                .stateActions(State.S1, (entityId, oldState, event, newState) -> calls.add("enter " + entityId), null)
+                .build();
+        population.trigger(7, Event.E1);
+        population.trigger(70, Event.E1);
+
+        population.broadcast(Event.E2);
+
+        assertEquals(List.of("7 S2 -> S1", "enter 7", "70 S2 -> S1", "enter 70"), calls);
+    }
+
+    @Test
+    void testFailedBroadcastActionKeepsCountsConsistent() {
+        var population = FSMPopulation.builder(DEFINITION, 10_000)
+                .stateActions(State.S2, (entityId, oldState, event, newState) -> {
+                    if (entityId == 5_000) {
+                        throw new IllegalStateException();
+                    }
+                }, null)
+                .build();
+
+        assertThrows(FSMException.class, () -> population.broadcast(Event.E1));
+
+        var counts = population.counts();
+        assertEquals(10_000, counts.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(IntStream.range(0, 10_000).filter(entityId -> population.stateOf(entityId) == State.S2).count(), counts.get(State.S2));
+    }
+
+    @Test
+    void testVectorKernelMatchesScalarKernel() {
+        var vectorKernel = FSMBroadcastKernel.VECTOR;
+        assumeTrue(vectorKernel != null);
+        var random = new Random(42);
+        var statesCount = vectorKernel.getMaxStatesCount();
+        var newStates = new byte[statesCount];
+        var transitions = new byte[statesCount];
+        for (int i = 0; i < statesCount; i++) {
+            transitions[i] = (byte) random.nextInt(2);
+            newStates[i] = transitions[i] == 1 ? (byte) random.nextInt(statesCount) : (byte) i;
+        }
+        var scalarStates = new byte[10_001];
+        for (int i = 0; i < scalarStates.length; i++) {
+            scalarStates[i] = (byte) random.nextInt(statesCount);
+        }
+        var vectorStates = scalarStates.clone();
+        var scalarWords = new long[157];
+        var vectorWords = new long[157];
+
+        FSMBroadcastKernel.SCALAR.apply(scalarStates, 0, 4_096, newStates, transitions, scalarWords);
+        FSMBroadcastKernel.SCALAR.apply(scalarStates, 4_096, 10_001, newStates, transitions, scalarWords);
+        vectorKernel.apply(vectorStates, 0, 4_096, newStates, transitions, vectorWords);
+        vectorKernel.apply(vectorStates, 4_096, 10_001, newStates, transitions, vectorWords);
+
+        assertArrayEquals(scalarStates, vectorStates);
+        assertArrayEquals(scalarWords, vectorWords);
+    }
+
+    @Test
+    void testBroadcastOfUnknownEventChangesNothing() {
+        var population = FSMPopulation.builder(DEFINITION, 10).build();
+
+        assertTrue(population.broadcast(new FSMEvent() { }).isEmpty());
+        assertEquals(10, population.countOf(State.S1));
+    }
+}
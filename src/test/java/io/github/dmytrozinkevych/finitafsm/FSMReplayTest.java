@@ -0,0 +1,160 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMReplayTest {
+
+    private static final AtomicInteger ACTIONS_COUNT = new AtomicInteger();
+
+    // E1 moves S1 -> S2 -> S3 and E2 returns S2 and S3 to S1
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> ACTIONS_COUNT.incrementAndGet())
+            .transition(State.S2, Event.E1, State.S3)
+            .transition(State.S2, Event.E2, State.S1)
+            .transition(State.S3, Event.E2, State.S1)
+            .build();
+
+    private static Map.Entry<Integer, FSMEvent> keyed(int entity, FSMEvent event) {
+        return Map.entry(entity, event);
+    }
+
+    @Test
+    void testReplayKeepsPerEntityOrder() {
+        var events = Stream.of(
+                keyed(1, Event.E1),
+                keyed(2, Event.E2),
+                keyed(1, Event.E1),
+                keyed(2, Event.E1),
+                keyed(1, Event.E2),
+                keyed(3, Event.E1),
+                keyed(1, Event.E1)
+        );
+
+        var result = FSMReplay.builder(DEFINITION).build().replay(events);
+
+        assertEquals(3, result.getEntitiesCount());
+        assertEquals(7, result.getEventsCount());
+        assertEquals(Map.of(State.S1, 0L, State.S2, 3L, State.S3, 0L, State.S4, 0L), result.getFinalStateCounts());
+        assertEquals(4, result.getTransitionCount(State.S1, Event.E1));
+        assertEquals(1, result.getTransitionCount(State.S2, Event.E1));
+        assertEquals(1, result.getTransitionCount(State.S3, Event.E2));
+        assertEquals(6, result.getTransitionsCount());
+        assertEquals(1, result.getRejectedEventCount(State.S1, Event.E2));
+        assertEquals(1, result.getRejectedEventsCount());
+    }
+
+    @Test
+    void testReplayWithAndWithoutActionsGivesSameResult() {
+        var entityEvents = new ArrayList<List<FSMEvent>>();
+        for (int entity = 0; entity < 10_000; entity++) {
+            var events = new ArrayList<FSMEvent>();
+            for (int i = 0; i < entity % 17; i++) {
+                events.add((entity * 31 + i * 7) % 3 == 0 ? Event.E2 : Event.E1);
+            }
+            entityEvents.add(events);
+        }
+        var pool = new ForkJoinPool(4);
+
+        var withActions = FSMReplay.builder(DEFINITION).pool(pool).build().replayGrouped(entityEvents);
+        var withoutActions = FSMReplay.builder(DEFINITION).pool(pool).actions(false).build().replayGrouped(entityEvents);
+        pool.shutdown();
+
+        assertEquals(withActions.getFinalStateCounts(), withoutActions.getFinalStateCounts());
+        assertEquals(withActions.getTransitionsCount(), withoutActions.getTransitionsCount());
+        assertEquals(withActions.getRejectedEventsCount(), withoutActions.getRejectedEventsCount());
+        for (var state : State.values()) {
+            for (var event : Event.values()) {
+                assertEquals(withActions.getTransitionCount(state, event), withoutActions.getTransitionCount(state, event));
+                assertEquals(withActions.getRejectedEventCount(state, event), withoutActions.getRejectedEventCount(state, event));
+            }
+        }
+        assertEquals(10_000, withActions.getFinalStateCounts().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void testActionsRunOnlyWhenTurnedOn() {
+        var entityEvents = IntStream.range(0, 100).mapToObj(entity -> List.of(Event.E1)).toList();
+        ACTIONS_COUNT.set(0);
+
+        FSMReplay.builder(DEFINITION).actions(false).build().replayGrouped(entityEvents);
+        assertEquals(0, ACTIONS_COUNT.get());
+
+        FSMReplay.builder(DEFINITION).build().replayGrouped(entityEvents);
+        assertEquals(100, ACTIONS_COUNT.get());
+    }
+
+    @Test
+    void testFollowUpEventsAreCountedWithActions() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E1))
+                .transition(State.S2, Event.E1, State.S3)
+                .build();
+
+        var result = FSMReplay.builder(definition).build().replayGrouped(List.of(List.of(Event.E1)));
+
+        assertEquals(1, result.getFinalStateCount(State.S3));
+        assertEquals(2, result.getTransitionsCount());
+    }
+
+    @Test
+    void testFailedEventsAreCounted() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> {
+                    throw new IllegalStateException();
+                })
+                .build();
+
+        var result = FSMReplay.builder(definition).build().replayGrouped(List.of(List.of(Event.E1, Event.E1)));
+
+        assertEquals(2, result.getFailedEventsCount());
+        assertEquals(1, result.getFinalStateCount(State.S1));
+    }
+
+    @Test
+    void testInstancesAreCreatedByFactory() {
+        var created = new AtomicInteger();
+
+        FSMReplay.builder(DEFINITION)
+                .instanceFactory(definition -> {
+                    created.incrementAndGet();
+                    return new FSMInstance(definition);
+                })
+                .build()
+                .replayGrouped(List.of(List.of(Event.E1), List.of(Event.E2)));
+
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void testUnknownEventsAreRejected() {
+        var result = FSMReplay.builder(DEFINITION).actions(false).build()
+                .replayGrouped(List.of(List.of(new FSMEvent() { }, Event.E1)));
+
+        assertEquals(1, result.getRejectedEventsCount());
+        assertEquals(1, result.getFinalStateCount(State.S2));
+    }
+
+    @Test
+    void testNonEnumDefinitionIsRejected() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, new FSMEvent() { }, State.S2)
+                .build();
+
+        assertThrows(FSMException.class, () -> FSMReplay.builder(definition));
+    }
+}
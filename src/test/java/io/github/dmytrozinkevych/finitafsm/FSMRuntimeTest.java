@@ -0,0 +1,141 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMRuntimeTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S3)
+            .transition(State.S3, Event.E1, State.S4)
+            .transition(State.S4, Event.E1, State.S1)
+            .build();
+
+    @Test
+    void testEventsOfEachKeyAreProcessedInOrder() throws Exception {
+        var keysCount = 1_000;
+        var eventsPerKey = 11;
+        try (var runtime = new FSMRuntime<Integer>(key -> new FSMInstance(DEFINITION), 4)) {
+            var results = new ArrayList<List<CompletableFuture<FSMState>>>();
+            for (int key = 0; key < keysCount; key++) {
+                results.add(new ArrayList<>());
+            }
+            for (int i = 0; i < eventsPerKey; i++) {
+                for (int key = 0; key < keysCount; key++) {
+                    results.get(key).add(runtime.trigger(key, Event.E1));
+                }
+            }
+
+            var expectedStates = List.of(State.S2, State.S3, State.S4, State.S1);
+            for (int key = 0; key < keysCount; key++) {
+                var keyResults = results.get(key);
+                for (int i = 0; i < eventsPerKey; i++) {
+                    assertEquals(expectedStates.get(i % expectedStates.size()), keyResults.get(i).get(10, TimeUnit.SECONDS));
+                }
+                assertEquals(State.S4, runtime.getCurrentState(key).get(10, TimeUnit.SECONDS));
+            }
+
+            var shardMetrics = runtime.getShardMetrics();
+            assertEquals(4, shardMetrics.size());
+            assertEquals(keysCount, shardMetrics.stream().mapToInt(FSMRuntime.ShardMetrics::instancesCount).sum());
+            assertEquals((long) keysCount * eventsPerKey, shardMetrics.stream().mapToLong(FSMRuntime.ShardMetrics::processedEventsCount).sum());
+            assertTrue(shardMetrics.stream().allMatch(metrics -> metrics.queueDepth() == 0));
+        }
+    }
+
+    @Test
+    void testInstancesAreCreatedLazilyOncePerKey() throws Exception {
+        var createdInstances = new AtomicInteger();
+        try (var runtime = new FSMRuntime<String>(key -> {
+            createdInstances.incrementAndGet();
+            return new FSMInstance(DEFINITION);
+        }, 2)) {
+            assertNull(runtime.getCurrentState("a").get(10, TimeUnit.SECONDS));
+            assertEquals(0, createdInstances.get());
+
+            runtime.trigger("a", Event.E1);
+            runtime.trigger("a", Event.E1);
+            runtime.trigger("b", Event.E1).get(10, TimeUnit.SECONDS);
+            assertEquals(State.S3, runtime.getCurrentState("a").get(10, TimeUnit.SECONDS));
+            assertEquals(2, createdInstances.get());
+
+            assertEquals(State.S3, runtime.remove("a").get(10, TimeUnit.SECONDS));
+            assertEquals(State.S2, runtime.trigger("a", Event.E1).get(10, TimeUnit.SECONDS));
+            assertEquals(3, createdInstances.get());
+        }
+    }
+
+    @Test
+    void testTransitionExceptionsCompleteFutureExceptionally() throws Exception {
+        try (var runtime = new FSMRuntime<String>(key -> new FSMInstance(DEFINITION), 1)) {
+            var result = runtime.trigger("a", Event.E2);
+
+            var exception = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertEquals(NoSuchTransitionException.class, exception.getCause().getClass());
+            assertEquals(State.S2, runtime.trigger("a", Event.E1).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testEventsSubmittedAfterCloseAreRejected() throws Exception {
+        var runtime = new FSMRuntime<String>(key -> new FSMInstance(DEFINITION), 1);
+        var submittedBeforeClose = runtime.trigger("a", Event.E1);
+        runtime.close();
+
+        assertEquals(State.S2, submittedBeforeClose.get(10, TimeUnit.SECONDS));
+        var exception = assertThrows(ExecutionException.class, () -> runtime.trigger("a", Event.E1).get(10, TimeUnit.SECONDS));
+        assertEquals(FSMException.class, exception.getCause().getClass());
+    }
+
+    @Test
+    void testErrorsCompleteFutureAndKeepShardRunning() throws Exception {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> { throw new AssertionError(); })
+                .transition(State.S1, Event.E2, State.S3)
+                .build();
+        try (var runtime = new FSMRuntime<String>(key -> new FSMInstance(definition), 1)) {
+            var result = runtime.trigger("a", Event.E1);
+
+            var exception = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertEquals(AssertionError.class, exception.getCause().getClass());
+            assertEquals(State.S3, runtime.trigger("a", Event.E2).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testEventsRacingWithCloseAreCompleted() throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            var runtime = new FSMRuntime<Integer>(key -> new FSMInstance(DEFINITION), 2);
+            var results = new ArrayList<CompletableFuture<FSMState>>();
+            var submitter = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    results.add(runtime.trigger(i, Event.E1));
+                }
+            });
+            submitter.start();
+            runtime.close();
+            submitter.join();
+
+            for (var result : results) {
+                try {
+                    assertEquals(State.S2, result.get(10, TimeUnit.SECONDS));
+                } catch (ExecutionException ex) {
+                    assertEquals(FSMException.class, ex.getCause().getClass());
+                }
+            }
+        }
+    }
+}
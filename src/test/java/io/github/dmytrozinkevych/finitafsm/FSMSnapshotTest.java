@@ -0,0 +1,138 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMStoreMismatchException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMSnapshotTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S3)
+            .transition(State.S3, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S4)
+            .build();
+
+    private static ReadableByteChannel channelOf(ByteArrayOutputStream output) {
+        return Channels.newChannel(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    @Test
+    void testSnapshotRestoresStatesAndPendingEvents() throws IOException {
+        var instances = new HashMap<Integer, FSMInstance>();
+        for (int entityId = 0; entityId < 5_000; entityId++) {
+            var fsm = new FSMInstance(DEFINITION);
+            for (int i = 0; i < entityId % 3; i++) {
+                fsm.trigger(Event.E1);
+            }
+            instances.put(entityId, fsm);
+        }
+        instances.get(1).triggerAfterwards(Event.E2);
+        var output = new ByteArrayOutputStream();
+        FSMSnapshot.write(Channels.newChannel(output), DEFINITION, instances);
+
+        var restored = new HashMap<Integer, FSMInstance>();
+        for (int entityId = 0; entityId < 5_000; entityId++) {
+            restored.put(entityId, new FSMInstance(DEFINITION));
+        }
+        FSMSnapshot.restore(channelOf(output), DEFINITION, restored);
+
+        for (int entityId = 0; entityId < 5_000; entityId++) {
+            assertEquals(instances.get(entityId).getCurrentState(), restored.get(entityId).getCurrentState());
+        }
+        assertEquals(1, restored.get(1).getPendingEventsCount());
+        assertEquals(Event.E2, restored.get(1).getPendingEvent(0));
+        assertEquals(0, restored.get(2).getPendingEventsCount());
+    }
+
+    @Test
+    void testSnapshotOfAbstractFSM() throws IOException {
+        var fsm = new AbstractFSM(State.S1) { };
+        fsm.setTransitions(Set.of(
+                new FSMTransition(State.S1, Event.E1, State.S2, null),
+                new FSMTransition(State.S2, Event.E1, State.S3, null)
+        ));
+        fsm.trigger(Event.E1);
+        var output = new ByteArrayOutputStream();
+        FSMSnapshot.write(Channels.newChannel(output), fsm);
+
+        var entries = FSMSnapshot.read(channelOf(output), fsm.getDefinition());
+
+        assertEquals(List.of(new FSMSnapshot.Entry(0, State.S2, List.of())), entries);
+    }
+
+    @Test
+    void testSnapshotRefusesMismatchedDefinition() throws IOException {
+        var output = new ByteArrayOutputStream();
+        FSMSnapshot.write(Channels.newChannel(output), DEFINITION, Map.of(0, new FSMInstance(DEFINITION)));
+        var otherDefinition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .build();
+
+        assertThrows(FSMStoreMismatchException.class, () -> FSMSnapshot.read(channelOf(output), otherDefinition));
+    }
+
+    @Test
+    void testIncrementalCheckpointWritesOnlyChangedInstances() throws IOException {
+        var checkpointer = new FSMCheckpointer(DEFINITION);
+        var instances = new HashMap<Integer, FSMInstance>();
+        for (int entityId = 0; entityId < 1_000; entityId++) {
+            var fsm = entityId % 2 == 0 ? new FSMInstance(DEFINITION) : new ConcurrentFSM(DEFINITION);
+            instances.put(entityId, fsm);
+            checkpointer.register(entityId, fsm);
+        }
+        var full = new ByteArrayOutputStream();
+        assertEquals(1_000, checkpointer.fullCheckpoint(Channels.newChannel(full)));
+        assertEquals(0, checkpointer.checkpoint(Channels.newChannel(new ByteArrayOutputStream())));
+
+        instances.get(10).trigger(Event.E1);
+        instances.get(10).trigger(Event.E1);
+        instances.get(11).trigger(Event.E1);
+        var incremental = new ByteArrayOutputStream();
+        assertEquals(2, checkpointer.checkpoint(Channels.newChannel(incremental)));
+        assertEquals(2, FSMSnapshot.read(channelOf(incremental), DEFINITION).size());
+
+        var restoredCheckpointer = new FSMCheckpointer(DEFINITION);
+        var restored = new HashMap<Integer, FSMInstance>();
+        for (int entityId = 0; entityId < 1_000; entityId++) {
+            var fsm = new FSMInstance(DEFINITION);
+            restored.put(entityId, fsm);
+            restoredCheckpointer.register(entityId, fsm);
+        }
+        assertEquals(1_000, restoredCheckpointer.restore(channelOf(full)));
+        assertEquals(2, restoredCheckpointer.restore(channelOf(incremental)));
+
+        assertEquals(State.S3, restored.get(10).getCurrentState());
+        assertEquals(State.S2, restored.get(11).getCurrentState());
+        assertEquals(State.S1, restored.get(12).getCurrentState());
+    }
+
+    @Test
+    void testUnregisteredInstanceIsNotCheckpointed() throws IOException {
+        var checkpointer = new FSMCheckpointer(DEFINITION);
+        var fsm = new FSMInstance(DEFINITION);
+        checkpointer.register(3, fsm);
+        checkpointer.unregister(3);
+        fsm.trigger(Event.E1);
+
+        assertEquals(0, checkpointer.checkpoint(Channels.newChannel(new ByteArrayOutputStream())));
+        assertThrows(FSMException.class, () -> {
+            checkpointer.register(4, fsm);
+            checkpointer.register(4, new FSMInstance(DEFINITION));
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMStoreMismatchException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMStateStoreTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S3)
+            .transition(State.S3, Event.E1, State.S1)
+            .build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStatesSurviveReopening() throws IOException {
+        var path = directory.resolve("states.fsm");
+        try (var store = FSMStateStore.open(path, DEFINITION, 100)) {
+            store.instance(5).trigger(Event.E1);
+            var fsm = store.instance(42);
+            fsm.trigger(Event.E1);
+            fsm.trigger(Event.E1);
+        }
+
+        try (var store = FSMStateStore.open(path, DEFINITION, 100)) {
+            assertEquals(State.S2, store.stateOf(5));
+            assertEquals(State.S3, store.instance(42).getCurrentState());
+            assertEquals(State.S1, store.stateOf(0));
+            assertEquals(1, store.versionOf(5));
+            assertEquals(2, store.versionOf(42));
+            assertEquals(0, store.versionOf(0));
+        }
+    }
+
+    @Test
+    void testFollowUpEventsAreWrittenThrough() throws IOException {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S2, Event.E2, State.S4)
+                .build();
+        try (var store = FSMStateStore.open(directory.resolve("states.fsm"), definition, 1)) {
+            store.instance(0).trigger(Event.E1);
+
+            assertEquals(State.S4, store.stateOf(0));
+            assertEquals(2, store.versionOf(0));
+        }
+    }
+
+    @Test
+    void testRolledBackTransitionIsNotWritten() throws IOException {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .stateActions(State.S2, (fsm, oldState, event, newState) -> { throw new ArithmeticException(); }, null)
+                .build();
+        try (var store = FSMStateStore.open(directory.resolve("states.fsm"), definition, 1)) {
+            var fsm = store.instance(0);
+
+            assertThrows(FSMException.class, () -> fsm.trigger(Event.E1));
+            assertEquals(State.S1, store.stateOf(0));
+            assertEquals(0, store.versionOf(0));
+        }
+    }
+
+    @Test
+    void testStoreRefusesMismatchedDefinition() throws IOException {
+        var path = directory.resolve("states.fsm");
+        FSMStateStore.open(path, DEFINITION, 10).close();
+        var otherDefinition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2)
+                .transition(State.S2, Event.E1, State.S1)
+                .build();
+
+        var size = Files.size(path);
+
+        assertThrows(FSMStoreMismatchException.class, () -> FSMStateStore.open(path, otherDefinition, 10));
+        assertThrows(FSMStoreMismatchException.class, () -> FSMStateStore.open(path, DEFINITION, 20));
+        assertEquals(size, Files.size(path));
+    }
+
+    @Test
+    void testStoreRefusesForeignFile() throws IOException {
+        var path = directory.resolve("states.fsm");
+        Files.write(path, new byte[64]);
+        var shortPath = directory.resolve("short.fsm");
+        Files.write(shortPath, new byte[] { 1, 2, 3 });
+
+        assertThrows(FSMStoreMismatchException.class, () -> FSMStateStore.open(path, DEFINITION, 4_000));
+        assertThrows(FSMStoreMismatchException.class, () -> FSMStateStore.open(shortPath, DEFINITION, 4));
+        assertEquals(64, Files.size(path));
+        assertEquals(3, Files.size(shortPath));
+    }
+
+    @Test
+    void testStoreRefusesTruncatedFile() throws IOException {
+        var path = directory.resolve("states.fsm");
+        FSMStateStore.open(path, DEFINITION, 10).close();
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(40);
+        }
+
+        assertThrows(FSMStoreMismatchException.class, () -> FSMStateStore.open(path, DEFINITION, 10));
+        assertEquals(40, Files.size(path));
+    }
+
+    @Test
+    void testAttachedAbstractFSMWritesThrough() throws IOException {
+        var path = directory.resolve("states.fsm");
+        class StoredFSM extends AbstractFSM {
+            StoredFSM() {
+                super(State.S1);
+                setTransitions(Set.of(
+                        new FSMTransition(State.S1, Event.E1, State.S2, null),
+                        new FSMTransition(State.S2, Event.E1, State.S3, null),
+                        new FSMTransition(State.S3, Event.E1, State.S1, null)
+                ));
+            }
+        }
+        try (var store = FSMStateStore.open(path, DEFINITION, 4)) {
+            var fsm = new StoredFSM();
+            store.attach(2, fsm);
+            fsm.trigger(Event.E1);
+        }
+        try (var store = FSMStateStore.open(path, DEFINITION, 4)) {
+            var fsm = new StoredFSM();
+            store.attach(2, fsm);
+            assertEquals(State.S2, fsm.getCurrentState());
+            assertEquals(State.S3, fsm.trigger(Event.E1));
+            assertEquals(State.S3, store.stateOf(2));
+
+            store.detach(fsm);
+            assertThrows(FSMStoreMismatchException.class, () -> store.attach(1, new FSMInstance(DEFINITION, new FSMState() { })));
+        }
+    }
+
+    @Test
+    void testAttachRefusesInstanceOfOtherDefinition() throws IOException {
+        var path = directory.resolve("states.fsm");
+        class OtherFSM extends AbstractFSM {
+            OtherFSM() {
+                super(State.S1);
+                setTransitions(Set.of(
+                        new FSMTransition(State.S1, Event.E1, State.S2, null),
+                        new FSMTransition(State.S2, Event.E1, State.S1, null)
+                ));
+            }
+        }
+        try (var store = FSMStateStore.open(path, DEFINITION, 4)) {
+            store.write(1, State.S3);
+            var fsm = new OtherFSM();
+
+            assertThrows(FSMStoreMismatchException.class, () -> store.attach(1, fsm));
+            assertEquals(State.S1, fsm.getCurrentState());
+            fsm.trigger(Event.E1);
+            assertEquals(State.S3, store.stateOf(1));
+        }
+    }
+
+    @Test
+    void testEntityIdOutOfCapacityThrowsException() throws IOException {
+        try (var store = FSMStateStore.open(directory.resolve("states.fsm"), DEFINITION, 3)) {
+            assertThrows(IndexOutOfBoundsException.class, () -> store.stateOf(3));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.write(-1, State.S2));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.dmytrozinkevych.finitafsm;
 
 import io.github.dmytrozinkevych.finitafsm.exceptions.DuplicateFSMEventException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMChainLengthExceededException;
 import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
 import io.github.dmytrozinkevych.finitafsm.exceptions.FSMHasNoTransitionsSetException;
 import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
@@ -8,7 +9,9 @@ import io.github.dmytrozinkevych.finitafsm.utils.TriConsumer;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -123,6 +126,22 @@ class FSMTest {
         assertThrows(FSMHasNoTransitionsSetException.class, () -> fsm.trigger(Event.E1));
     }
 
+    @Test
+    void testSettersBuildDefinitionOnceItIsUsed() {
+        var fsm = new TestOrderOfActionsFsm();
+        fsm.setMaxChainLength(3);
+        fsm.setStacklessExceptions(true);
+
+        var definition = fsm.getDefinition();
+
+        assertSame(definition, fsm.getDefinition());
+        assertEquals(3, definition.getMaxChainLength());
+        assertTrue(definition.hasStacklessExceptions());
+        assertTrue(fsm.getExitStateAction(State.S1).isPresent());
+        assertEquals(State.S2, fsm.trigger(Event.E1));
+        assertSame(definition, fsm.getDefinition());
+    }
+
     @Test
     void testDuplicatingOfFSMEventThrowsException() {
         var transitions = Set.of(
@@ -417,6 +436,70 @@ class FSMTest {
         verify(fsm, never()).triggerAfterwards(Event.E1);
     }
 
+    @Test
+    void testMultipleEventsTriggeredAfterwardsAreProcessedInOrder() {
+        var visitedStates = new ArrayList<FSMState>();
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> {
+                    fsm.triggerAfterwards(Event.E2);
+                    fsm.triggerAfterwards(Event.E1);
+                })
+                .transition(State.S2, Event.E2, State.S3)
+                .transition(State.S3, Event.E1, State.S4)
+                .stateActions(State.S2, (fsm, oldState, event, newState) -> visitedStates.add(newState), null)
+                .stateActions(State.S3, (fsm, oldState, event, newState) -> visitedStates.add(newState), null)
+                .stateActions(State.S4, (fsm, oldState, event, newState) -> visitedStates.add(newState), null)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertEquals(State.S4, fsm.trigger(Event.E1));
+        assertEquals(List.of(State.S2, State.S3, State.S4), visitedStates);
+    }
+
+    @Test
+    void testLongChainOfEventsTriggeredAfterwardsDoesNotOverflowStack() {
+        var chainLength = 200_000;
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .maxChainLength(chainLength)
+                .transition(State.S1, Event.E1, State.S2, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E2))
+                .transition(State.S2, Event.E2, State.S1, new FSMAction() {
+                    private int triggeredCount;
+
+                    @Override
+                    public void accept(FSMInstance fsm, FSMState oldState, FSMEvent event, FSMState newState) {
+                        if (++triggeredCount < chainLength / 2) {
+                            fsm.triggerAfterwards(Event.E1);
+                        }
+                    }
+                })
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        assertDoesNotThrow(() -> fsm.trigger(Event.E1));
+        assertEquals(State.S1, fsm.getCurrentState());
+    }
+
+    @Test
+    void testInfiniteChainOfEventsTriggeredAfterwardsThrowsException() {
+        var transitions = Set.of(
+                new FSMTransition(State.S1, Event.E1, State.S2, null),
+                new FSMTransition(State.S2, Event.E1, State.S1, null)
+        );
+        var fsm = new AbstractFSM(State.S1) {
+            @Override
+            protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+                triggerAfterwards(Event.E1);
+            }
+        };
+        fsm.setTransitions(transitions);
+        fsm.setMaxChainLength(10);
+
+        assertThrows(FSMChainLengthExceededException.class, () -> fsm.trigger(Event.E1));
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     void testGettingActionsForState() {
@@ -0,0 +1,234 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMTimerTest {
+
+    // S1 and S2 time out after 100 and 2000 ms respectively
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S1, Event.E2, State.S3)
+            .transition(State.S2, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S4)
+            .timeout(State.S1, Duration.ofMillis(100), Event.E2)
+            .timeout(State.S2, Duration.ofMillis(2000), Event.E2)
+            .build();
+
+    private final ManualClock clock = new ManualClock();
+
+    private final FSMTimer timer = FSMTimer.builder()
+            .clock(clock)
+            .tickDuration(Duration.ofMillis(10))
+            .wheelSize(8)
+            .build();
+
+    @Test
+    void testTimeoutFiresAfterDelay() {
+        var fsm = new FSMInstance(DEFINITION);
+        timer.register(fsm);
+
+        clock.advance(Duration.ofMillis(99));
+        assertEquals(0, timer.advance());
+        assertEquals(State.S1, fsm.getCurrentState());
+
+        clock.advance(Duration.ofMillis(1));
+        assertEquals(1, timer.advance());
+        assertEquals(State.S3, fsm.getCurrentState());
+        assertEquals(0, timer.getPendingTimeoutsCount());
+    }
+
+    @Test
+    void testTimeoutIsCancelledWhenStateIsExited() {
+        var fsm = new FSMInstance(DEFINITION);
+        timer.register(fsm);
+
+        clock.advance(Duration.ofMillis(50));
+        timer.advance();
+        fsm.trigger(Event.E1);
+        assertEquals(1, timer.getPendingTimeoutsCount());
+
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(0, timer.advance());
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+
+    @Test
+    void testReenteringStateRestartsTimeout() {
+        var fsm = new FSMInstance(DEFINITION);
+        timer.register(fsm);
+
+        clock.advance(Duration.ofMillis(80));
+        timer.advance();
+        fsm.trigger(Event.E1);
+        fsm.trigger(Event.E1);
+
+        clock.advance(Duration.ofMillis(80));
+        assertEquals(0, timer.advance());
+        assertEquals(State.S1, fsm.getCurrentState());
+
+        clock.advance(Duration.ofMillis(20));
+        assertEquals(1, timer.advance());
+        assertEquals(State.S3, fsm.getCurrentState());
+    }
+
+    @Test
+    void testTimeoutLongerThanWheelTakesSeveralRounds() {
+        var fsm = new FSMInstance(DEFINITION);
+        fsm.trigger(Event.E1);
+        timer.register(fsm);
+
+        for (int i = 0; i < 199; i++) {
+            clock.advance(Duration.ofMillis(10));
+            assertEquals(0, timer.advance());
+        }
+        assertEquals(State.S2, fsm.getCurrentState());
+
+        clock.advance(Duration.ofMillis(10));
+        assertEquals(1, timer.advance());
+        assertEquals(State.S4, fsm.getCurrentState());
+    }
+
+    @Test
+    void testUnregisterCancelsTimeout() {
+        var fsm = new FSMInstance(DEFINITION);
+        timer.register(fsm);
+        timer.unregister(fsm);
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(0, timer.advance());
+        assertEquals(State.S1, fsm.getCurrentState());
+    }
+
+    @Test
+    void testTimerAndCheckpointerFollowTheSameInstance() throws IOException {
+        var fsm = new FSMInstance(DEFINITION);
+        var checkpointer = new FSMCheckpointer(DEFINITION);
+        timer.register(fsm);
+        checkpointer.register(1, fsm);
+        assertThrows(FSMException.class, () -> timer.register(fsm));
+        checkpointer.fullCheckpoint(Channels.newChannel(new ByteArrayOutputStream()));
+
+        timer.unregister(fsm);
+        fsm.trigger(Event.E1);
+        clock.advance(Duration.ofSeconds(3));
+
+        assertEquals(0, timer.advance());
+        assertEquals(0, timer.getPendingTimeoutsCount());
+        assertEquals(1, checkpointer.checkpoint(Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    void testManyInstancesExpireTogether() {
+        var instances = new ArrayList<FSMInstance>();
+        for (int i = 0; i < 1000; i++) {
+            var fsm = new FSMInstance(DEFINITION);
+            timer.register(fsm);
+            instances.add(fsm);
+        }
+        for (int i = 0; i < instances.size(); i += 2) {
+            instances.get(i).trigger(Event.E1);
+        }
+
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(500, timer.advance());
+        assertEquals(500, timer.getPendingTimeoutsCount());
+    }
+
+    @Test
+    void testTimeoutEventsAreTriggeredOnExecutor() {
+        var tasks = new ArrayList<Runnable>();
+        var fsm = new FSMInstance(DEFINITION);
+        timer.register(fsm, tasks::add);
+
+        clock.advance(Duration.ofMillis(100));
+        timer.advance();
+        assertEquals(State.S1, fsm.getCurrentState());
+
+        tasks.forEach(Runnable::run);
+        assertEquals(State.S3, fsm.getCurrentState());
+    }
+
+    @Test
+    void testRejectedTimeoutIsReportedAndOthersStillExpire() {
+        var rejections = new ArrayList<Throwable>();
+        var rejecting = new AtomicBoolean(true);
+        Executor executor = task -> {
+            if (rejecting.getAndSet(false)) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        };
+        var rejected = new FSMInstance(DEFINITION);
+        var other = new FSMInstance(DEFINITION);
+        timer.register(rejected, executor);
+        timer.register(other);
+        var thread = Thread.currentThread();
+        var handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, ex) -> rejections.add(ex));
+        try {
+            clock.advance(Duration.ofMillis(100));
+            assertEquals(2, timer.advance());
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        assertEquals(1, rejections.size());
+        assertInstanceOf(RejectedExecutionException.class, rejections.get(0));
+        assertEquals(State.S1, rejected.getCurrentState());
+        assertEquals(State.S3, other.getCurrentState());
+
+        rejected.trigger(Event.E1);
+        rejected.trigger(Event.E1);
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(1, timer.advance());
+        assertEquals(State.S3, rejected.getCurrentState());
+    }
+
+    @Test
+    void testStartedTimerAdvancesByItself() throws InterruptedException {
+        var transitions = new CountDownLatch(1);
+        var fsm = new FSMInstance(DEFINITION) {
+            @Override
+            protected void afterEachTransition(FSMState oldState, FSMEvent event, FSMState newState) {
+                transitions.countDown();
+            }
+        };
+        try (var realTimer = FSMTimer.builder().tickDuration(Duration.ofMillis(1)).build()) {
+            realTimer.register(fsm);
+            realTimer.start();
+
+            assertTrue(transitions.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(State.S3, fsm.getCurrentState());
+    }
+
+    @Test
+    void testTimeoutsAreCopiedByAbstractFSM() {
+        var fsm = new AbstractFSM(State.S1) {
+            {
+                setTimeouts(Set.of(new FSMStateTimeout(State.S1, Duration.ofMillis(10), Event.E1)));
+                setTransitions(Set.of(new FSMTransition(State.S1, Event.E1, State.S2, null)));
+            }
+        };
+        timer.register(fsm);
+
+        clock.advance(Duration.ofMillis(10));
+        timer.advance();
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+}
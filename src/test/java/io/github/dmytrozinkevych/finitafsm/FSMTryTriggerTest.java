@@ -0,0 +1,126 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMChainLengthExceededException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.FSMException;
+import io.github.dmytrozinkevych.finitafsm.exceptions.NoSuchTransitionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FSMTryTriggerTest {
+
+    private static final FSMDefinition DEFINITION = FSMDefinition.builder()
+            .initialState(State.S1)
+            .transition(State.S1, Event.E1, State.S2)
+            .transition(State.S2, Event.E1, State.S1)
+            .transition(State.S2, Event.E2, State.S3)
+            .stateActions(State.S3, (fsm, oldState, event, newState) -> { throw new ArithmeticException(); }, null)
+            .build();
+
+    private static class RollingBackFsm extends FSMInstance {
+
+        RollingBackFsm(FSMDefinition definition) {
+            super(definition);
+        }
+
+        @Override
+        protected void onTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) { }
+    }
+
+    private static class RollingBackConcurrentFsm extends ConcurrentFSM {
+
+        RollingBackConcurrentFsm(FSMDefinition definition, TransitionLocking transitionLocking) {
+            super(definition, transitionLocking);
+        }
+
+        @Override
+        protected void onTransitionException(FSMState oldState, FSMEvent event, FSMState newState, Exception cause, FSMTransitionStage transitionStage) { }
+    }
+
+    @Test
+    void testTryTriggerReportsEachOutcome() {
+        var fsm = new RollingBackFsm(DEFINITION);
+
+        assertEquals(FSMTriggerResult.NO_TRANSITION, fsm.tryTrigger(Event.E2));
+        assertEquals(State.S1, fsm.getCurrentState());
+        assertEquals(FSMTriggerResult.APPLIED, fsm.tryTrigger(Event.E1));
+        assertEquals(State.S2, fsm.getCurrentState());
+
+        var result = fsm.tryTrigger(Event.E2);
+        assertEquals(FSMTriggerResult.ROLLED_BACK_ENTER_NEW_STATE, result);
+        assertTrue(result.isRolledBack());
+        assertFalse(result.isApplied());
+        assertEquals(FSMTransitionStage.ENTER_NEW_STATE, result.getRollbackStage());
+        assertEquals(State.S2, fsm.getCurrentState());
+    }
+
+    @Test
+    void testTryTriggerOfConcurrentFSM() {
+        for (var transitionLocking : ConcurrentFSM.TransitionLocking.values()) {
+            var fsm = new RollingBackConcurrentFsm(DEFINITION, transitionLocking);
+
+            assertEquals(FSMTriggerResult.NO_TRANSITION, fsm.tryTrigger(Event.E2));
+            assertEquals(FSMTriggerResult.APPLIED, fsm.tryTrigger(Event.E1));
+            assertEquals(FSMTriggerResult.ROLLED_BACK_ENTER_NEW_STATE, fsm.tryTrigger(Event.E2));
+            assertEquals(State.S2, fsm.getCurrentState());
+        }
+    }
+
+    @Test
+    void testTryTriggerRethrowsExceptionsOfDefaultHandler() {
+        var fsm = new FSMInstance(DEFINITION);
+        fsm.tryTrigger(Event.E1);
+
+        assertThrows(FSMException.class, () -> fsm.tryTrigger(Event.E2));
+    }
+
+    @Test
+    void testStacklessExceptionsAreFormattedLazily() {
+        var definition = FSMDefinition.builder()
+                .initialState(State.S1)
+                .stacklessExceptions(true)
+                .maxChainLength(3)
+                .transition(State.S1, Event.E1, State.S1, (fsm, oldState, event, newState) -> fsm.triggerAfterwards(Event.E1))
+                .transition(State.S1, Event.E2, State.S2)
+                .build();
+        var fsm = new FSMInstance(definition);
+
+        fsm.trigger(Event.E2);
+        var noSuchTransition = assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        assertEquals(0, noSuchTransition.getStackTrace().length);
+        assertEquals(State.S2, noSuchTransition.getState());
+        assertEquals(Event.E2, noSuchTransition.getEvent());
+        assertEquals("State 'S2' does not have transition for event 'E2'", noSuchTransition.getMessage());
+
+        var chainLengthExceeded = assertThrows(FSMChainLengthExceededException.class, () -> new FSMInstance(definition).trigger(Event.E1));
+        assertEquals(0, chainLengthExceeded.getStackTrace().length);
+        assertEquals("More than 3 follow-up events were triggered in a single chain", chainLengthExceeded.getMessage());
+    }
+
+    @Test
+    void testExceptionsHaveStackTracesByDefault() {
+        var fsm = new FSMInstance(DEFINITION);
+
+        var exception = assertThrows(NoSuchTransitionException.class, () -> fsm.trigger(Event.E2));
+        assertNotEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    void testStacklessExceptionsOfAbstractFSM() {
+        var fsm = new AbstractFSM(State.S1) { };
+        fsm.setStacklessExceptions(true);
+        fsm.setTransitions(Set.of(
+                new FSMTransition(State.S1, Event.E1, State.S2, (oldState, event, newState) -> { throw new IllegalStateException("failed"); })
+        ));
+        fsm.setMaxChainLength(5);
+
+        var exception = assertThrows(FSMException.class, () -> fsm.trigger(Event.E1));
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals(IllegalStateException.class, exception.getCause().getClass());
+        assertEquals("java.lang.IllegalStateException: failed", exception.getMessage());
+        assertTrue(fsm.getDefinition().hasStacklessExceptions());
+        assertEquals(FSMTriggerResult.NO_TRANSITION, fsm.tryTrigger(Event.E2));
+    }
+}
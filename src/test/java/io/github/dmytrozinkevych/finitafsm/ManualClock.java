@@ -0,0 +1,65 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock which stands still until it is advanced, so that time-based behavior can be tested deterministically and fast.
+ */
+final class ManualClock extends Clock {
+
+    private volatile Instant instant;
+
+    private final ZoneId zone;
+
+    ManualClock() {
+        this(Instant.EPOCH, ZoneOffset.UTC);
+    }
+
+    ManualClock(Instant instant, ZoneId zone) {
+        this.instant = instant;
+        this.zone = zone;
+    }
+
+    synchronized void advance(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("A clock can't be advanced backwards");
+        }
+        instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    // The returned clock still follows this one, only in another zone
+    @Override
+    public Clock withZone(ZoneId zone) {
+        var base = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId otherZone) {
+                return base.withZone(otherZone);
+            }
+
+            @Override
+            public Instant instant() {
+                return base.instant();
+            }
+        };
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.dmytrozinkevych.finitafsm;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Looks up a whole vector of states at once with a lane permutation, which limits the states to the lane count
+final class FSMVectorBroadcastKernel implements FSMBroadcastKernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public int getMaxStatesCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void apply(byte[] states, int from, int to, byte[] newStates, byte[] transitions, long[] words) {
+        var lanes = SPECIES.length();
+        var newStatesVector = ByteVector.fromArray(SPECIES, newStates, 0);
+        var transitionsVector = ByteVector.fromArray(SPECIES, transitions, 0);
+        var i = from;
+        // Lanes are a power of two of at most 64, so the bits of a vector never span two words
+        for (var upperBound = from + SPECIES.loopBound(to - from); i < upperBound; i += lanes) {
+            var stateVector = ByteVector.fromArray(SPECIES, states, i);
+            stateVector.selectFrom(newStatesVector).intoArray(states, i);
+            var transitioned = stateVector.selectFrom(transitionsVector).compare(VectorOperators.NE, 0);
+            words[i >>> 6] |= transitioned.toLong() << i;
+        }
+        SCALAR.apply(states, i, to, newStates, transitions, words);
+    }
+}